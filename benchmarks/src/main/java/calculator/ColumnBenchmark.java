@@ -0,0 +1,56 @@
+package calculator;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Bulk mode compute over one chunk: the fork-join split against a single
+// applyAll pass, reported per value
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ColumnBenchmark {
+    @Param({"SIN", "LN", "EXP", "CUBE"})
+    public CalculatorEngine.Function function;
+    
+    private final CalculatorEngine engine = new CalculatorEngine();
+    private final ColumnEvaluator evaluator = new ColumnEvaluator(engine);
+    private final double[] in = new double[ColumnEvaluator.CHUNK];
+    private final double[] out = new double[ColumnEvaluator.CHUNK];
+    
+    @Setup
+    public void setUp() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < in.length; i++) {
+            in[i] = 0.5 + random.nextDouble() * 100;
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ColumnEvaluator.CHUNK)
+    public double[] parallel() {
+        evaluator.applyParallel(function, in, out, 0, in.length);
+        return out;
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ColumnEvaluator.CHUNK)
+    public double[] serial() {
+        engine.applyAll(function, in, out);
+        return out;
+    }
+}
@@ -0,0 +1,89 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The precision mode's cost against double mode for one operator from the
+// display texts to the result text: short operands that stay on the scaled
+// long path, long ones that need BigDecimal, and plain BigDecimal for reference
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecimalBenchmark {
+    @Param({"+", "−", "×", "÷", "%"})
+    public String operator;
+    
+    private final CalculatorEngine engine = new CalculatorEngine();
+    private final NumberFormatter formatter = new NumberFormatter();
+    private final DecimalArithmetic decimal = new DecimalArithmetic();
+    private CalculatorEngine.BinaryOp op;
+    private String first;
+    private String second;
+    private String longFirst;
+    private String longSecond;
+    
+    @Setup
+    public void setUp() {
+        op = CalculatorEngine.BinaryOp.fromSymbol(operator);
+        first = "1234.75";
+        second = "0.25";
+        longFirst = "12345678901234567890.123";
+        longSecond = "3.14159265358979323846";
+    }
+    
+    @Benchmark
+    public String doubleMode() {
+        double result = engine.apply(op, Double.parseDouble(first), Double.parseDouble(second));
+        return formatter.formatResult(result);
+    }
+    
+    @Benchmark
+    public String decimalMode() {
+        return decimal.apply(op, first, second);
+    }
+    
+    @Benchmark
+    public String decimalModeLongOperands() {
+        return decimal.apply(op, longFirst, longSecond);
+    }
+    
+    @Benchmark
+    public String bigDecimal() {
+        BigDecimal a = new BigDecimal(first);
+        BigDecimal b = new BigDecimal(second);
+        BigDecimal result;
+        switch (op) {
+            case ADD:
+                result = a.add(b, MathContext.DECIMAL128);
+                break;
+            case SUBTRACT:
+                result = a.subtract(b, MathContext.DECIMAL128);
+                break;
+            case MULTIPLY:
+                result = a.multiply(b, MathContext.DECIMAL128);
+                break;
+            case DIVIDE:
+                result = a.divide(b, MathContext.DECIMAL128);
+                break;
+            default:
+                result = a.remainder(b, MathContext.DECIMAL128);
+                break;
+        }
+        return result.stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,180 @@
+package calculator;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Replays a recorded stream of button commands and typed keys through the
+// old regex/equals dispatch chain and through the CalculatorCommand table.
+// Scores are per event.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DispatchBenchmark {
+    private static final int EVENTS = 4096;
+    
+    // A typical session: digits, operators, memory, scientific functions and keys
+    private static final String[] SESSION = {
+        "1", "2", ".", "5", "×", "3", "=", "MS", "C", "4", "5", "÷", "9", "=",
+        "sin", "cos", "M+", "x^y", "2", "=", "Back", "±", "%", "Mod", "7", "=",
+        "ln", "log", "x!", "n√x", "3", "n√x", "MR", "+", "1", "=", "(", ")", "pi", "Rand"
+    };
+    private static final char[] KEYS = { '1', '2', '+', '3', '*', '4', '-', '/', '.', '%', '9', '^', '(', ')' };
+    
+    private String[] replay;
+    private char[] keys;
+    
+    @Setup
+    public void setUp() {
+        replay = new String[EVENTS];
+        keys = new char[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            // Fresh String instances, as Swing hands out a new action command per event
+            replay[i] = new String(SESSION[i % SESSION.length]);
+            keys[i] = KEYS[i % KEYS.length];
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void legacyButtons(Blackhole blackhole) {
+        for (String command : replay) {
+            blackhole.consume(legacyDispatch(command));
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void tableButtons(Blackhole blackhole) {
+        for (String command : replay) {
+            blackhole.consume(CalculatorCommand.fromLabel(command));
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void legacyKeys(Blackhole blackhole) {
+        for (char key : keys) {
+            blackhole.consume(legacyKeyDispatch(key));
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void tableKeys(Blackhole blackhole) {
+        for (char key : keys) {
+            blackhole.consume(CalculatorCommand.fromKeyChar(key));
+        }
+    }
+    
+    // The actionPerformed chain as it was before the command table
+    private static int legacyDispatch(String command) {
+        if (command.matches("[0-9]")) {
+            return 1;
+        } else if (command.equals(".")) {
+            return 2;
+        } else if (command.matches("[÷×+−]")) {
+            return 3;
+        } else if (command.equals("=")) {
+            return 4;
+        } else if (command.equals("C")) {
+            return 5;
+        } else if (command.equals("±")) {
+            return 6;
+        } else if (command.equals("%")) {
+            return 7;
+        } else if (command.equals("Back")) {
+            return 8;
+        } else if (command.equals("MC")) {
+            return 9;
+        } else if (command.equals("MR")) {
+            return 10;
+        } else if (command.equals("MS")) {
+            return 11;
+        } else if (command.equals("M+")) {
+            return 12;
+        } else if (command.equals("M-")) {
+            return 13;
+        } else if (command.equals("√")) {
+            return 14;
+        } else if (command.equals("x^2")) {
+            return 15;
+        } else if (command.equals("x^y")) {
+            return 16;
+        } else if (command.equals("Mod")) {
+            return 17;
+        } else if (command.equals("n√x")) {
+            return 18;
+        }
+        // handleScientificFunction's string switch
+        switch (command) {
+            case "sin":
+                return 19;
+            case "cos":
+                return 20;
+            case "tan":
+                return 21;
+            case "asin":
+                return 22;
+            case "acos":
+                return 23;
+            case "atan":
+                return 24;
+            case "log":
+                return 25;
+            case "ln":
+                return 26;
+            case "10^x":
+                return 27;
+            case "e^x":
+                return 28;
+            case "1/x":
+                return 29;
+            case "x!":
+                return 30;
+            case "x^3":
+                return 31;
+            case "pi":
+                return 32;
+            case "e":
+                return 33;
+            case "Rand":
+                return 34;
+            default:
+                return 0;
+        }
+    }
+    
+    // The keyTyped chain as it was before the command table
+    private static int legacyKeyDispatch(char keyChar) {
+        if (keyChar >= '0' && keyChar <= '9') {
+            return String.valueOf(keyChar).length();
+        } else if (keyChar == '.') {
+            return 2;
+        } else if (keyChar == '+') {
+            return 3;
+        } else if (keyChar == '-') {
+            return 4;
+        } else if (keyChar == '*') {
+            return 5;
+        } else if (keyChar == '/') {
+            return 6;
+        } else if (keyChar == '%') {
+            return 7;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,73 @@
+package calculator;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Binary operators as evaluated by CalculatorSession.handleEquals: parse the display
+// text, apply the operator, build the history entry and format the result.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvaluationBenchmark {
+    private static final int BATCH = 1024;
+    
+    @Param({"+", "−", "×", "÷", "%", "x^y", "n√x"})
+    public String operator;
+    
+    private final CalculatorEngine engine = new CalculatorEngine();
+    private final NumberFormatter formatter = new NumberFormatter();
+    private double firstNumber;
+    private String displayText;
+    private double[] left;
+    private double[] right;
+    private double[] out;
+    
+    @Setup
+    public void setUp() {
+        firstNumber = 12.75;
+        displayText = "3.5";
+        left = new double[BATCH];
+        right = new double[BATCH];
+        out = new double[BATCH];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < BATCH; i++) {
+            left[i] = 1 + random.nextDouble() * 100;
+            right[i] = 1 + random.nextDouble() * 10;
+        }
+    }
+    
+    @Benchmark
+    public String handleEquals() {
+        double secondNumber = Double.parseDouble(displayText);
+        String expression = formatter.formatNumber(firstNumber) + " " + operator + " " + formatter.formatNumber(secondNumber);
+        double result = engine.apply(CalculatorEngine.BinaryOp.fromSymbol(operator), firstNumber, secondNumber);
+        String entry = expression + " = " + formatter.formatNumber(result);
+        return entry + formatter.formatResult(result);
+    }
+    
+    @Benchmark
+    public double apply() {
+        return engine.apply(CalculatorEngine.BinaryOp.fromSymbol(operator), firstNumber, 3.5);
+    }
+    
+    // Batch API over 1024 operand pairs; divide the score by 1024 for per-element cost
+    @Benchmark
+    public double[] applyAll() {
+        engine.applyAll(CalculatorEngine.BinaryOp.fromSymbol(operator), left, right, out);
+        return out;
+    }
+}
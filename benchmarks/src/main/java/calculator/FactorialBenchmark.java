@@ -0,0 +1,48 @@
+package calculator;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// x! in the double table and through the exact BigInteger path, the latter
+// against a plain running product for comparison
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FactorialBenchmark {
+    @Param({"20", "170", "1000", "100000"})
+    public int n;
+    
+    private final CalculatorEngine engine = new CalculatorEngine();
+    
+    @Benchmark
+    public double apply() {
+        return n <= Factorials.MAX_DOUBLE ? engine.apply(CalculatorEngine.Function.FACTORIAL, n) : 0;
+    }
+    
+    @Benchmark
+    public BigInteger exact() {
+        return engine.factorial(n);
+    }
+    
+    @Benchmark
+    public BigInteger runningProduct() {
+        BigInteger result = BigInteger.ONE;
+        for (int i = 2; i <= n; i++) {
+            result = result.multiply(BigInteger.valueOf(i));
+        }
+        return result;
+    }
+}
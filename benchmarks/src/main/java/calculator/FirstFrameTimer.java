@@ -0,0 +1,65 @@
+package calculator;
+
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Time to first frame: starts the calculator in a fresh JVM, waits for the
+// window's first paint and repeats. Each run is timed from process start, so
+// JVM boot, class loading and look-and-feel setup all count. Needs a display;
+// on a headless machine run it under Xvfb:
+//
+//   xvfb-run -a java -cp benchmarks/target/benchmarks.jar calculator.FirstFrameTimer [runs] [jvm options...]
+//
+// The first run only warms the disk cache and is not counted. History is kept
+// in memory so that a large history log does not skew the figures.
+public class FirstFrameTimer {
+    public static void main(String[] args) throws Exception {
+        if (GraphicsEnvironment.isHeadless()) {
+            System.err.println("No display; run under xvfb-run -a");
+            System.exit(1);
+        }
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(Arrays.asList(args).subList(Math.min(1, args.length), args.length));
+        command.add("-Dcalculator.exitOnFirstFrame=true");
+        command.add("-Dcalculator.historyFile=");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("calculator.Calculator");
+        
+        long[] millis = new long[runs];
+        for (int i = -1; i < runs; i++) {
+            long elapsed = firstFrame(command);
+            if (i >= 0) {
+                millis[i] = elapsed;
+                System.out.printf("run %d: %d ms%n", i + 1, elapsed);
+            }
+        }
+        Arrays.sort(millis);
+        System.out.printf("first frame: min %d ms, median %d ms, max %d ms over %d runs%n",
+                millis[0], millis[runs / 2], millis[runs - 1], runs);
+    }
+    
+    private static long firstFrame(List<String> command) throws Exception {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                if (line.equals(Calculator.FIRST_FRAME)) {
+                    long elapsed = (System.nanoTime() - start) / 1_000_000;
+                    process.waitFor();
+                    return elapsed;
+                }
+            }
+        }
+        throw new IllegalStateException("Calculator exited with " + process.waitFor() + " before its first frame");
+    }
+}
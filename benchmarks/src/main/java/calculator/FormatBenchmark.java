@@ -0,0 +1,61 @@
+package calculator;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// CalculatorSession.formatNumber and displayResult, against the String.format and
+// regex implementation they replaced.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FormatBenchmark {
+    @Param({"42", "0.1", "3.141592653589793", "-2.5E-7", "1.2345678901E12"})
+    public String input;
+    
+    private final NumberFormatter formatter = new NumberFormatter();
+    private final StringBuilder buffer = new StringBuilder(32);
+    private double value;
+    
+    @Setup
+    public void setUp() {
+        value = Double.parseDouble(input);
+    }
+    
+    @Benchmark
+    public String formatNumber() {
+        return formatter.formatNumber(value);
+    }
+    
+    @Benchmark
+    public String formatResult() {
+        return formatter.formatResult(value);
+    }
+    
+    // Writing into a reused buffer, as batch and replay paths do
+    @Benchmark
+    public StringBuilder appendNumber() {
+        buffer.setLength(0);
+        return formatter.appendNumber(buffer, value);
+    }
+    
+    @Benchmark
+    public String legacyFormatNumber() {
+        if (value == (long) value) {
+            return String.valueOf((long) value);
+        }
+        return String.format("%.10g", value).replaceFirst("\\.?0+$", "");
+    }
+}
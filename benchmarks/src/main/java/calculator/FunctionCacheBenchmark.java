@@ -0,0 +1,75 @@
+package calculator;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// engine.apply with the function cache on and off, per call. "repeated"
+// cycles through 256 inputs, all of which fit in the cache; "unique" never
+// repeats within the cache's reach, so every call pays a miss and an insert
+// with eviction.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FunctionCacheBenchmark {
+    private static final int CALLS = 1 << 16;
+    
+    @Param({"ASIN", "ATAN", "POW10", "POWER"})
+    public String function;
+    
+    @Param({"repeated", "unique"})
+    public String inputs;
+    
+    @Param({"true", "false"})
+    public boolean cached;
+    
+    private final CalculatorEngine engine = new CalculatorEngine();
+    private final double[] in = new double[CALLS];
+    private CalculatorEngine.Function resolved;
+    
+    @Setup
+    public void setUp() {
+        engine.setCache(cached ? new FunctionCache() : null);
+        resolved = function.equals("POWER") ? null : CalculatorEngine.Function.valueOf(function);
+        SplittableRandom random = new SplittableRandom(3);
+        // Inside every domain: asin needs [-1, 1]
+        double scale = function.equals("ASIN") ? 1 : 100;
+        double[] distinct = new double[256];
+        for (int i = 0; i < distinct.length; i++) {
+            distinct[i] = random.nextInt(10000) / 10000.0 * scale;
+        }
+        for (int i = 0; i < CALLS; i++) {
+            in[i] = inputs.equals("repeated") ? distinct[i & 255] : random.nextDouble() * scale;
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public double apply() {
+        double sum = 0;
+        if (resolved == null) {
+            for (double x : in) {
+                sum += engine.apply(CalculatorEngine.BinaryOp.POWER, x, 1.5);
+            }
+        } else {
+            for (double x : in) {
+                sum += engine.apply(resolved, x);
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,86 @@
+package calculator;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Headless mode end to end over an in-memory script, reported per line:
+// expression lines sequential and in parallel batches, and key sequences.
+// Half the expression lines repeat a few formulas, half are unique
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HeadlessBenchmark {
+    private static final int LINES = 100_000;
+    private static final String[] FORMULAS = {"sin(30)^2+cos(60)", "2×(3+4)", "√2÷3", "5!-1"};
+    private static final String[] OPERATORS = {"+", "−", "×", "÷", "^"};
+    private static final OutputStream NULL = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+    
+    private final CalculatorEngine engine = new CalculatorEngine();
+    private final HeadlessCalculator calculator = new HeadlessCalculator(engine);
+    private byte[] expressions;
+    private byte[] keys;
+    
+    @Setup
+    public void setUp() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder e = new StringBuilder();
+        StringBuilder k = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            if (i % 2 == 0) {
+                e.append(FORMULAS[i / 2 % FORMULAS.length]);
+            } else {
+                e.append(random.nextInt(1, 1000)).append(OPERATORS[random.nextInt(OPERATORS.length)])
+                    .append(random.nextInt(1, 10)).append('.').append(random.nextInt(100));
+            }
+            e.append('\n');
+            k.append(random.nextInt(1, 1000)).append(" + ").append(random.nextInt(1, 1000)).append(" = √\n");
+        }
+        expressions = e.toString().getBytes(StandardCharsets.UTF_8);
+        keys = k.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long expressions() throws IOException {
+        return calculator.evaluate(new ByteArrayInputStream(expressions), NULL, false);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long expressionsParallel() throws IOException {
+        return calculator.evaluateParallel(new ByteArrayInputStream(expressions), NULL);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long keys() throws IOException {
+        CalculatorSession session = new CalculatorSession(engine, new ExpressionCompiler(), CalculatorSession.configuredDecimal(), entry -> { });
+        return calculator.evaluateKeys(session, new ByteArrayInputStream(keys), NULL, false);
+    }
+}
@@ -0,0 +1,58 @@
+package calculator;
+
+import java.util.concurrent.TimeUnit;
+import javax.swing.JList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Calculator.addToHistory once the history is full, so every add also evicts;
+// the listed variant has a JList attached the way the history panel does
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HistoryBenchmark {
+    @Param({"100", "1000000"})
+    public int capacity;
+    
+    private CalculationHistory history;
+    private CalculationHistory listedHistory;
+    private int counter;
+    
+    @Setup
+    public void setUp() {
+        history = new CalculationHistory(capacity);
+        for (int i = 0; i < capacity; i++) {
+            history.add(i + " + 1 = " + (i + 1));
+        }
+        listedHistory = new CalculationHistory(capacity);
+        for (int i = 0; i < capacity; i++) {
+            listedHistory.add(history.get(i));
+        }
+        JList<String> list = new JList<>(listedHistory);
+        list.setPrototypeCellValue("sqrt(123456789.0) = 11111.11110605556");
+    }
+    
+    @Benchmark
+    public int addAtCapacity() {
+        history.add("12 × 3 = 36");
+        return history.size() + counter++;
+    }
+    
+    @Benchmark
+    public int addAtCapacityListed() {
+        listedHistory.add("12 × 3 = 36");
+        return listedHistory.size() + counter++;
+    }
+}
@@ -0,0 +1,109 @@
+package calculator;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// History search over an index of synthetic entries in the shapes the
+// calculator writes. Entries are regenerated from their number when a search
+// reads them, standing in for a read from the history log; indexOne is the
+// cost of keeping the index up to date as calculations are added
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+@State(Scope.Thread)
+public class HistorySearchBenchmark {
+    private static final String[] FUNCTIONS = {"sin", "cos", "tan", "log", "ln"};
+    
+    @Param({"1000000", "10000000"})
+    public int entries;
+    
+    private final NumberFormatter formatter = new NumberFormatter();
+    private HistoryIndex index;
+    private HistoryIndex.Query token;
+    private HistoryIndex.Query prefix;
+    private HistoryIndex.Query twoTokens;
+    private HistoryIndex.Query range;
+    private HistoryIndex.Query tokenInRange;
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        index = new HistoryIndex();
+        for (int i = 0; i < entries; i++) {
+            index.add(i, entry(i));
+        }
+        next = entries;
+        token = HistoryIndex.Query.parse("sqrt");
+        prefix = HistoryIndex.Query.parse("mem");
+        twoTokens = HistoryIndex.Query.parse("sin 30");
+        range = HistoryIndex.Query.parse("12..13");
+        tokenInRange = HistoryIndex.Query.parse("sqrt 1..2");
+    }
+    
+    private String entry(int id) {
+        Random random = new Random(id * 0x9E3779B97F4A7C15L);
+        String a = formatter.formatNumber(random.nextInt(1000) / (random.nextBoolean() ? 1.0 : 8.0));
+        double x = Double.parseDouble(a);
+        int b = random.nextInt(500) + 1;
+        switch (random.nextInt(6)) {
+            case 0:
+                return a + " + " + b + " = " + formatter.formatNumber(x + b);
+            case 1:
+                return a + " × " + b + " = " + formatter.formatNumber(x * b);
+            case 2:
+                return "√(" + a + ") = " + formatter.formatNumber(Math.sqrt(x));
+            case 3:
+                return FUNCTIONS[random.nextInt(FUNCTIONS.length)] + "(" + a + "°) = " + formatter.formatNumber(Math.sin(x));
+            case 4:
+                return "M+ " + a + " -> Memory = " + formatter.formatNumber(x + 1);
+            default:
+                return a + " ÷ " + b + " = " + formatter.formatNumber(x / b);
+        }
+    }
+    
+    @Benchmark
+    public List<String> searchToken() {
+        return index.search(token, HistoryIndex.DEFAULT_LIMIT, this::entry, () -> false);
+    }
+    
+    @Benchmark
+    public List<String> searchPrefix() {
+        return index.search(prefix, HistoryIndex.DEFAULT_LIMIT, this::entry, () -> false);
+    }
+    
+    // Rare pair: the shorter list is walked to its start
+    @Benchmark
+    public List<String> searchTwoTokens() {
+        return index.search(twoTokens, HistoryIndex.DEFAULT_LIMIT, this::entry, () -> false);
+    }
+    
+    @Benchmark
+    public List<String> searchRange() {
+        return index.search(range, HistoryIndex.DEFAULT_LIMIT, this::entry, () -> false);
+    }
+    
+    @Benchmark
+    public List<String> searchTokenInRange() {
+        return index.search(tokenInRange, HistoryIndex.DEFAULT_LIMIT, this::entry, () -> false);
+    }
+    
+    @Benchmark
+    public int indexOne() {
+        index.add(next, "√(" + next + ") = 12");
+        return next++;
+    }
+}
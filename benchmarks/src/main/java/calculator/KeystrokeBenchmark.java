@@ -0,0 +1,179 @@
+package calculator;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import javax.swing.BorderFactory;
+import javax.swing.ButtonModel;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// 10,000 simulated keystrokes through the window's feedback and display path,
+// each one a separate event on the event dispatch thread: the key's button
+// model goes through rollover, arm, press and release, the session processes
+// the command and the display is refreshed. "coalesced" is the current path
+// (shared pressed borders, DisplayRefresher); "direct" is the old one (two
+// new borders per model change, setText on every command). TearDown prints
+// the bytes allocated on the event dispatch thread and the repaint requests
+// of the display, memory label and button, per 10,000 keystrokes. Runs in
+// headless AWT; nothing is shown.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class KeystrokeBenchmark {
+    private static final int KEYSTROKES = 10_000;
+    // 12.5 + 7 = then MS, repeated
+    private static final CalculatorCommand[] KEYS = {
+        CalculatorCommand.DIGIT_1, CalculatorCommand.DIGIT_2, CalculatorCommand.DECIMAL, CalculatorCommand.DIGIT_5,
+        CalculatorCommand.ADD, CalculatorCommand.DIGIT_7, CalculatorCommand.EQUALS, CalculatorCommand.MEMORY_STORE
+    };
+    
+    @Param({"coalesced", "direct"})
+    public String path;
+    
+    private final NumberFormatter numberFormatter = new NumberFormatter();
+    private final Runnable[] keystrokes = new Runnable[KEYS.length];
+    private CalculatorSession session;
+    private CountingTextField display;
+    private CountingLabel memoryIndicator;
+    private CountingButton button;
+    private DisplayRefresher refresher;
+    private long edtThread;
+    private long edtBytes;
+    private long runs;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            edtThread = Thread.currentThread().getId();
+            session = new CalculatorSession(new CalculatorEngine(), new ExpressionCompiler(),
+                    CalculatorSession.configuredDecimal(), entry -> { });
+            display = new CountingTextField();
+            memoryIndicator = new CountingLabel();
+            button = new CountingButton();
+            if (path.equals("coalesced")) {
+                CalculatorStyle.showPresses(button, CalculatorStyle.KEY_BORDER, CalculatorStyle.KEY_PRESSED_BORDER);
+                refresher = new DisplayRefresher(display, memoryIndicator, session);
+            } else {
+                button.getModel().addChangeListener(e -> {
+                    ButtonModel model = (ButtonModel) e.getSource();
+                    if (model.isPressed()) {
+                        button.setBorder(BorderFactory.createCompoundBorder(
+                            BorderFactory.createLoweredBevelBorder(), BorderFactory.createEmptyBorder(10, 0, 10, 0)));
+                    } else {
+                        button.setBorder(BorderFactory.createCompoundBorder(
+                            BorderFactory.createRaisedBevelBorder(), BorderFactory.createEmptyBorder(10, 0, 10, 0)));
+                    }
+                });
+            }
+        });
+        for (int i = 0; i < KEYS.length; i++) {
+            CalculatorCommand command = KEYS[i];
+            keystrokes[i] = () -> press(command);
+        }
+    }
+    
+    private void press(CalculatorCommand command) {
+        ButtonModel model = button.getModel();
+        model.setRollover(true);
+        model.setArmed(true);
+        model.setPressed(true);
+        model.setPressed(false);
+        model.setArmed(false);
+        model.setRollover(false);
+        session.process(command);
+        if (refresher != null) {
+            refresher.request();
+        } else {
+            display.setText(session.display());
+            memoryIndicator.setText("Memory: " + numberFormatter.formatNumber(session.memory()));
+        }
+    }
+    
+    @Benchmark
+    public void tenThousandKeystrokes() throws Exception {
+        for (int i = 0; i < KEYSTROKES - 1; i++) {
+            SwingUtilities.invokeLater(keystrokes[i % KEYS.length]);
+        }
+        // The last keystroke also writes out whatever the refresher still holds
+        SwingUtilities.invokeAndWait(() -> {
+            keystrokes[(KEYSTROKES - 1) % KEYS.length].run();
+            if (refresher != null) {
+                refresher.flush();
+            }
+        });
+        runs++;
+    }
+    
+    private long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(edtThread);
+    }
+    
+    @Setup(Level.Iteration)
+    public void startCounting() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            edtBytes = allocatedBytes();
+            display.repaints = 0;
+            memoryIndicator.repaints = 0;
+            button.repaints = 0;
+            runs = 0;
+        });
+    }
+    
+    @TearDown(Level.Iteration)
+    public void report() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            long bytes = allocatedBytes() - edtBytes;
+            System.out.printf("%nper %,d keystrokes: %,d bytes allocated on the EDT, repaints: display %d, memory %d, button %d%n",
+                    KEYSTROKES, bytes / runs, display.repaints / runs, memoryIndicator.repaints / runs, button.repaints / runs);
+        });
+    }
+    
+    static final class CountingTextField extends JTextField {
+        long repaints;
+        
+        CountingTextField() {
+            super("0");
+        }
+        
+        @Override
+        public void repaint(long tm, int x, int y, int width, int height) {
+            repaints++;
+        }
+    }
+    
+    static final class CountingLabel extends JLabel {
+        long repaints;
+        
+        @Override
+        public void repaint(long tm, int x, int y, int width, int height) {
+            repaints++;
+        }
+    }
+    
+    static final class CountingButton extends JButton {
+        long repaints;
+        
+        @Override
+        public void repaint(long tm, int x, int y, int width, int height) {
+            repaints++;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package calculator;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Replay of a million-step macro ("12.5 × 1.08 = M+ C" over and over) on a
+// fresh session, against processing the same commands one by one. Both
+// report every result to a history consumer that drops it.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MacroBenchmark {
+    private static final int STEPS = 1_000_000;
+    private static final CalculatorCommand[] CYCLE = {
+        CalculatorCommand.DIGIT_1, CalculatorCommand.DIGIT_2, CalculatorCommand.DECIMAL, CalculatorCommand.DIGIT_5,
+        CalculatorCommand.MULTIPLY, CalculatorCommand.DIGIT_1, CalculatorCommand.DECIMAL, CalculatorCommand.DIGIT_0,
+        CalculatorCommand.DIGIT_8, CalculatorCommand.EQUALS, CalculatorCommand.MEMORY_ADD, CalculatorCommand.CLEAR
+    };
+    
+    private final CalculatorEngine engine = new CalculatorEngine();
+    private CalculatorCommand[] steps;
+    private Macro macro;
+    
+    @Setup
+    public void setUp() {
+        steps = new CalculatorCommand[STEPS];
+        for (int i = 0; i < STEPS; i++) {
+            steps[i] = CYCLE[i % CYCLE.length];
+        }
+        macro = new Macro(steps);
+    }
+    
+    private CalculatorSession session() {
+        return new CalculatorSession(engine, new ExpressionCompiler(), CalculatorSession.configuredDecimal(), entry -> { });
+    }
+    
+    @Benchmark
+    public double replay() {
+        CalculatorSession session = session();
+        macro.replay(session);
+        return session.memory();
+    }
+    
+    @Benchmark
+    public double processEach() {
+        CalculatorSession session = session();
+        for (CalculatorCommand step : steps) {
+            session.process(step);
+        }
+        return session.memory();
+    }
+}
@@ -0,0 +1,65 @@
+package calculator;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cost of the metrics registry: recording one command latency, alone and from
+// four threads at once, and a whole keystroke through CalculatorSession.process
+// with metrics on and off. Run with -prof gc to check recording allocates nothing.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+    private final CalculatorMetrics metrics = new CalculatorMetrics();
+    
+    @Benchmark
+    public void record() {
+        metrics.command(CalculatorCommand.EQUALS, 1234);
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        metrics.command(CalculatorCommand.EQUALS, 1234);
+    }
+    
+    @State(Scope.Thread)
+    public static class Keys {
+        @Param({"true", "false"})
+        public boolean measured;
+        
+        private CalculatorSession session;
+        
+        @Setup
+        public void setUp() {
+            session = new CalculatorSession(new CalculatorEngine(), new ExpressionCompiler(),
+                    CalculatorSession.configuredDecimal(), entry -> { });
+            session.setMetrics(measured ? new CalculatorMetrics() : null);
+        }
+    }
+    
+    // 1 + 2 = : four commands, one formatted result
+    @Benchmark
+    public String keystrokes(Keys keys) {
+        CalculatorSession session = keys.session;
+        session.process(CalculatorCommand.DIGIT_1);
+        session.process(CalculatorCommand.ADD);
+        session.process(CalculatorCommand.DIGIT_2);
+        session.process(CalculatorCommand.EQUALS);
+        return session.display();
+    }
+}
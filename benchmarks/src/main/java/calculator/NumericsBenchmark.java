@@ -0,0 +1,69 @@
+package calculator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleUnaryOperator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// solve(f − c, 0.5, 20) for c halfway between f(0.5) and f(20), and
+// integrate(f, 0.5, 20), over
+// compiled expressions in degree mode. integrate splits its subintervals
+// across the common pool; oneThread runs the same rounds on a single worker.
+// sin(10000/x) oscillates some fifty times, so it takes a few thousand evaluations
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NumericsBenchmark {
+    private static final double FROM = 0.5;
+    private static final double TO = 20;
+    
+    @Param({"sin(x)", "ln(x)", "x^x", "3√x", "sin(10000/x)"})
+    public String function;
+    
+    private final CalculatorEngine engine = new CalculatorEngine();
+    private final ForkJoinPool oneThread = new ForkJoinPool(1);
+    private DoubleUnaryOperator f;
+    private DoubleUnaryOperator shifted;
+    
+    @Setup
+    public void setUp() {
+        CompiledExpression compiled = new ExpressionCompiler().compile(function);
+        f = x -> compiled.evaluate(engine, x);
+        double c = (f.applyAsDouble(FROM) + f.applyAsDouble(TO)) / 2;
+        shifted = x -> compiled.evaluate(engine, x) - c;
+    }
+    
+    @TearDown
+    public void tearDown() {
+        oneThread.shutdown();
+    }
+    
+    @Benchmark
+    public double solve() {
+        return Numerics.solve(shifted, FROM, TO).value();
+    }
+    
+    @Benchmark
+    public double integrate() {
+        return Numerics.integrate(f, FROM, TO).value();
+    }
+    
+    @Benchmark
+    public double integrateOneThread() {
+        return Numerics.integrate(f, FROM, TO, Numerics.INTEGRATE_BUDGET, oneThread).value();
+    }
+}
@@ -0,0 +1,112 @@
+package calculator;
+
+import java.awt.Graphics2D;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The function plot at 1024x512, zoomed out in x until tan(x) is about 10,000
+// points across the frame. sampleFrame is the adaptive sampling of every
+// column in view, as after a change of expression or angle mode; renderTile
+// draws one tile from a sampled strip. paintFrame and zoomFrame are the work
+// left on the event dispatch thread: a frame of cached tiles, as when panning
+// back or resizing, and one wheel step followed by its frame, alternating in
+// and out, with gaps filled by the other level stretched. Both include an
+// invokeAndWait round trip; the plot runs with java.awt.headless
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class PlotBenchmark {
+    private static final int WIDTH = 1024;
+    private static final int HEIGHT = 512;
+    private static final double X_SCALE = 2.4; // pixels per unit, as the plot has after zooming out
+    private static final double Y_SCALE = 60;
+    
+    @Param({"tan(x)", "log(x)"})
+    public String function;
+    
+    private final BufferedImage frame = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    private CompiledExpression expression;
+    private FunctionPlot.Strip strip;
+    private FunctionPlot plot;
+    private int wheel = -1;
+    
+    @Setup
+    public void setUp() throws Exception {
+        expression = new ExpressionCompiler().compile(function);
+        strip = FunctionPlot.sampleStrip(expression, false, X_SCALE, Y_SCALE, 0);
+        SwingUtilities.invokeAndWait(() -> {
+            plot = new FunctionPlot();
+            plot.setSize(WIDTH, HEIGHT);
+            plot.setAngleModeDegrees(false);
+            plot.setExpression(expression);
+            // Shift-wheel zooms x only: 20 steps out is a factor of 32
+            for (int i = 0; i < 20; i++) {
+                plot.dispatchEvent(new MouseWheelEvent(plot, MouseEvent.MOUSE_WHEEL, 0, InputEvent.SHIFT_DOWN_MASK,
+                    WIDTH / 2, HEIGHT / 2, 0, false, MouseWheelEvent.WHEEL_UNIT_SCROLL, 1, 1));
+            }
+        });
+        boolean[] complete = new boolean[1];
+        while (!complete[0]) {
+            SwingUtilities.invokeAndWait(() -> {
+                paint();
+                complete[0] = plot.isComplete();
+            });
+            Thread.sleep(5);
+        }
+    }
+    
+    private void paint() {
+        Graphics2D g = frame.createGraphics();
+        plot.paint(g);
+        g.dispose();
+    }
+    
+    @Benchmark
+    public int sampleFrame() {
+        int points = 0;
+        for (long column = 0; column < WIDTH / FunctionPlot.TILE; column++) {
+            points += FunctionPlot.sampleStrip(expression, false, X_SCALE, Y_SCALE, column - 2).size;
+        }
+        return points;
+    }
+    
+    @Benchmark
+    public BufferedImage renderTile() {
+        return FunctionPlot.renderTile(strip, 0, -1, X_SCALE, Y_SCALE);
+    }
+    
+    @Benchmark
+    public BufferedImage paintFrame() throws Exception {
+        SwingUtilities.invokeAndWait(this::paint);
+        return frame;
+    }
+    
+    @Benchmark
+    public BufferedImage zoomFrame() throws Exception {
+        wheel = -wheel;
+        SwingUtilities.invokeAndWait(() -> {
+            plot.dispatchEvent(new MouseWheelEvent(plot, MouseEvent.MOUSE_WHEEL, 0, 0,
+                WIDTH / 3, HEIGHT / 3, 0, false, MouseWheelEvent.WHEEL_UNIT_SCROLL, 1, wheel));
+            paint();
+        });
+        return frame;
+    }
+}
@@ -0,0 +1,92 @@
+package calculator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// "2a+rate×b−ans" over named registers. slots evaluates the expression as the
+// compiler builds it, reading registers by slot; mapLookup is the same tree
+// with its leaves looking each name up in a map at every evaluation, as
+// resolving names at run time would. storeAndEvaluate stores a register
+// first, as a user stepping a value through a formula does
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RegisterBenchmark {
+    private static final String EXPRESSION = "2a+rate×b−ans";
+    
+    private final CalculatorEngine engine = new CalculatorEngine();
+    private final Registers registers = new Registers();
+    private final Map<String, Double> map = new HashMap<>();
+    private CompiledExpression compiled;
+    private CompiledExpression looked;
+    private int slotA;
+    private double a;
+    
+    @Setup
+    public void setUp() {
+        String[] names = {"a", "rate", "b", "ans", "total", "tax", "price", "count"};
+        for (int i = 0; i < names.length; i++) {
+            registers.set(names[i], i + 0.5);
+            map.put(names[i], i + 0.5);
+        }
+        slotA = registers.slot("a");
+        compiled = new ExpressionCompiler(registers).compile(EXPRESSION);
+        CompiledExpression.Node tree = new CompiledExpression.Binary(CalculatorEngine.BinaryOp.SUBTRACT,
+                new CompiledExpression.Binary(CalculatorEngine.BinaryOp.ADD,
+                        new CompiledExpression.Binary(CalculatorEngine.BinaryOp.MULTIPLY,
+                                new CompiledExpression.Constant(2), new Lookup("a")),
+                        new CompiledExpression.Binary(CalculatorEngine.BinaryOp.MULTIPLY,
+                                new Lookup("rate"), new Lookup("b"))),
+                new Lookup("ans"));
+        looked = new CompiledExpression(EXPRESSION, tree, false);
+    }
+    
+    // A name left unresolved until evaluation
+    private final class Lookup extends CompiledExpression.Node {
+        private final String name;
+        
+        Lookup(String name) {
+            this.name = name;
+        }
+        
+        @Override
+        double eval(CalculatorEngine engine, double x) {
+            return map.get(name);
+        }
+        
+        @Override
+        double sample(double x, boolean degrees) {
+            return map.get(name);
+        }
+    }
+    
+    @Benchmark
+    public double slots() {
+        return compiled.evaluate(engine);
+    }
+    
+    @Benchmark
+    public double mapLookup() {
+        return looked.evaluate(engine);
+    }
+    
+    @Benchmark
+    public double storeAndEvaluate() {
+        registers.set(slotA, a += 0.25);
+        return compiled.evaluate(engine);
+    }
+}
@@ -0,0 +1,56 @@
+package calculator;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Every function behind CalculatorSession.handleScientificFunction, evaluated the
+// way the handler does: parse the display, apply, format the result.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScientificFunctionBenchmark {
+    @Param({"sin", "cos", "tan", "asin", "acos", "atan", "log", "ln",
+            "10^x", "e^x", "1/x", "x!", "x^3", "pi", "e", "Rand"})
+    public String function;
+    
+    @Param({"true", "false"})
+    public boolean degrees;
+    
+    private final CalculatorEngine engine = new CalculatorEngine();
+    private final NumberFormatter formatter = new NumberFormatter();
+    private CalculatorEngine.Function resolved;
+    private String displayText;
+    
+    @Setup
+    public void setUp() {
+        engine.setAngleModeDegrees(degrees);
+        resolved = CalculatorEngine.Function.fromSymbol(function);
+        // A value inside every function's domain; factorial needs an integer
+        displayText = resolved == CalculatorEngine.Function.FACTORIAL ? "15" : "0.5";
+    }
+    
+    @Benchmark
+    public String handleScientificFunction() {
+        double value = Double.parseDouble(displayText);
+        double result = engine.apply(resolved, value);
+        return formatter.formatResult(result);
+    }
+    
+    @Benchmark
+    public double apply() {
+        return engine.apply(resolved, 0.5);
+    }
+}
@@ -0,0 +1,52 @@
+package calculator;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// CalculatorSession.saveState, undo and redo with the undo journal at its limit
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UndoBenchmark {
+    @Param({"50", "100000"})
+    public int limit;
+    
+    private UndoJournal journal;
+    
+    @Setup
+    public void setUp() {
+        journal = new UndoJournal(limit);
+        for (int i = 0; i < limit; i++) {
+            journal.save(String.valueOf(i), i, "", "+", false, 0, "", false);
+        }
+    }
+    
+    // Each save at the limit trims the oldest step
+    @Benchmark
+    public int saveState() {
+        journal.save("123.45", 7, "7", "×", true, 2, "2", false);
+        return journal.undoDepth();
+    }
+    
+    // One undo followed by one redo leaves the journal at the limit again
+    @Benchmark
+    public double undoRedo() {
+        journal.undo("123.45", 7, "7", "×", true, 2, "2", false);
+        double first = journal.firstNumber();
+        journal.redo("12", first, "", "+", false, 0, "", false);
+        return journal.firstNumber();
+    }
+}
@@ -0,0 +1,266 @@
+package calculator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import javax.swing.AbstractListModel;
+
+// The most recent calculations, kept in a circular buffer that doubles as the
+// list model of the history panel. Appending and evicting are O(1) whatever
+// the capacity; the JList reads rows straight out of the buffer, so only the
+// visible rows are ever touched. When backed by a HistoryLog every entry is
+// also appended to disk, and entries restored from an earlier run stay null
+// in the buffer until a row asks for them. A history can also start in memory
+// and take its log later, once the log has been opened off the event dispatch
+// thread. Every entry, not only those in the buffer, can be searched through a
+// HistoryIndex. Must be used from the event dispatch thread, apart from the
+// searches that search() hands out.
+class CalculationHistory extends AbstractListModel<String> {
+    static final int DEFAULT_CAPACITY = 100;
+    static final int MAX_CAPACITY = 1 << 24;
+    static final String UNREADABLE = "(history entry unavailable)";
+    private static final int INITIAL_SLOTS = 128;
+    
+    private final int capacity;
+    private final HistoryIndex index = new HistoryIndex();
+    private HistoryLog log;
+    private boolean cleared; // cleared before a log was attached
+    private boolean logWritable;
+    private int logBase; // log index of the oldest entry in the buffer
+    private String[] ring;
+    private int head; // slot of the oldest entry
+    private int size;
+    
+    CalculationHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    CalculationHistory(int capacity) {
+        this(capacity, null);
+    }
+    
+    // Shows the newest capacity() entries of log and appends to it from now on
+    CalculationHistory(int capacity, HistoryLog log) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("History capacity must be between 1 and " + MAX_CAPACITY + ": " + capacity);
+        }
+        this.capacity = capacity;
+        this.log = log;
+        int restored = 0;
+        if (log != null) {
+            logWritable = true;
+            restored = Math.min(log.size(), capacity);
+            logBase = log.size() - restored;
+            index.rebuild(log);
+        }
+        ring = new String[Math.min(capacity, Math.max(INITIAL_SLOTS, restored))];
+        size = restored;
+    }
+    
+    // Appends an entry, overwriting the oldest once the history is full
+    void add(String entry) {
+        // The entry's number: its position in the log, or in the sequence of entries without one
+        index.add(logBase + size, entry);
+        if (logWritable) {
+            try {
+                log.append(entry);
+            } catch (IOException e) {
+                // Carry on in memory; entries already on disk stay readable
+                logWritable = false;
+            }
+        }
+        if (size < capacity) {
+            if (size == ring.length) {
+                grow();
+            }
+            ring[slot(size)] = entry;
+            size++;
+            fireIntervalAdded(this, size - 1, size - 1);
+        } else {
+            ring[head] = entry;
+            head = head + 1 == ring.length ? 0 : head + 1;
+            logBase++;
+            // Every row moved up by one; a single change event lets the list repaint what is visible
+            fireContentsChanged(this, 0, size - 1);
+        }
+    }
+    
+    void clear() {
+        if (logWritable) {
+            try {
+                log.clear();
+            } catch (IOException e) {
+                logWritable = false;
+            }
+        }
+        if (log == null) {
+            cleared = true;
+        }
+        index.clear();
+        int oldSize = size;
+        ring = new String[Math.min(capacity, INITIAL_SLOTS)];
+        head = 0;
+        size = 0;
+        logBase = 0;
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+    }
+    
+    // Backs a history that started in memory with log: the entries added so far
+    // are appended to it, and older entries from the log fill the rest of the
+    // capacity, unread until shown. If the log cannot be written it is only
+    // closed later, and the history carries on in memory
+    void attach(HistoryLog log) {
+        if (this.log != null) {
+            throw new IllegalStateException("History already has a log");
+        }
+        this.log = log;
+        String[] recent = new String[size];
+        for (int i = 0; i < size; i++) {
+            recent[i] = get(i);
+        }
+        try {
+            if (cleared) {
+                log.clear();
+            }
+            for (String entry : recent) {
+                log.append(entry);
+            }
+        } catch (IOException e) {
+            return;
+        }
+        logWritable = true;
+        int restored = Math.min(log.size(), capacity);
+        ring = new String[Math.min(capacity, Math.max(INITIAL_SLOTS, restored))];
+        System.arraycopy(recent, 0, ring, restored - recent.length, recent.length);
+        head = 0;
+        logBase = log.size() - restored;
+        int added = restored - size;
+        size = restored;
+        index.rebuild(log);
+        if (added > 0) {
+            fireIntervalAdded(this, 0, added - 1);
+        }
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    boolean isEmpty() {
+        return size == 0;
+    }
+    
+    // Entry by age, 0 being the oldest retained
+    String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        int slot = slot(index);
+        String entry = ring[slot];
+        if (entry == null) {
+            try {
+                entry = log.get(logBase + index);
+            } catch (IOException e) {
+                return UNREADABLE;
+            }
+            ring[slot] = entry;
+        }
+        return entry;
+    }
+    
+    // A search for the newest entries matching query, to run on any thread
+    // until it returns or is cancelled. It reads entries from the log, which is
+    // thread-safe, or without a log from a copy of the buffer taken now
+    Function<BooleanSupplier, List<String>> search(HistoryIndex.Query query) {
+        IntFunction<String> entries = entries();
+        return cancelled -> index.search(query, HistoryIndex.DEFAULT_LIMIT, entries, cancelled);
+    }
+    
+    int capacity() {
+        return capacity;
+    }
+    
+    // Entries an export covers: the whole log when there is one, else what is in memory
+    int totalEntries() {
+        return logWritable ? log.size() : size;
+    }
+    
+    // Streams totalEntries() entries to out as numbered UTF-8 lines
+    void writeTo(OutputStream out) throws IOException {
+        if (logWritable) {
+            log.writeTo(out);
+            return;
+        }
+        byte[] separator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < size; i++) {
+            out.write(((i + 1) + ". " + get(i)).getBytes(StandardCharsets.UTF_8));
+            out.write(separator);
+        }
+    }
+    
+    // Flushes and closes the log, if any; the history carries on in memory
+    void close() throws IOException {
+        if (log != null) {
+            logWritable = false;
+            log.close();
+        }
+    }
+    
+    @Override
+    public int getSize() {
+        return size;
+    }
+    
+    @Override
+    public String getElementAt(int index) {
+        return get(index);
+    }
+    
+    // Entries by number, as the index knows them, readable from any thread;
+    // null once neither the buffer copy nor the log holds one. A writable log
+    // holds every entry, the buffered ones included
+    private IntFunction<String> entries() {
+        HistoryLog log = this.log;
+        if (logWritable) {
+            return id -> id < log.size() ? read(log, id) : null;
+        }
+        // Entries not read yet stay null in the copy, as in the buffer, and come from the log
+        String[] buffered = new String[size];
+        for (int i = 0; i < size; i++) {
+            buffered[i] = ring[slot(i)];
+        }
+        int base = logBase;
+        return id -> {
+            if (id < base || id - base >= buffered.length) {
+                return null;
+            }
+            String entry = buffered[id - base];
+            return entry != null ? entry : read(log, id);
+        };
+    }
+    
+    private static String read(HistoryLog log, int id) {
+        try {
+            return log.get(id);
+        } catch (IOException | IndexOutOfBoundsException e) {
+            return null; // closed, or cleared since the entry was indexed
+        }
+    }
+    
+    private int slot(int index) {
+        int slot = head + index;
+        return slot >= ring.length ? slot - ring.length : slot;
+    }
+    
+    // Only reached while filling up, before any entry has been evicted, so head is 0
+    private void grow() {
+        ring = Arrays.copyOf(ring, (int) Math.min((long) ring.length * 2, capacity));
+    }
+}
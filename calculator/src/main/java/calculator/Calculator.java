@@ -0,0 +1,1168 @@
+package calculator;
+
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import javax.swing.*;
+import javax.swing.border.Border;
+import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+public class Calculator extends JFrame implements ActionListener, KeyListener {
+    static final String FIRST_FRAME = "first frame";
+    private static final int SNAPSHOT_INTERVAL_MILLIS = 30_000;
+    private static final long PERSISTENCE_TIMEOUT_SECONDS = 5;
+    private static final int SEARCH_DELAY_MILLIS = 150;
+    
+    private JTextField display;
+    private DisplayRefresher refresher;
+    private JList<String> historyList; // null until the history panel is first shown
+    private JTextField searchField;
+    private Timer searchTimer; // runs the search once typing pauses
+    private AtomicBoolean searchCancelled = new AtomicBoolean(); // set to drop the search in flight
+    private JLabel memoryIndicator;
+    private JLabel angleModeIndicator;
+    private JPanel centerPanel;
+    private JPanel scientificPanel; // null until first shown
+    private JPanel southPanel; // the scientific keys and the plot; null until either is first shown
+    private JPanel plotPanel; // null until first shown
+    private FunctionPlot plot;
+    private JLabel plotStatus; // the error estimate of the last solve or integrate
+    private JPanel rightPanel; // history panel; null until first shown
+    private JButton modeButton;
+    private JButton historyToggleButton;
+    private JButton angleModeButton;
+    private JButton precisionButton;
+    private JButton undoButton;
+    private JButton redoButton;
+    private JButton exportButton;
+    private JButton macroButton;
+    private JButton storeButton;
+    private JButton plotButton;
+    private JList<String> registerList;
+    private Macro.Recorder macroRecorder; // non-null while recording
+    private Macro macro;
+    private boolean scientificMode = false;
+    private boolean historyVisible = false;
+    private boolean plotVisible = false;
+    private final CalculatorEngine engine = new CalculatorEngine();
+    private final CalculationHistory calculationHistory = new CalculationHistory(
+            Integer.getInteger("calculator.historyCapacity", CalculationHistory.DEFAULT_CAPACITY));
+    private final CalculatorSession session = new CalculatorSession(engine, new ExpressionCompiler(new Registers()),
+            CalculatorSession.configuredDecimal(), this::addToHistory);
+    private final CalculatorMetrics metrics = new CalculatorMetrics();
+    private final CommandRunner runner = new CommandRunner(this::showBusy, this::showFailure);
+    private Runnable firstPaintProbe; // -Dcalculator.exitOnFirstFrame, for FirstFrameTimer
+    private final Path historyFile = configuredFile("calculator.historyFile", "history.log");
+    private final Path sessionFile = configuredFile("calculator.sessionFile", "session.snapshot");
+    // Restores, then saves, the session and opens the history log, one task at a time
+    private final ExecutorService persistence = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "session-persistence");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Runs history searches, so neither typing nor commands wait on one
+    private final ExecutorService searches = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "history-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile HistoryLog openedLog; // opened in the background, not yet attached
+    private boolean sessionChanged; // since the last snapshot was taken or restored
+    private Timer snapshotTimer;
+    
+    public Calculator() {
+        engine.setCache(FunctionCache.configured());
+        metrics.gauge("history.size", calculationHistory::getSize);
+        metrics.gauge("history.total", calculationHistory::totalEntries);
+        metrics.gauge("undo.depth", session::undoDepth);
+        session.setMetrics(metrics);
+        // Starting the platform MBean server takes a few hundred milliseconds; keep it off the first frame
+        Thread registration = new Thread(metrics::register, "metrics-registration");
+        registration.setDaemon(true);
+        registration.start();
+        initializeUI();
+        restoreInBackground();
+        if (sessionFile != null) {
+            snapshotTimer = new Timer(SNAPSHOT_INTERVAL_MILLIS, e -> saveSnapshot());
+            snapshotTimer.start();
+        }
+    }
+    
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        Runnable probe = firstPaintProbe;
+        if (probe != null) {
+            firstPaintProbe = null;
+            probe.run();
+        }
+    }
+    
+    private void initializeUI() {
+        setTitle("Advanced Calculator");
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setSize(570, 700);  // Smaller width since history is hidden by default
+        setLocationRelativeTo(null);
+        setResizable(true);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                runner.cancel();
+                if (snapshotTimer != null) {
+                    snapshotTimer.stop();
+                }
+                saveSnapshot();
+                finishPersistence();
+                attachHistory();
+                closeHistory();
+            }
+        });
+        
+        // Create main display with modern styling
+        display = new JTextField("0");
+        display.setFont(CalculatorStyle.DISPLAY_FONT);
+        display.setHorizontalAlignment(JTextField.RIGHT);
+        display.setEditable(false);
+        display.setBackground(CalculatorStyle.DISPLAY_BACKGROUND);
+        display.setForeground(Color.WHITE);
+        display.setBorder(CalculatorStyle.DISPLAY_BORDER);
+        display.setCaretColor(CalculatorStyle.ACCENT);
+        
+        // Memory indicator with modern styling
+        memoryIndicator = createIndicator("Memory: 0", CalculatorStyle.ACCENT, CalculatorStyle.MEMORY_BACKGROUND, CalculatorStyle.MEMORY_BORDER);
+        
+        // Angle mode indicator with modern styling
+        angleModeIndicator = createIndicator("Deg", CalculatorStyle.ANGLE, CalculatorStyle.DEGREES_BACKGROUND, CalculatorStyle.ANGLE_BORDER);
+        
+        angleModeButton = createControlButton("Deg/Rad", CalculatorStyle.ANGLE, e -> toggleAngleMode());
+        // Precision mode toggle: decimal arithmetic for + − × ÷ Mod % and memory
+        precisionButton = createControlButton("Exact: Off", CalculatorStyle.EXACT_OFF, e -> togglePrecisionMode());
+        undoButton = createControlButton("Undo", CalculatorStyle.UNDO, e -> processCommand(CalculatorCommand.UNDO));
+        redoButton = createControlButton("Redo", CalculatorStyle.UNDO, e -> processCommand(CalculatorCommand.REDO));
+        exportButton = createControlButton("Export", CalculatorStyle.EXPORT, e -> exportHistory());
+        macroButton = createControlButton("Macro", CalculatorStyle.MACRO, e -> showMacroMenu());
+        plotButton = createControlButton("Plot", CalculatorStyle.PLOT, e -> togglePlot());
+        
+        // Named registers beside memory: STO stores the display under a name, and
+        // clicking a register recalls it, or types its name into an expression
+        storeButton = createControlButton("STO", CalculatorStyle.ACCENT, e -> storeRegister());
+        registerList = new JList<>(new RegisterListModel(session.registers()));
+        registerList.setFont(CalculatorStyle.SMALL_PLAIN_FONT);
+        registerList.setLayoutOrientation(JList.HORIZONTAL_WRAP);
+        registerList.setVisibleRowCount(1);
+        registerList.setPrototypeCellValue("rate = -0.000123456789");
+        registerList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        registerList.setBackground(CalculatorStyle.MEMORY_BACKGROUND);
+        registerList.setForeground(CalculatorStyle.TITLE);
+        registerList.addListSelectionListener(e -> {
+            int slot = registerList.getSelectedIndex();
+            if (!e.getValueIsAdjusting() && slot >= 0) {
+                String name = session.registers().name(slot);
+                registerList.clearSelection();
+                runner.execute(() -> {
+                    session.recallRegister(name);
+                    refreshDisplay();
+                });
+            }
+        });
+        JScrollPane registerScroll = new JScrollPane(registerList,
+                ScrollPaneConstants.VERTICAL_SCROLLBAR_NEVER, ScrollPaneConstants.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+        registerScroll.setBorder(CalculatorStyle.MEMORY_BORDER);
+        registerScroll.setPreferredSize(new Dimension(300, 44));
+        
+        // Mode and history toggles are larger than the other controls
+        modeButton = createControlButton("Scientific Mode", CalculatorStyle.ACCENT, e -> toggleScientificMode());
+        modeButton.setFont(CalculatorStyle.LABEL_FONT);
+        modeButton.setBorder(CalculatorStyle.TOGGLE_BORDER);
+        historyToggleButton = createControlButton("Show History", CalculatorStyle.SHOW_HISTORY, e -> toggleHistoryPanel());
+        historyToggleButton.setFont(CalculatorStyle.LABEL_FONT);
+        historyToggleButton.setBorder(CalculatorStyle.TOGGLE_BORDER);
+        
+        JButton clearHistoryButton = createControlButton("Clear History", CalculatorStyle.CLEAR_HISTORY, e -> {
+            runner.execute(calculationHistory::clear);
+        });
+        clearHistoryButton.setFont(CalculatorStyle.SMALL_PLAIN_FONT);
+        clearHistoryButton.setForeground(CalculatorStyle.CLEAR_HISTORY_TEXT);
+        clearHistoryButton.setBorder(CalculatorStyle.CLEAR_HISTORY_BORDER);
+        
+        // Control panel for mode and memory with better layout
+        JPanel controlPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 8));
+        controlPanel.setBackground(CalculatorStyle.BACKGROUND);
+        controlPanel.add(modeButton);
+        controlPanel.add(historyToggleButton);
+        controlPanel.add(angleModeButton);
+        controlPanel.add(angleModeIndicator);
+        controlPanel.add(precisionButton);
+        controlPanel.add(memoryIndicator);
+        controlPanel.add(storeButton);
+        controlPanel.add(registerScroll);
+        controlPanel.add(undoButton);
+        controlPanel.add(redoButton);
+        controlPanel.add(exportButton);
+        controlPanel.add(macroButton);
+        controlPanel.add(plotButton);
+        controlPanel.add(clearHistoryButton);
+        
+        // Main layout with improved spacing
+        JPanel leftPanel = new JPanel(new BorderLayout(0, 15));
+        leftPanel.setBackground(CalculatorStyle.BACKGROUND);
+        leftPanel.add(display, BorderLayout.NORTH);
+        leftPanel.add(controlPanel, BorderLayout.CENTER);
+        leftPanel.add(createMainButtonPanel(), BorderLayout.SOUTH);
+        leftPanel.setBorder(new EmptyBorder(15, 15, 15, 15));
+        
+        // The scientific and history panels start hidden and are built on first toggle
+        centerPanel = new JPanel(new BorderLayout(10, 10));
+        centerPanel.setBackground(CalculatorStyle.BACKGROUND);
+        centerPanel.add(leftPanel, BorderLayout.CENTER);
+        
+        setLayout(new BorderLayout());
+        add(centerPanel, BorderLayout.CENTER);
+        
+        getContentPane().setBackground(CalculatorStyle.BACKGROUND);
+        
+        refresher = new DisplayRefresher(display, memoryIndicator, session);
+        
+        // Add keyboard listener
+        setFocusable(true);
+        addKeyListener(this);
+        setFocusTraversalKeysEnabled(false);
+    }
+    
+    private static JLabel createIndicator(String text, Color foreground, Color background, Border border) {
+        JLabel label = new JLabel(text);
+        label.setFont(CalculatorStyle.LABEL_FONT);
+        label.setForeground(foreground);
+        label.setBackground(background);
+        label.setOpaque(true);
+        label.setBorder(border);
+        return label;
+    }
+    
+    private static JButton createControlButton(String text, Color background, ActionListener action) {
+        JButton button = new JButton(text);
+        button.setFont(CalculatorStyle.SMALL_FONT);
+        button.addActionListener(action);
+        button.setBackground(background);
+        button.setForeground(Color.WHITE);
+        button.setFocusPainted(false);
+        button.setBorder(CalculatorStyle.CONTROL_BORDER);
+        button.setCursor(CalculatorStyle.HAND_CURSOR);
+        return button;
+    }
+    
+    // History panel with modern styling
+    private JPanel createHistoryPanel() {
+        historyList = new JList<>(calculationHistory);
+        historyList.setFont(CalculatorStyle.HISTORY_FONT);
+        // Fixed row size: layout stays O(1) and only visible rows are rendered, however long the history
+        historyList.setPrototypeCellValue("sqrt(123456789.0) = 11111.11110605556");
+        historyList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        historyList.setBackground(CalculatorStyle.HISTORY_BACKGROUND);
+        historyList.setSelectionBackground(CalculatorStyle.ACCENT);
+        historyList.setSelectionForeground(Color.WHITE);
+        historyList.addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                String selected = historyList.getSelectedValue();
+                if (selected != null && selected.contains(" = ")) {
+                    String result = selected.split(" = ")[1];
+                    runner.execute(() -> {
+                        session.recall(result);
+                        refreshDisplay();
+                    });
+                }
+            }
+        });
+        JScrollPane historyScroll = new JScrollPane(historyList);
+        historyScroll.setBorder(CalculatorStyle.titled("Calculation History", 5));
+        historyScroll.setPreferredSize(new Dimension(280, 450));
+        historyScroll.setBackground(CalculatorStyle.BACKGROUND);
+        
+        // Searches the whole history, e.g. "sqrt", "sin 30" or "10..20" for results in a range
+        searchField = new JTextField();
+        searchField.setFont(CalculatorStyle.HISTORY_FONT);
+        searchField.setBorder(CalculatorStyle.titled("Search (e.g. sqrt 2, 10..20)", 3));
+        searchField.setBackground(CalculatorStyle.HISTORY_BACKGROUND);
+        searchTimer = new Timer(SEARCH_DELAY_MILLIS, e -> runSearch());
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+        // New entries may match the search being shown
+        calculationHistory.addListDataListener(new ListDataListener() {
+            @Override
+            public void intervalAdded(ListDataEvent e) {
+                refreshSearch();
+            }
+            
+            @Override
+            public void intervalRemoved(ListDataEvent e) {
+                refreshSearch();
+            }
+            
+            @Override
+            public void contentsChanged(ListDataEvent e) {
+                refreshSearch();
+            }
+        });
+        
+        JPanel panel = new JPanel(new BorderLayout(0, 5));
+        panel.setBackground(CalculatorStyle.BACKGROUND);
+        panel.add(searchField, BorderLayout.NORTH);
+        panel.add(historyScroll, BorderLayout.CENTER);
+        panel.setBorder(new EmptyBorder(15, 0, 15, 15));
+        return panel;
+    }
+    
+    // Shows the newest entries matching the search field in place of the
+    // history, or the history again once the field is blank. The search runs
+    // on its own thread, as a range or prefix over a long log reads entries
+    // from disk; a newer search cancels it, and results for text no longer in
+    // the field are dropped
+    private void runSearch() {
+        searchCancelled.set(true);
+        String text = searchField.getText();
+        HistoryIndex.Query query = HistoryIndex.Query.parse(text);
+        if (query == null) {
+            if (historyList.getModel() != calculationHistory) {
+                historyList.setModel(calculationHistory);
+            }
+            return;
+        }
+        Function<BooleanSupplier, List<String>> search = calculationHistory.search(query);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        searchCancelled = cancelled;
+        searches.execute(() -> {
+            List<String> found = search.apply(cancelled::get);
+            SwingUtilities.invokeLater(() -> {
+                if (!cancelled.get() && searchField.getText().equals(text)) {
+                    DefaultListModel<String> results = new DefaultListModel<>();
+                    results.addAll(found);
+                    historyList.setModel(results);
+                }
+            });
+        });
+    }
+    
+    private void refreshSearch() {
+        if (historyList.getModel() != calculationHistory) {
+            searchTimer.restart();
+        }
+    }
+    
+    private JPanel createMainButtonPanel() {
+        JPanel panel = new JPanel();
+        panel.setLayout(new GridLayout(6, 4, 10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.setBackground(CalculatorStyle.KEYPAD_BACKGROUND);
+        
+        // Button layout - updated with memory buttons and modulo
+        CalculatorCommand[] buttons = {
+            CalculatorCommand.CLEAR, CalculatorCommand.SIGN_CHANGE, CalculatorCommand.PERCENT, CalculatorCommand.DIVIDE,
+            CalculatorCommand.MEMORY_CLEAR, CalculatorCommand.MEMORY_RECALL, CalculatorCommand.MEMORY_STORE, CalculatorCommand.MULTIPLY,
+            CalculatorCommand.MEMORY_ADD, CalculatorCommand.MEMORY_SUBTRACT, CalculatorCommand.SQUARE_ROOT, CalculatorCommand.SUBTRACT,
+            CalculatorCommand.DIGIT_7, CalculatorCommand.DIGIT_8, CalculatorCommand.DIGIT_9, CalculatorCommand.ADD,
+            CalculatorCommand.DIGIT_4, CalculatorCommand.DIGIT_5, CalculatorCommand.DIGIT_6, CalculatorCommand.MODULO,
+            CalculatorCommand.DIGIT_1, CalculatorCommand.DIGIT_2, CalculatorCommand.DIGIT_3, CalculatorCommand.POWER,
+            CalculatorCommand.DIGIT_0, CalculatorCommand.DECIMAL, CalculatorCommand.EQUALS, CalculatorCommand.BACKSPACE
+        };
+        
+        for (CalculatorCommand command : buttons) {
+            JButton button = createButton(command);
+            panel.add(button);
+        }
+        
+        return panel;
+    }
+    
+    private JPanel createScientificPanel() {
+        JPanel panel = new JPanel();
+        panel.setLayout(new GridLayout(4, 5, 10, 10));
+        panel.setBorder(CalculatorStyle.titled("Scientific Functions", 10));
+        panel.setBackground(CalculatorStyle.KEYPAD_BACKGROUND);
+        
+        CalculatorCommand[] scientificButtons = {
+            CalculatorCommand.SIN, CalculatorCommand.COS, CalculatorCommand.TAN,
+            CalculatorCommand.LOG, CalculatorCommand.LN, CalculatorCommand.RECIPROCAL,
+            CalculatorCommand.ASIN, CalculatorCommand.ACOS, CalculatorCommand.ATAN,
+            CalculatorCommand.POW10, CalculatorCommand.EXP, CalculatorCommand.FACTORIAL,
+            CalculatorCommand.NTH_ROOT, CalculatorCommand.PI, CalculatorCommand.E, CalculatorCommand.RAND,
+            CalculatorCommand.OPEN_PAREN, CalculatorCommand.CLOSE_PAREN, CalculatorCommand.CUBE
+        };
+        
+        for (CalculatorCommand command : scientificButtons) {
+            JButton button = createScientificButton(command);
+            panel.add(button);
+        }
+        
+        return panel;
+    }
+    
+    private void toggleScientificMode() {
+        sessionChanged = true;
+        scientificMode = !scientificMode;
+        if (scientificPanel == null) {
+            scientificPanel = createScientificPanel();
+            southPanel().add(scientificPanel, BorderLayout.CENTER);
+        }
+        scientificPanel.setVisible(scientificMode);
+        modeButton.setText(scientificMode ? "Basic Mode" : "Scientific Mode");
+        modeButton.setBackground(scientificMode ? CalculatorStyle.BASIC_MODE : CalculatorStyle.ACCENT);
+        pack();
+        setSize(850 + plotWidth(), (scientificMode ? 900 : 700) + plotHeight());
+    }
+    
+    private JPanel southPanel() {
+        if (southPanel == null) {
+            southPanel = new JPanel(new BorderLayout(10, 10));
+            southPanel.setBackground(CalculatorStyle.BACKGROUND);
+            centerPanel.add(southPanel, BorderLayout.SOUTH);
+        }
+        return southPanel;
+    }
+    
+    // The plot sits beside the scientific keys, or alone below the keypad
+    private int plotWidth() {
+        return plotVisible ? 440 : 0;
+    }
+    
+    private int plotHeight() {
+        return plotVisible ? (scientificMode ? 160 : 360) : 0;
+    }
+    
+    private void togglePlot() {
+        plotVisible = !plotVisible;
+        if (plotPanel == null) {
+            plotPanel = createPlotPanel();
+            southPanel().add(plotPanel, BorderLayout.EAST);
+        }
+        plotPanel.setVisible(plotVisible);
+        plotButton.setText(plotVisible ? "Hide Plot" : "Plot");
+        pack();
+        setSize((historyVisible || scientificMode ? 850 : 570) + plotWidth(), (scientificMode ? 900 : 700) + plotHeight());
+    }
+    
+    // An expression in x, e.g. tan(x) or 2ln(x)+rate, plotted in the current angle mode
+    private JPanel createPlotPanel() {
+        ExpressionCompiler compiler = new ExpressionCompiler(session.registers());
+        plot = new FunctionPlot();
+        plot.setAngleModeDegrees(engine.isAngleModeDegrees());
+        session.registers().addListener(plot::registerChanged);
+        JTextField function = new JTextField();
+        function.setFont(CalculatorStyle.HISTORY_FONT);
+        function.setBorder(CalculatorStyle.titled("f(x) =", 3));
+        function.addActionListener(e -> {
+            try {
+                plot.setExpression(compiler.compile(function.getText().trim()));
+            } catch (IllegalArgumentException ex) {
+                plot.showMessage(ex.getMessage());
+            }
+        });
+        JPanel numerics = new JPanel(new GridLayout(1, 2, 5, 0));
+        numerics.setBackground(CalculatorStyle.BACKGROUND);
+        numerics.add(createControlButton("Solve", CalculatorStyle.PLOT, e -> solveOnPlot(false, compiler, function.getText().trim())));
+        numerics.add(createControlButton("∫ dx", CalculatorStyle.PLOT, e -> solveOnPlot(true, compiler, function.getText().trim())));
+        JPanel entry = new JPanel(new BorderLayout(5, 0));
+        entry.setBackground(CalculatorStyle.BACKGROUND);
+        entry.add(function, BorderLayout.CENTER);
+        entry.add(numerics, BorderLayout.EAST);
+        plotStatus = new JLabel(" ");
+        plotStatus.setFont(CalculatorStyle.SMALL_PLAIN_FONT);
+        plotStatus.setForeground(CalculatorStyle.PLOT_LABEL);
+        JPanel panel = new JPanel(new BorderLayout(0, 5));
+        panel.setBackground(CalculatorStyle.BACKGROUND);
+        panel.setBorder(CalculatorStyle.titled("Plot (drag, wheel to zoom, double-click to fit)", 5));
+        panel.add(entry, BorderLayout.NORTH);
+        panel.add(plot, BorderLayout.CENTER);
+        panel.add(plotStatus, BorderLayout.SOUTH);
+        return panel;
+    }
+    
+    // Finds a root or the integral of f over an interval, by default the one in
+    // view, in the background. The result goes to the display and history as
+    // solve(f, a, b) or integrate(f, a, b) would when evaluated
+    private void solveOnPlot(boolean integral, ExpressionCompiler compiler, String function) {
+        String title = integral ? "Integrate" : "Solve";
+        double[] range = plot.visibleRange();
+        String interval = (String) JOptionPane.showInputDialog(this, "Interval a, b for f(x) = " + function + ":", title,
+            JOptionPane.PLAIN_MESSAGE, null, null, range == null ? "0, 1" : round(range[0]) + ", " + round(range[1]));
+        if (interval == null || interval.isBlank()) {
+            return;
+        }
+        String[] bounds = interval.split(",");
+        CompiledExpression f;
+        CompiledExpression a;
+        CompiledExpression b;
+        try {
+            if (bounds.length != 2) {
+                throw new IllegalArgumentException("Enter the interval as a, b");
+            }
+            f = compiler.compile(function);
+            a = compiler.compile(bounds[0].trim());
+            b = compiler.compile(bounds[1].trim());
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), title, JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        String text = (integral ? "integrate(" : "solve(") + function + ", " + bounds[0].trim() + ", " + bounds[1].trim() + ")";
+        runner.submit(integral ? "Integrating..." : "Solving...", cancelled -> {
+            DoubleUnaryOperator g = x -> {
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                return f.evaluate(engine, x);
+            };
+            try {
+                double from = a.evaluate(engine);
+                double to = b.evaluate(engine);
+                Numerics.Estimate estimate = integral ? Numerics.integrate(g, from, to) : Numerics.solve(g, from, to);
+                double result = estimate.value();
+                return () -> {
+                    sessionChanged = true;
+                    session.showResult(text, result);
+                    plotStatus.setText(String.format("%s: ± %.2g after %,d evaluations of f(x)", title, estimate.error,
+                        estimate.evaluations));
+                    refreshDisplay();
+                };
+            } catch (ArithmeticException ex) {
+                return () -> {
+                    sessionChanged = true;
+                    session.showError(ex.getMessage());
+                    plotStatus.setText(title + ": " + ex.getMessage());
+                    refreshDisplay();
+                };
+            } catch (CancellationException ex) {
+                return null;
+            }
+        });
+    }
+    
+    // Four significant digits, as typed into the interval dialog
+    private static String round(double x) {
+        return new BigDecimal(x).round(new MathContext(4)).stripTrailingZeros().toPlainString();
+    }
+    
+    private void toggleHistoryPanel() {
+        sessionChanged = true;
+        historyVisible = !historyVisible;
+        if (rightPanel == null) {
+            rightPanel = createHistoryPanel();
+            centerPanel.add(rightPanel, BorderLayout.EAST);
+        }
+        rightPanel.setVisible(historyVisible);
+        historyToggleButton.setText(historyVisible ? "Hide History" : "Show History");
+        historyToggleButton.setBackground(historyVisible ? CalculatorStyle.HIDE_HISTORY : CalculatorStyle.SHOW_HISTORY);
+        pack();
+        setSize((historyVisible ? 850 : 570) + plotWidth(), (scientificMode ? 900 : 700) + plotHeight());
+    }
+    
+    private JButton createButton(CalculatorCommand command) {
+        JButton button = new JButton(command.label());
+        button.setFont(CalculatorStyle.KEY_FONT);
+        button.addActionListener(e -> processCommand(command));
+        button.setFocusPainted(false);
+        button.setCursor(CalculatorStyle.HAND_CURSOR);
+        
+        // Modern color scheme with better contrast
+        switch (command) {
+            case CLEAR:
+                button.setBackground(CalculatorStyle.CLEAR_KEY);
+                button.setForeground(Color.WHITE);
+                break;
+            case EQUALS:
+                button.setBackground(CalculatorStyle.ACCENT);
+                button.setForeground(Color.WHITE);
+                break;
+            case ADD:
+            case SUBTRACT:
+            case MULTIPLY:
+            case DIVIDE:
+            case BACKSPACE:
+                button.setBackground(CalculatorStyle.OPERATOR_KEY);
+                button.setForeground(Color.WHITE);
+                break;
+            case SIGN_CHANGE:
+            case PERCENT:
+                button.setBackground(CalculatorStyle.UTILITY_KEY);
+                button.setForeground(CalculatorStyle.UTILITY_KEY_TEXT);
+                break;
+            case MEMORY_CLEAR:
+            case MEMORY_RECALL:
+            case MEMORY_STORE:
+            case MEMORY_ADD:
+            case MEMORY_SUBTRACT:
+                button.setBackground(CalculatorStyle.MEMORY_KEY);
+                button.setForeground(CalculatorStyle.MEMORY_KEY_TEXT);
+                break;
+            case MODULO:
+            case SQUARE_ROOT:
+            case SQUARE:
+            case POWER:
+                button.setBackground(CalculatorStyle.POWER_KEY);
+                button.setForeground(Color.WHITE);
+                break;
+            default:
+                button.setBackground(CalculatorStyle.DIGIT_KEY);
+                button.setForeground(CalculatorStyle.DIGIT_KEY_TEXT);
+                break;
+        }
+        
+        // Modern border with better depth, lowered while pressed
+        CalculatorStyle.showPresses(button, CalculatorStyle.KEY_BORDER, CalculatorStyle.KEY_PRESSED_BORDER);
+        
+        return button;
+    }
+    
+    private JButton createScientificButton(CalculatorCommand command) {
+        JButton button = new JButton(command.label());
+        button.setFont(CalculatorStyle.LABEL_FONT);
+        button.addActionListener(e -> processCommand(command));
+        button.setFocusPainted(false);
+        button.setCursor(CalculatorStyle.HAND_CURSOR);
+        button.setBackground(CalculatorStyle.SCIENTIFIC_KEY);
+        button.setForeground(CalculatorStyle.SCIENTIFIC_KEY_TEXT);
+        CalculatorStyle.showPresses(button, CalculatorStyle.SCIENTIFIC_KEY_BORDER, CalculatorStyle.SCIENTIFIC_KEY_PRESSED_BORDER);
+        
+        return button;
+    }
+    
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        CalculatorCommand command = CalculatorCommand.fromLabel(e.getActionCommand());
+        if (command != null) {
+            processCommand(command);
+        }
+    }
+    
+    // Single entry point for button clicks and keyboard input; the session does
+    // the work and the display and memory indicator then show its state. While a
+    // background job runs, commands wait behind it so they apply in order.
+    private void processCommand(CalculatorCommand command) {
+        if (runner.isIdle()) {
+            dispatch(command);
+        } else {
+            runner.execute(() -> dispatch(command));
+        }
+    }
+    
+    private void dispatch(CalculatorCommand command) {
+        CalculatorSession.Deferred deferred = session.defer(command);
+        if (deferred == null) {
+            session.process(command);
+            refreshDisplay();
+        } else {
+            sessionChanged = true;
+            runner.submit("Computing " + session.display() + "!", deferred::compute);
+        }
+    }
+    
+    // label is null once the job has finished or been cancelled
+    private void showBusy(String label) {
+        if (label == null) {
+            getRootPane().setCursor(null);
+            refresher.setBusy(null);
+        } else {
+            getRootPane().setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            refresher.setBusy(label + " (Esc to cancel)");
+        }
+    }
+    
+    private void showFailure(Exception e) {
+        JOptionPane.showMessageDialog(this, e.toString(), "Calculator", JOptionPane.ERROR_MESSAGE);
+    }
+    
+    // Coalesced: a burst of commands shows only its final state, once per frame
+    private void refreshDisplay() {
+        sessionChanged = true;
+        refresher.request();
+    }
+    
+    // Files live in ~/.jandel-calculator unless the property names another file, or
+    // is empty to keep that part of the session in memory only
+    private static Path configuredFile(String property, String name) {
+        String file = System.getProperty(property,
+            Path.of(System.getProperty("user.home"), ".jandel-calculator", name).toString());
+        return file.isEmpty() ? null : Path.of(file);
+    }
+    
+    // Reading the snapshot and indexing a long history log both take time that
+    // grows with the files, so they run on the persistence thread after the
+    // first frame; each is put in place on the EDT once ready, and entries
+    // calculated meanwhile are kept
+    private void restoreInBackground() {
+        persistence.execute(() -> {
+            if (sessionFile != null) {
+                try {
+                    SessionSnapshot snapshot = SessionSnapshot.read(sessionFile, session);
+                    if (snapshot != null) {
+                        SwingUtilities.invokeLater(() -> restoreSnapshot(snapshot));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // Unreadable or from another version: start afresh; the next save replaces it
+                }
+            }
+            if (historyFile != null) {
+                try {
+                    openedLog = HistoryLog.open(historyFile, HistoryLog.DEFAULT_FLUSH_MILLIS);
+                    // Behind any job, so an export never sees the history change
+                    SwingUtilities.invokeLater(() -> runner.execute(this::attachHistory));
+                } catch (IOException | RuntimeException e) {
+                    // Unreadable or locked log: the history stays in memory
+                }
+            }
+        });
+    }
+    
+    // Skipped if a new session has already been started, which then wins
+    private void restoreSnapshot(SessionSnapshot snapshot) {
+        if (sessionChanged) {
+            return;
+        }
+        snapshot.restoreSession();
+        if (scientificMode != snapshot.scientificMode) {
+            toggleScientificMode();
+        }
+        if (engine.isAngleModeDegrees() != snapshot.angleModeDegrees) {
+            toggleAngleMode();
+        }
+        if (historyVisible != snapshot.historyVisible) {
+            toggleHistoryPanel();
+        }
+        showPrecisionMode();
+        refresher.request();
+        sessionChanged = false;
+    }
+    
+    private void attachHistory() {
+        HistoryLog log = openedLog;
+        if (log != null) {
+            openedLog = null;
+            calculationHistory.attach(log);
+        }
+    }
+    
+    // Captures the session on the EDT and writes it on the persistence thread.
+    // Waits while a background job is about to change the session
+    private void saveSnapshot() {
+        if (!sessionChanged || sessionFile == null || !runner.isIdle()) {
+            return;
+        }
+        ByteBuffer snapshot;
+        try {
+            snapshot = SessionSnapshot.capture(session, scientificMode, engine.isAngleModeDegrees(), historyVisible);
+        } catch (IOException e) {
+            return;
+        }
+        sessionChanged = false;
+        persistence.execute(() -> {
+            try {
+                SessionSnapshot.write(sessionFile, snapshot);
+            } catch (IOException e) {
+                // The previous snapshot stays; the next change is saved again
+            }
+        });
+    }
+    
+    // Lets a pending restore and the last save finish before the window goes
+    private void finishPersistence() {
+        persistence.shutdown();
+        try {
+            persistence.awaitTermination(PERSISTENCE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void closeHistory() {
+        try {
+            calculationHistory.close();
+        } catch (IOException e) {
+            // Exiting anyway; at most the last flush interval of entries is lost
+        }
+    }
+    
+    private void addToHistory(String entry) {
+        // Keeps only the last capacity() entries; the selection is just a recall
+        // gesture, so drop it rather than let it slide onto another row on eviction
+        if (historyList != null) {
+            historyList.clearSelection();
+        }
+        calculationHistory.add(entry);
+    }
+    
+    // Angle mode toggle
+    private void toggleAngleMode() {
+        sessionChanged = true;
+        boolean degrees = !engine.isAngleModeDegrees();
+        engine.setAngleModeDegrees(degrees);
+        angleModeIndicator.setText(degrees ? "Deg" : "Rad");
+        angleModeIndicator.setBackground(degrees ? CalculatorStyle.DEGREES_BACKGROUND : CalculatorStyle.RADIANS_BACKGROUND);
+        if (plot != null) {
+            plot.setAngleModeDegrees(degrees);
+        }
+    }
+    
+    // Precision mode toggle
+    private void togglePrecisionMode() {
+        sessionChanged = true;
+        session.setPrecisionMode(!session.isPrecisionMode());
+        showPrecisionMode();
+    }
+    
+    private void showPrecisionMode() {
+        boolean precisionMode = session.isPrecisionMode();
+        precisionButton.setText(precisionMode ? "Exact: On" : "Exact: Off");
+        precisionButton.setBackground(precisionMode ? CalculatorStyle.EXACT_ON : CalculatorStyle.EXACT_OFF);
+    }
+    
+    private void showMacroMenu() {
+        JPopupMenu menu = new JPopupMenu();
+        JMenuItem record = new JMenuItem(macroRecorder == null ? "Start Recording" : "Stop Recording");
+        record.addActionListener(e -> toggleMacroRecording());
+        menu.add(record);
+        JMenuItem replay = new JMenuItem("Replay...");
+        replay.setEnabled(macro != null && macroRecorder == null);
+        replay.addActionListener(e -> replayMacro());
+        menu.add(replay);
+        menu.addSeparator();
+        JMenuItem save = new JMenuItem("Save...");
+        save.setEnabled(macro != null);
+        save.addActionListener(e -> saveMacro());
+        menu.add(save);
+        JMenuItem open = new JMenuItem("Open...");
+        open.setEnabled(macroRecorder == null);
+        open.addActionListener(e -> openMacro());
+        menu.add(open);
+        menu.show(macroButton, 0, macroButton.getHeight());
+    }
+    
+    private void storeRegister() {
+        String name = JOptionPane.showInputDialog(this,
+            "Store the display in register (letters, e.g. a or rate):", "Store Register", JOptionPane.PLAIN_MESSAGE);
+        if (name == null || name.isBlank()) {
+            return;
+        }
+        runner.execute(() -> {
+            try {
+                session.store(name.trim());
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(this, ex.getMessage(), "Store Register", JOptionPane.ERROR_MESSAGE);
+            }
+            refreshDisplay();
+        });
+    }
+    
+    // The registers as "name = value" cells. Registers only ever gain slots, so a
+    // store adds a cell or repaints the one it changed; nothing is rebuilt
+    private static final class RegisterListModel extends AbstractListModel<String> implements IntConsumer {
+        private final Registers registers;
+        private final NumberFormatter formatter = new NumberFormatter();
+        private int shown;
+        
+        RegisterListModel(Registers registers) {
+            this.registers = registers;
+            this.shown = registers.size();
+            registers.addListener(this);
+        }
+        
+        @Override
+        public void accept(int slot) {
+            if (slot >= shown) {
+                int first = shown;
+                shown = registers.size();
+                fireIntervalAdded(this, first, shown - 1);
+            } else {
+                fireContentsChanged(this, slot, slot);
+            }
+        }
+        
+        @Override
+        public int getSize() {
+            return shown;
+        }
+        
+        @Override
+        public String getElementAt(int index) {
+            return registers.name(index) + " = " + formatter.formatNumber(registers.value(index));
+        }
+    }
+    
+    // Buttons, typed keys and shortcuts all reach the session, which records them
+    private void toggleMacroRecording() {
+        runner.execute(() -> {
+            if (macroRecorder == null) {
+                macroRecorder = new Macro.Recorder();
+                session.setRecorder(macroRecorder);
+                macroButton.setText("Macro (Rec)");
+                macroButton.setBackground(CalculatorStyle.MACRO_RECORDING);
+            } else {
+                session.setRecorder(null);
+                macro = macroRecorder.toMacro();
+                macroRecorder = null;
+                macroButton.setText("Macro");
+                macroButton.setBackground(CalculatorStyle.MACRO);
+            }
+        });
+    }
+    
+    // Replays straight on the session; the display is refreshed once at the end
+    private void replayMacro() {
+        List<String> recorded = macro.recordedInputs();
+        String answer = JOptionPane.showInputDialog(this,
+            "Inputs in place of the " + recorded.size() + " recorded numbers, in order\n(blank keeps the recorded ones):",
+            recorded.size() <= 10 ? String.join(" ", recorded) : "");
+        if (answer == null) {
+            return;
+        }
+        String[] inputs = answer.isBlank() ? new String[0] : answer.trim().split("[\\s,]+");
+        Macro replayed = macro;
+        runner.execute(() -> {
+            try {
+                replayed.replay(session, inputs);
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(this, ex.getMessage(), "Replay Macro", JOptionPane.ERROR_MESSAGE);
+            }
+            refreshDisplay();
+        });
+    }
+    
+    private void saveMacro() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Save Macro");
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Calculator Macros (*.macro)", "macro"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path path = fileChooser.getSelectedFile().toPath();
+        if (!path.getFileName().toString().endsWith(".macro")) {
+            path = path.resolveSibling(path.getFileName() + ".macro");
+        }
+        try {
+            macro.save(path);
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Error saving macro:\n" + ex.getMessage(), "Save Macro", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
+    private void openMacro() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Open Macro");
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Calculator Macros (*.macro)", "macro"));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            macro = Macro.load(fileChooser.getSelectedFile().toPath());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Error opening macro:\n" + ex.getMessage(), "Open Macro", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
+    // Export history to file
+    private void exportHistory() {
+        if (calculationHistory.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No history to export.", "Export History", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Export Calculation History");
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Text Files (*.txt)", "txt"));
+        
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMdd_HHmmss");
+        String defaultFileName = "calculator_history_" + dateFormat.format(new Date()) + ".txt";
+        fileChooser.setSelectedFile(new File(defaultFileName));
+        
+        int userSelection = fileChooser.showSaveDialog(this);
+        
+        if (userSelection == JFileChooser.APPROVE_OPTION) {
+            File fileToSave = fileChooser.getSelectedFile();
+            String filePath = fileToSave.getAbsolutePath();
+            if (!filePath.toLowerCase().endsWith(".txt")) {
+                filePath += ".txt";
+                fileToSave = new File(filePath);
+            }
+            
+            // Written in the background, as the disk may be slow; commands queue
+            // behind the export, so the history does not change while it is read
+            Path target = fileToSave.toPath();
+            String exportedPath = filePath;
+            int totalEntries = calculationHistory.totalEntries();
+            runner.submit("Exporting history...", cancelled -> {
+                try {
+                    writeExport(target, totalEntries, cancelled);
+                    return () -> JOptionPane.showMessageDialog(this,
+                        "History exported successfully to:\n" + exportedPath,
+                        "Export Success",
+                        JOptionPane.INFORMATION_MESSAGE);
+                } catch (IOException ex) {
+                    if (cancelled.getAsBoolean()) {
+                        Files.deleteIfExists(target);
+                        return null;
+                    }
+                    return () -> JOptionPane.showMessageDialog(this,
+                        "Error exporting history:\n" + ex.getMessage(),
+                        "Export Error",
+                        JOptionPane.ERROR_MESSAGE);
+                }
+            });
+        }
+    }
+    
+    // Entries stream straight from the history log; nothing is collected in memory first
+    private void writeExport(Path target, int totalEntries, BooleanSupplier cancelled) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new CancellableOutputStream(Files.newOutputStream(target), cancelled), 64 * 1024)) {
+            writeLine(out, "========================================");
+            writeLine(out, "Calculator History Export");
+            writeLine(out, "Generated: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
+            writeLine(out, "Total Entries: " + totalEntries);
+            writeLine(out, "========================================");
+            writeLine(out, "");
+            
+            calculationHistory.writeTo(out);
+            
+            writeLine(out, "");
+            writeLine(out, "========================================");
+            writeLine(out, "End of History");
+            writeLine(out, "========================================");
+            out.flush();
+        }
+    }
+    
+    // Fails the next write once cancelled, so an export stops within one buffer
+    private static final class CancellableOutputStream extends FilterOutputStream {
+        private final BooleanSupplier cancelled;
+        
+        CancellableOutputStream(OutputStream out, BooleanSupplier cancelled) {
+            super(out);
+            this.cancelled = cancelled;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (cancelled.getAsBoolean()) {
+                throw new InterruptedIOException("Export cancelled");
+            }
+            out.write(b, off, len);
+        }
+    }
+    
+    private static void writeLine(OutputStream out, String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        out.write(System.lineSeparator().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    // Keyboard listener methods
+    @Override
+    public void keyTyped(KeyEvent e) {
+        CalculatorCommand command = CalculatorCommand.fromKeyChar(e.getKeyChar());
+        if (command != null) {
+            processCommand(command);
+        }
+    }
+    
+    @Override
+    public void keyPressed(KeyEvent e) {
+        int keyCode = e.getKeyCode();
+        boolean ctrlPressed = e.isControlDown();
+        
+        if (keyCode == KeyEvent.VK_ENTER || keyCode == KeyEvent.VK_EQUALS) {
+            processCommand(CalculatorCommand.EQUALS);
+        } else if (keyCode == KeyEvent.VK_BACK_SPACE || keyCode == KeyEvent.VK_DELETE) {
+            processCommand(CalculatorCommand.BACKSPACE);
+        } else if (keyCode == KeyEvent.VK_ESCAPE) {
+            // Cancels a running job, keeping the display as it was; clears otherwise
+            if (!runner.cancel()) {
+                processCommand(CalculatorCommand.CLEAR);
+            }
+        } else if (ctrlPressed && keyCode == KeyEvent.VK_Z) {
+            processCommand(CalculatorCommand.UNDO);
+        } else if (ctrlPressed && keyCode == KeyEvent.VK_Y) {
+            processCommand(CalculatorCommand.REDO);
+        }
+    }
+    
+    @Override
+    public void keyReleased(KeyEvent e) {
+        // Not used, but required by KeyListener interface
+    }
+    
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--bulk")) {
+            System.exit(ColumnEvaluator.run(Arrays.copyOfRange(args, 1, args.length), System.err));
+        }
+        if (args.length > 0 && args[0].equals("--headless")) {
+            System.exit(HeadlessCalculator.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            System.exit(EvaluationServer.run(Arrays.copyOfRange(args, 1, args.length), System.err));
+        }
+        if (args.length > 0 && args[0].equals("--load")) {
+            System.exit(LoadGenerator.run(Arrays.copyOfRange(args, 1, args.length), System.err));
+        }
+        SwingUtilities.invokeLater(() -> {
+            // Where the system look and feel is the cross-platform one (Metal on most
+            // Linux desktops) installing it again would only repeat its setup
+            String lookAndFeel = UIManager.getSystemLookAndFeelClassName();
+            if (!lookAndFeel.equals(UIManager.getCrossPlatformLookAndFeelClassName())) {
+                try {
+                    UIManager.setLookAndFeel(lookAndFeel);
+                } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | UnsupportedLookAndFeelException e) {
+                    // Use default look and feel if system L&F fails
+                    e.printStackTrace();
+                }
+            }
+            Calculator calculator = new Calculator();
+            if (Boolean.getBoolean("calculator.exitOnFirstFrame")) {
+                calculator.firstPaintProbe = () -> {
+                    System.out.println(FIRST_FRAME);
+                    System.out.flush();
+                    System.exit(0);
+                };
+            }
+            calculator.setVisible(true);
+        });
+    }
+}
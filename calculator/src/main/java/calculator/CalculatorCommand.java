@@ -0,0 +1,120 @@
+package calculator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Every command the calculator understands, resolved once from a button label
+// or typed key instead of being re-matched on each event. The expression token
+// is the text a command contributes while the display holds an expression.
+public enum CalculatorCommand {
+    DIGIT_0("0", "0"),
+    DIGIT_1("1", "1"),
+    DIGIT_2("2", "2"),
+    DIGIT_3("3", "3"),
+    DIGIT_4("4", "4"),
+    DIGIT_5("5", "5"),
+    DIGIT_6("6", "6"),
+    DIGIT_7("7", "7"),
+    DIGIT_8("8", "8"),
+    DIGIT_9("9", "9"),
+    DECIMAL(".", "."),
+    ADD("+", "+"),
+    SUBTRACT("−", "−"),
+    MULTIPLY("×", "×"),
+    DIVIDE("÷", "÷"),
+    EQUALS("=", null),
+    CLEAR("C", null),
+    SIGN_CHANGE("±", null),
+    PERCENT("%", null),
+    BACKSPACE("Back", null),
+    MEMORY_CLEAR("MC", null),
+    MEMORY_RECALL("MR", null),
+    MEMORY_STORE("MS", null),
+    MEMORY_ADD("M+", null),
+    MEMORY_SUBTRACT("M-", null),
+    SQUARE_ROOT("√", "√"),
+    SQUARE("x^2", "^2"),
+    POWER("x^y", "^"),
+    MODULO("Mod", " mod "),
+    NTH_ROOT("n√x", "√"),
+    SIN("sin", "sin(", CalculatorEngine.Function.SIN),
+    COS("cos", "cos(", CalculatorEngine.Function.COS),
+    TAN("tan", "tan(", CalculatorEngine.Function.TAN),
+    ASIN("asin", "asin(", CalculatorEngine.Function.ASIN),
+    ACOS("acos", "acos(", CalculatorEngine.Function.ACOS),
+    ATAN("atan", "atan(", CalculatorEngine.Function.ATAN),
+    LOG("log", "log(", CalculatorEngine.Function.LOG),
+    LN("ln", "ln(", CalculatorEngine.Function.LN),
+    RECIPROCAL("1/x", "1/(", CalculatorEngine.Function.RECIPROCAL),
+    POW10("10^x", "10^(", CalculatorEngine.Function.POW10),
+    EXP("e^x", "e^(", CalculatorEngine.Function.EXP),
+    FACTORIAL("x!", "!", CalculatorEngine.Function.FACTORIAL),
+    CUBE("x^3", "^3", CalculatorEngine.Function.CUBE),
+    PI("pi", "π", CalculatorEngine.Function.PI),
+    E("e", "e", CalculatorEngine.Function.E),
+    RAND("Rand", "rand", CalculatorEngine.Function.RAND),
+    OPEN_PAREN("(", "("),
+    CLOSE_PAREN(")", ")"),
+    UNDO("Undo", null),
+    REDO("Redo", null);
+    
+    private static final Map<String, CalculatorCommand> BY_LABEL = new HashMap<>();
+    private static final CalculatorCommand[] BY_KEY_CHAR = new CalculatorCommand[128];
+    
+    static {
+        for (CalculatorCommand command : values()) {
+            BY_LABEL.put(command.label, command);
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            BY_KEY_CHAR[c] = BY_LABEL.get(String.valueOf(c));
+        }
+        BY_KEY_CHAR['.'] = DECIMAL;
+        BY_KEY_CHAR['+'] = ADD;
+        BY_KEY_CHAR['-'] = SUBTRACT;
+        BY_KEY_CHAR['*'] = MULTIPLY;
+        BY_KEY_CHAR['/'] = DIVIDE;
+        BY_KEY_CHAR['%'] = MODULO;
+        BY_KEY_CHAR['^'] = POWER;
+        BY_KEY_CHAR['!'] = FACTORIAL;
+        BY_KEY_CHAR['('] = OPEN_PAREN;
+        BY_KEY_CHAR[')'] = CLOSE_PAREN;
+    }
+    
+    private final String label;
+    private final String expressionToken;
+    private final CalculatorEngine.Function function;
+    
+    CalculatorCommand(String label, String expressionToken) {
+        this(label, expressionToken, null);
+    }
+    
+    CalculatorCommand(String label, String expressionToken, CalculatorEngine.Function function) {
+        this.label = label;
+        this.expressionToken = expressionToken;
+        this.function = function;
+    }
+    
+    // Button text, also the action command of the button
+    public String label() {
+        return label;
+    }
+    
+    // Text appended to an expression being typed, or null if the command has none
+    public String expressionToken() {
+        return expressionToken;
+    }
+    
+    // Engine function applied to the display value, or null for other commands
+    public CalculatorEngine.Function function() {
+        return function;
+    }
+    
+    public static CalculatorCommand fromLabel(String label) {
+        return BY_LABEL.get(label);
+    }
+    
+    // Command bound to a typed character, or null if the key is not bound
+    public static CalculatorCommand fromKeyChar(char keyChar) {
+        return keyChar < BY_KEY_CHAR.length ? BY_KEY_CHAR[keyChar] : null;
+    }
+}
@@ -0,0 +1,358 @@
+package calculator;
+
+import java.math.BigInteger;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+// UI-free arithmetic core. Every operator and scientific function of the
+// Calculator frame lives here and works on primitive doubles, so the same
+// code can be driven from Swing, from a batch job or from a service.
+public class CalculatorEngine {
+    public static final String ERROR = "Error";
+    public static final String DIVISION_BY_ZERO = "Error: Division by zero";
+    public static final String DOMAIN_ERROR = "Error: Domain error";
+    public static final String INVALID_INPUT = "Error: Invalid input";
+    public static final String INVALID_OPERATION = "Error: Invalid operation";
+    public static final String INVALID_RESULT = "Error: Invalid result";
+    public static final String ZEROTH_ROOT = "Error: Cannot take 0th root";
+    public static final String NEGATIVE_EVEN_ROOT = "Error: Negative root of even degree";
+    public static final String TOO_MANY_EVALUATIONS = "Error: Too many evaluations";
+    
+    // Two-operand operations, keyed by the operator text the frame shows
+    public enum BinaryOp {
+        ADD("+"),
+        SUBTRACT("−"),
+        MULTIPLY("×"),
+        DIVIDE("÷"),
+        MODULO("%"),
+        POWER("x^y"),
+        NTH_ROOT("n√x");
+        
+        private final String symbol;
+        
+        BinaryOp(String symbol) {
+            this.symbol = symbol;
+        }
+        
+        public String symbol() {
+            return symbol;
+        }
+        
+        public static BinaryOp fromSymbol(String symbol) {
+            for (BinaryOp op : values()) {
+                if (op.symbol.equals(symbol)) {
+                    return op;
+                }
+            }
+            return null;
+        }
+    }
+    
+    // Single-operand functions, keyed by their button label
+    public enum Function {
+        SQRT("√"),
+        SQUARE("x^2"),
+        CUBE("x^3"),
+        PERCENT("%"),
+        RECIPROCAL("1/x"),
+        SIN("sin"),
+        COS("cos"),
+        TAN("tan"),
+        ASIN("asin"),
+        ACOS("acos"),
+        ATAN("atan"),
+        LOG("log"),
+        LN("ln"),
+        POW10("10^x"),
+        EXP("e^x"),
+        FACTORIAL("x!"),
+        PI("pi"),
+        E("e"),
+        RAND("Rand");
+        
+        private final String symbol;
+        
+        Function(String symbol) {
+            this.symbol = symbol;
+        }
+        
+        public String symbol() {
+            return symbol;
+        }
+        
+        public static Function fromSymbol(String symbol) {
+            for (Function f : values()) {
+                if (f.symbol.equals(symbol)) {
+                    return f;
+                }
+            }
+            return null;
+        }
+    }
+    
+    private volatile boolean angleModeDegrees = true; // true = degrees, false = radians
+    private volatile FunctionCache cache; // null = every call computes
+    private volatile AtomicLong evaluationsLeft; // for solve and integrate; null = no limit
+    
+    public boolean isAngleModeDegrees() {
+        return angleModeDegrees;
+    }
+    
+    public void setAngleModeDegrees(boolean degrees) {
+        angleModeDegrees = degrees;
+    }
+    
+    public FunctionCache getCache() {
+        return cache;
+    }
+    
+    // Memoizes apply() for the expensive functions; null turns caching off.
+    // One cache may be shared by several engines and threads
+    public void setCache(FunctionCache cache) {
+        this.cache = cache;
+    }
+    
+    // Caps the evaluations of f that solve and integrate may make from now on,
+    // counted together across nesting and threads; 0 or less lifts the cap
+    public void setEvaluationBudget(long evaluations) {
+        evaluationsLeft = evaluations > 0 ? new AtomicLong(evaluations) : null;
+    }
+    
+    // Counts one evaluation against the budget, failing once it is spent
+    void spendEvaluation() {
+        AtomicLong left = evaluationsLeft;
+        if (left != null && left.decrementAndGet() < 0) {
+            throw new ArithmeticException(TOO_MANY_EVALUATIONS);
+        }
+    }
+    
+    // Applies a binary operation, throwing ArithmeticException whose message is
+    // the error text the calculator displays
+    public double apply(BinaryOp op, double a, double b) {
+        String error = checkBinary(op, a, b);
+        if (error != null) {
+            throw new ArithmeticException(error);
+        }
+        FunctionCache memo = cache;
+        double result;
+        if (memo != null && FunctionCache.caches(op)) {
+            int tag = FunctionCache.tag(op);
+            result = memo.get(tag, a, b);
+            if (Double.isNaN(result)) {
+                result = compute(op, a, b);
+                if (!Double.isInfinite(result)) {
+                    memo.put(tag, a, b, result);
+                }
+            }
+        } else {
+            result = compute(op, a, b);
+        }
+        if ((op == BinaryOp.POWER || op == BinaryOp.NTH_ROOT)
+                && (Double.isNaN(result) || Double.isInfinite(result))) {
+            throw new ArithmeticException(INVALID_OPERATION);
+        }
+        return result;
+    }
+    
+    // Applies a single-operand function with the same error contract as apply(BinaryOp, ...)
+    public double apply(Function f, double x) {
+        boolean degrees = angleModeDegrees;
+        String error = checkFunction(f, x, degrees);
+        if (error != null) {
+            throw new ArithmeticException(error);
+        }
+        FunctionCache memo = cache;
+        double result;
+        if (memo != null && FunctionCache.caches(f)) {
+            int tag = FunctionCache.tag(f, degrees);
+            result = memo.get(tag, x, 0);
+            if (Double.isNaN(result)) {
+                result = compute(f, x, degrees);
+                if (!Double.isInfinite(result)) {
+                    memo.put(tag, x, 0, result);
+                }
+            }
+        } else {
+            result = compute(f, x, degrees);
+        }
+        if (Double.isNaN(result) || Double.isInfinite(result)) {
+            throw new ArithmeticException(INVALID_RESULT);
+        }
+        return result;
+    }
+    
+    // Exact x! for a non-negative integer x up to Factorials.MAX_EXACT
+    public BigInteger factorial(double x) {
+        return factorial(x, () -> false);
+    }
+    
+    // As above; throws CancellationException once cancelled returns true
+    public BigInteger factorial(double x, BooleanSupplier cancelled) {
+        String error = checkFunction(Function.FACTORIAL, x, false);
+        if (error != null) {
+            throw new ArithmeticException(error);
+        }
+        if (x > Factorials.MAX_EXACT) {
+            throw new ArithmeticException(INVALID_RESULT);
+        }
+        return Factorials.exact((int) x, cancelled);
+    }
+    
+    // Batch form: out[i] = a[i] op b[i]. Errors yield NaN instead of throwing,
+    // and nothing is allocated per element.
+    public void applyAll(BinaryOp op, double[] a, double[] b, double[] out) {
+        applyAll(op, a, b, out, 0, out.length);
+    }
+    
+    public void applyAll(BinaryOp op, double[] a, double[] b, double[] out, int from, int to) {
+        switch (op) {
+            case ADD:
+                for (int i = from; i < to; i++) {
+                    out[i] = a[i] + b[i];
+                }
+                break;
+            case SUBTRACT:
+                for (int i = from; i < to; i++) {
+                    out[i] = a[i] - b[i];
+                }
+                break;
+            case MULTIPLY:
+                for (int i = from; i < to; i++) {
+                    out[i] = a[i] * b[i];
+                }
+                break;
+            default:
+                for (int i = from; i < to; i++) {
+                    out[i] = checkBinary(op, a[i], b[i]) == null ? compute(op, a[i], b[i]) : Double.NaN;
+                }
+                break;
+        }
+    }
+    
+    // Batch form: out[i] = f(in[i]) under the current angle mode, NaN on error
+    public void applyAll(Function f, double[] in, double[] out) {
+        applyAll(f, in, out, 0, out.length);
+    }
+    
+    public void applyAll(Function f, double[] in, double[] out, int from, int to) {
+        boolean degrees = angleModeDegrees;
+        for (int i = from; i < to; i++) {
+            double x = in[i];
+            out[i] = checkFunction(f, x, degrees) == null ? compute(f, x, degrees) : Double.NaN;
+        }
+    }
+    
+    // Returns the error message for an invalid operand pair, or null
+    static String checkBinary(BinaryOp op, double a, double b) {
+        switch (op) {
+            case DIVIDE:
+            case MODULO:
+                return b == 0 ? DIVISION_BY_ZERO : null;
+            case NTH_ROOT:
+                if (a == 0) {
+                    return ZEROTH_ROOT;
+                }
+                if (b < 0 && a % 2 == 0) {
+                    return NEGATIVE_EVEN_ROOT;
+                }
+                if (b == 0 && a < 0) {
+                    return INVALID_OPERATION;
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+    
+    // Returns the error message for an operand outside the function's domain, or null
+    static String checkFunction(Function f, double x, boolean degrees) {
+        switch (f) {
+            case TAN:
+                // Only degree-mode poles are exact; no double is an odd multiple of π/2
+                return degrees && DegreeTrig.isPole(x) ? DOMAIN_ERROR : null;
+            case SQRT:
+                return x < 0 ? INVALID_INPUT : null;
+            case ASIN:
+            case ACOS:
+                return x < -1 || x > 1 ? DOMAIN_ERROR : null;
+            case LOG:
+            case LN:
+                return x <= 0 ? DOMAIN_ERROR : null;
+            case RECIPROCAL:
+                return x == 0 ? DIVISION_BY_ZERO : null;
+            case FACTORIAL:
+                return x < 0 || x != (long) x ? INVALID_INPUT : null;
+            default:
+                return null;
+        }
+    }
+    
+    static double compute(BinaryOp op, double a, double b) {
+        switch (op) {
+            case ADD:
+                return a + b;
+            case SUBTRACT:
+                return a - b;
+            case MULTIPLY:
+                return a * b;
+            case DIVIDE:
+                return a / b;
+            case MODULO:
+                return a % b;
+            case POWER:
+                return Math.pow(a, b);
+            case NTH_ROOT:
+                // a is the degree, b the radicand; odd roots of negatives stay real
+                double root = Math.pow(Math.abs(b), 1.0 / a);
+                return b < 0 && a % 2 != 0 ? -root : root;
+            default:
+                throw new IllegalArgumentException("Unknown operator: " + op);
+        }
+    }
+    
+    static double compute(Function f, double x, boolean degrees) {
+        switch (f) {
+            case SQRT:
+                return Math.sqrt(x);
+            case SQUARE:
+                return x * x;
+            case CUBE:
+                return x * x * x;
+            case PERCENT:
+                return x / 100;
+            case RECIPROCAL:
+                return 1 / x;
+            case SIN:
+                return degrees ? DegreeTrig.sin(x) : Math.sin(x);
+            case COS:
+                return degrees ? DegreeTrig.cos(x) : Math.cos(x);
+            case TAN:
+                return degrees ? DegreeTrig.tan(x) : Math.tan(x);
+            case ASIN:
+                return degrees ? Math.toDegrees(Math.asin(x)) : Math.asin(x);
+            case ACOS:
+                return degrees ? Math.toDegrees(Math.acos(x)) : Math.acos(x);
+            case ATAN:
+                return degrees ? Math.toDegrees(Math.atan(x)) : Math.atan(x);
+            case LOG:
+                return Math.log10(x);
+            case LN:
+                return Math.log(x);
+            case POW10:
+                return Math.pow(10, x);
+            case EXP:
+                return Math.exp(x);
+            case FACTORIAL:
+                return Factorials.toDouble((long) x);
+            case PI:
+                return Math.PI;
+            case E:
+                return Math.E;
+            case RAND:
+                return ThreadLocalRandom.current().nextDouble();
+            default:
+                throw new IllegalArgumentException("Unknown function: " + f);
+        }
+    }
+}
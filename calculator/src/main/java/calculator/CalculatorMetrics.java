@@ -0,0 +1,213 @@
+package calculator;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+// Usage metrics: a latency histogram per command and for expression lines,
+// a counter per error message shown, time spent formatting numbers, and
+// gauges such as history size and undo depth that are read only when the
+// metrics are. Recording allocates nothing: histograms are fixed arrays of
+// atomic buckets and error counters are LongAdders created once per
+// message. Published over JMX as calculator:type=Metrics (attributes such
+// as Command.EQUALS.Count, Errors.Division_by_zero or Gauge.undo.depth,
+// plus dump() and reset()), and printed by headless mode with --metrics.
+public final class CalculatorMetrics implements DynamicMBean {
+    public static final String OBJECT_NAME = "calculator:type=Metrics";
+    
+    private static final CalculatorCommand[] COMMANDS = CalculatorCommand.values();
+    
+    private final LatencyHistogram[] commands = new LatencyHistogram[COMMANDS.length];
+    private final LatencyHistogram expressions = new LatencyHistogram();
+    private final LatencyHistogram formatting = new LatencyHistogram();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    
+    public CalculatorMetrics() {
+        for (int i = 0; i < commands.length; i++) {
+            commands[i] = new LatencyHistogram();
+        }
+    }
+    
+    public void command(CalculatorCommand command, long nanos) {
+        commands[command.ordinal()].record(nanos);
+    }
+    
+    public void expression(long nanos) {
+        expressions.record(nanos);
+    }
+    
+    public void formatting(long nanos) {
+        formatting.record(nanos);
+    }
+    
+    // message is the display text, e.g. CalculatorEngine.DIVISION_BY_ZERO
+    public void error(String message) {
+        LongAdder counter = errors.get(message);
+        if (counter == null) {
+            counter = errors.computeIfAbsent(message, m -> new LongAdder());
+        }
+        counter.increment();
+    }
+    
+    // Read on every dump or JMX query, from whichever thread asks
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+    
+    public long commandCount(CalculatorCommand command) {
+        return commands[command.ordinal()].count();
+    }
+    
+    public long errorCount(String message) {
+        LongAdder counter = errors.get(message);
+        return counter == null ? 0 : counter.sum();
+    }
+    
+    public void reset() {
+        for (LatencyHistogram histogram : commands) {
+            histogram.reset();
+        }
+        expressions.reset();
+        formatting.reset();
+        errors.clear();
+    }
+    
+    // Registers under OBJECT_NAME on the platform MBean server; false if
+    // another registry already holds the name or JMX is unavailable
+    public boolean register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                return false;
+            }
+            server.registerMBean(this, name);
+            return true;
+        } catch (JMException | SecurityException e) {
+            return false;
+        }
+    }
+    
+    // Every metric by attribute name, commands and histograms that saw no events left out
+    public Map<String, Object> snapshot() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (CalculatorCommand command : COMMANDS) {
+            putHistogram(values, "Command." + command.name(), commands[command.ordinal()]);
+        }
+        putHistogram(values, "Expression", expressions);
+        putHistogram(values, "Formatting", formatting);
+        errors.forEach((message, counter) -> values.put("Errors." + attributeName(message), counter.sum()));
+        gauges.forEach((name, value) -> values.put("Gauge." + name, value.getAsLong()));
+        return values;
+    }
+    
+    private static void putHistogram(Map<String, Object> values, String prefix, LatencyHistogram histogram) {
+        long count = histogram.count();
+        if (count == 0) {
+            return;
+        }
+        values.put(prefix + ".Count", count);
+        values.put(prefix + ".P50Micros", histogram.percentile(0.5) / 1e3);
+        values.put(prefix + ".P99Micros", histogram.percentile(0.99) / 1e3);
+        values.put(prefix + ".MaxMicros", histogram.max() / 1e3);
+    }
+    
+    // "Error: Division by zero" -> "Division_by_zero"
+    private static String attributeName(String message) {
+        String text = message.startsWith("Error: ") ? message.substring(7) : message;
+        return text.replaceAll("[^A-Za-z0-9]+", "_");
+    }
+    
+    // One "name value" line per metric
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        snapshot().forEach((name, value) -> {
+            sb.append(name).append(' ');
+            if (value instanceof Double) {
+                sb.append(String.format(Locale.ROOT, "%.3f", (Double) value));
+            } else {
+                sb.append(value);
+            }
+            sb.append(System.lineSeparator());
+        });
+        return sb.toString();
+    }
+    
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Object value = snapshot().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+    
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Object> values = snapshot();
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            Object value = values.get(attribute);
+            if (value != null) {
+                list.add(new Attribute(attribute, value));
+            }
+        }
+        return list;
+    }
+    
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+    
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+    
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        switch (actionName) {
+            case "dump":
+                return dump();
+            case "reset":
+                reset();
+                return null;
+            default:
+                throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+    }
+    
+    // Attributes are whatever the snapshot holds now, so the list grows as commands are used
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        Map<String, Object> values = snapshot();
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[values.size()];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            attributes[i++] = new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+                entry.getKey(), true, false, false);
+        }
+        MBeanOperationInfo[] operations = {
+            new MBeanOperationInfo("dump", "All metrics as text", null, String.class.getName(), MBeanOperationInfo.INFO),
+            new MBeanOperationInfo("reset", "Zero every histogram and counter", null, "void", MBeanOperationInfo.ACTION)
+        };
+        return new MBeanInfo(getClass().getName(), "Calculator usage metrics", attributes, null, operations, null);
+    }
+}
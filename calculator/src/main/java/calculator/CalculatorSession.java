@@ -0,0 +1,944 @@
+package calculator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.MathContext;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+// The calculator's key-by-key state machine without any Swing: the display
+// text, the pending operand and operator, memory and the named registers of
+// its compiler, expression entry, the precision mode and the undo journal.
+// Calculator renders it; headless mode drives it from scripted key sequences.
+// Results are reported to a history consumer as "expression = result" lines. Not thread-safe.
+public final class CalculatorSession {
+    private final CalculatorEngine engine;
+    private final ExpressionCompiler compiler;
+    private final DecimalArithmetic decimal;
+    private final Consumer<String> history;
+    private final Registers registers; // the compiler's; null without named registers
+    private int ansSlot = -1;
+    private final NumberFormatter numberFormatter = new NumberFormatter();
+    private UndoJournal undoJournal = new UndoJournal();
+    private CalculatorMetrics metrics;
+    private Macro.Recorder recorder;
+    private String display = "0";
+    private double firstNumber = 0;
+    private String operator = "";
+    private boolean isOperatorClicked = false;
+    private double memory = 0;
+    // Exact decimal text of firstNumber and memory for the precision mode; "" when only the double is known
+    private String firstExact = "";
+    private String memoryExact = "";
+    private boolean precisionMode = false;
+    private boolean expressionMode = false; // display holds an infix expression being typed
+    
+    public CalculatorSession(CalculatorEngine engine, ExpressionCompiler compiler, DecimalArithmetic decimal, Consumer<String> history) {
+        this.engine = engine;
+        this.compiler = compiler;
+        this.decimal = decimal;
+        this.history = history;
+        this.registers = compiler.registers();
+    }
+    
+    // Decimal arithmetic at the precision of -Dcalculator.precision, 34 digits by default
+    public static DecimalArithmetic configuredDecimal() {
+        return new DecimalArithmetic(new MathContext(Math.max(1, Math.min(DecimalArithmetic.MAX_PRECISION,
+                Integer.getInteger("calculator.precision", DecimalArithmetic.DEFAULT_CONTEXT.getPrecision())))));
+    }
+    
+    public String display() {
+        return display;
+    }
+    
+    public double memory() {
+        return memory;
+    }
+    
+    public boolean isExpressionMode() {
+        return expressionMode;
+    }
+    
+    public int undoDepth() {
+        return undoJournal.undoDepth();
+    }
+    
+    public Registers registers() {
+        return registers;
+    }
+    
+    // Times every command and formatting call and counts the errors shown; null turns it off
+    public void setMetrics(CalculatorMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    // Every command processed from now on is also appended to recorder; null stops recording
+    public void setRecorder(Macro.Recorder recorder) {
+        this.recorder = recorder;
+    }
+    
+    public boolean isPrecisionMode() {
+        return precisionMode;
+    }
+    
+    public void setPrecisionMode(boolean precisionMode) {
+        this.precisionMode = precisionMode;
+    }
+    
+    // Puts a result recalled from the history into the display, or into the expression being typed
+    public void recall(String result) {
+        if (expressionMode) {
+            appendToExpression(result.startsWith("-") ? "(" + result + ")" : result);
+        } else {
+            display = result;
+        }
+    }
+    
+    // Stores the displayed number in a named register, as MS does in memory; an
+    // expression being typed is evaluated first. IllegalArgumentException for a
+    // name Registers does not allow
+    public void store(String name) {
+        if (registers == null) {
+            throw new IllegalStateException("The session's compiler has no registers");
+        }
+        String problem = registers.slot(name) < 0 ? Registers.checkName(name) : null;
+        if (problem != null) {
+            throw new IllegalArgumentException(problem);
+        }
+        if (expressionMode) {
+            evaluateExpression();
+        }
+        double value;
+        try {
+            value = Double.parseDouble(display);
+        } catch (NumberFormatException ex) {
+            if (!isErrorState()) {
+                display = "Error";
+            }
+            return;
+        }
+        registers.set(name, value);
+        isOperatorClicked = true;
+        history.accept(name.toLowerCase(Locale.ROOT) + " = " + formatNumber(value));
+    }
+    
+    // Puts a register's name into the expression being typed, where it is
+    // resolved when the expression is compiled, or else its value into the display
+    public void recallRegister(String name) {
+        int slot = registers == null ? -1 : registers.slot(name);
+        if (slot < 0) {
+            throw new IllegalArgumentException("No register named " + name);
+        }
+        if (expressionMode) {
+            // After a letter the name would run into the word before it
+            boolean afterLetter = Character.isLetter(display.charAt(display.length() - 1));
+            appendToExpression(afterLetter ? " " + registers.name(slot) : registers.name(slot));
+        } else {
+            display = formatNumber(registers.value(slot));
+            isOperatorClicked = true;
+        }
+    }
+    
+    // Writes the input state, the precision mode, the undo journal and the registers for a SessionSnapshot
+    void writeState(DataOutput out) throws IOException {
+        SessionSnapshot.writeText(out, display);
+        out.writeDouble(firstNumber);
+        SessionSnapshot.writeText(out, firstExact);
+        SessionSnapshot.writeText(out, operator);
+        out.writeBoolean(isOperatorClicked);
+        out.writeDouble(memory);
+        SessionSnapshot.writeText(out, memoryExact);
+        out.writeBoolean(precisionMode);
+        out.writeBoolean(expressionMode);
+        undoJournal.writeTo(out);
+        (registers != null ? registers : new Registers()).writeTo(out);
+    }
+    
+    // Parses what writeState wrote without touching the session, so it can run on
+    // any thread; the returned step puts the state in place on the session's thread
+    Runnable readState(DataInput in) throws IOException {
+        String display = SessionSnapshot.readText(in);
+        double firstNumber = in.readDouble();
+        String firstExact = SessionSnapshot.readText(in);
+        String operator = SessionSnapshot.readText(in);
+        boolean operatorClicked = in.readBoolean();
+        double memory = in.readDouble();
+        String memoryExact = SessionSnapshot.readText(in);
+        boolean precisionMode = in.readBoolean();
+        boolean expressionMode = in.readBoolean();
+        if (!operator.isEmpty() && CalculatorEngine.BinaryOp.fromSymbol(operator) == null) {
+            throw new IOException("Unknown operator in session state: " + operator);
+        }
+        UndoJournal journal = UndoJournal.readFrom(in, UndoJournal.DEFAULT_LIMIT);
+        Registers saved = Registers.readFrom(in);
+        return () -> {
+            this.display = display;
+            this.firstNumber = firstNumber;
+            this.firstExact = firstExact;
+            this.operator = operator;
+            this.isOperatorClicked = operatorClicked;
+            this.memory = memory;
+            this.memoryExact = memoryExact;
+            this.precisionMode = precisionMode;
+            this.expressionMode = expressionMode;
+            this.undoJournal = journal;
+            if (registers != null) {
+                registers.restore(saved);
+            }
+        };
+    }
+    
+    // Single entry point for button clicks, keyboard input and scripted key
+    // sequences. Commands are resolved once, so dispatch is a plain enum switch.
+    public void process(CalculatorCommand command) {
+        if (recorder != null) {
+            recorder.add(command);
+        }
+        CalculatorMetrics m = metrics;
+        if (m == null) {
+            dispatch(command);
+            return;
+        }
+        String before = display;
+        long start = System.nanoTime();
+        dispatch(command);
+        m.command(command, System.nanoTime() - start);
+        if (display != before && isErrorState()) {
+            m.error(display);
+        }
+    }
+    
+    // Same as processing the digit and decimal-point keys of digits one by one,
+    // but the display is built once instead of once per key
+    public void type(CharSequence digits) {
+        for (int i = 0; i < digits.length(); i++) {
+            char c = digits.charAt(i);
+            if (c != '.' && (c < '0' || c > '9')) {
+                throw new IllegalArgumentException("Not a digit or decimal point: " + c);
+            }
+        }
+        if (expressionMode || metrics != null || recorder != null) {
+            for (int i = 0; i < digits.length(); i++) {
+                process(CalculatorCommand.fromKeyChar(digits.charAt(i)));
+            }
+            return;
+        }
+        StringBuilder text = new StringBuilder(display.length() + digits.length());
+        boolean fresh = isOperatorClicked || isErrorState();
+        if (!fresh) {
+            text.append(display);
+        }
+        for (int i = 0; i < digits.length(); i++) {
+            char c = digits.charAt(i);
+            if (c == '.') {
+                // As handleDecimal
+                if (fresh) {
+                    text.setLength(0);
+                    text.append("0.");
+                } else if (text.indexOf(".") < 0) {
+                    text.append('.');
+                }
+            } else {
+                // As handleNumber
+                if (fresh || (text.length() == 1 && text.charAt(0) == '0')) {
+                    text.setLength(0);
+                }
+                text.append(c);
+            }
+            fresh = false;
+        }
+        if (!fresh) {
+            display = text.toString();
+            isOperatorClicked = false;
+        }
+    }
+    
+    // A command whose computation is split from its effect on the session
+    public interface Deferred {
+        // Runs on any thread without touching the session and returns the step
+        // that applies the result; that step runs on the session's thread
+        Runnable compute(BooleanSupplier cancelled);
+    }
+    
+    // The heavy part of command, for callers that must not block on it, or null
+    // when the command is light and process() should be used. Running the returned
+    // step has the same effect as process(command). Only x! past the double range
+    // qualifies: up to 1,000,000! it can take a second or more.
+    public Deferred defer(CalculatorCommand command) {
+        if (command != CalculatorCommand.FACTORIAL || expressionMode || isErrorState()) {
+            return null;
+        }
+        double value;
+        try {
+            value = Double.parseDouble(display);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+        if (!(value > Factorials.MAX_DOUBLE)) {
+            return null;
+        }
+        return cancelled -> {
+            long start = System.nanoTime();
+            String text;
+            boolean error = false;
+            try {
+                // Its own formatter: the session's belongs to the session's thread
+                text = new NumberFormatter().formatBig(engine.factorial(value, cancelled));
+            } catch (ArithmeticException ex) {
+                text = ex.getMessage();
+                error = true;
+            }
+            long elapsed = System.nanoTime() - start;
+            String result = text;
+            boolean failed = error;
+            return () -> {
+                if (recorder != null) {
+                    recorder.add(command);
+                }
+                saveState();
+                if (failed) {
+                    display = result;
+                } else {
+                    showBigFactorial(value, result);
+                }
+                if (metrics != null) {
+                    metrics.command(command, elapsed);
+                    if (failed) {
+                        metrics.error(result);
+                    }
+                }
+            };
+        };
+    }
+    
+    private void dispatch(CalculatorCommand command) {
+        if (expressionMode) {
+            handleExpressionInput(command);
+            return;
+        }
+        
+        switch (command) {
+            case DIGIT_0:
+            case DIGIT_1:
+            case DIGIT_2:
+            case DIGIT_3:
+            case DIGIT_4:
+            case DIGIT_5:
+            case DIGIT_6:
+            case DIGIT_7:
+            case DIGIT_8:
+            case DIGIT_9:
+                handleNumber(command.label());
+                break;
+            case DECIMAL:
+                handleDecimal();
+                break;
+            case ADD:
+            case SUBTRACT:
+            case MULTIPLY:
+            case DIVIDE:
+                handleOperator(command.label());
+                break;
+            case EQUALS:
+                handleEquals();
+                break;
+            case CLEAR:
+                handleClear();
+                break;
+            case SIGN_CHANGE:
+                handleSignChange();
+                break;
+            case PERCENT:
+                saveState();
+                handlePercentage();
+                break;
+            case BACKSPACE:
+                handleBackspace();
+                break;
+            case MEMORY_CLEAR:
+                handleMemoryClear();
+                break;
+            case MEMORY_RECALL:
+                handleMemoryRecall();
+                break;
+            case MEMORY_STORE:
+                handleMemoryStore();
+                break;
+            case MEMORY_ADD:
+                handleMemoryAdd();
+                break;
+            case MEMORY_SUBTRACT:
+                handleMemorySubtract();
+                break;
+            case SQUARE_ROOT:
+                handleSquareRoot();
+                break;
+            case SQUARE:
+                handleSquare();
+                break;
+            case POWER:
+                handlePower();
+                break;
+            case MODULO:
+                handleModulo();
+                break;
+            case NTH_ROOT:
+                handleNthRoot();
+                break;
+            case OPEN_PAREN:
+                startExpression();
+                break;
+            case CLOSE_PAREN:
+                // Only meaningful inside an expression
+                break;
+            case UNDO:
+                undo();
+                break;
+            case REDO:
+                redo();
+                break;
+            default:
+                handleScientificFunction(command.function());
+                break;
+        }
+    }
+    
+    // Switches the display to expression entry, carrying over any pending
+    // operand and operator so "2 × (" continues as the text "2×("
+    private void startExpression() {
+        saveState();
+        String prefix = "";
+        if (!isErrorState()) {
+            if (!operator.isEmpty()) {
+                prefix = formatNumber(firstNumber) + expressionSymbol(operator);
+                if (!isOperatorClicked) {
+                    prefix += display;
+                }
+            } else if (!isOperatorClicked && !display.equals("0")) {
+                prefix = display;
+            }
+        }
+        operator = "";
+        isOperatorClicked = false;
+        expressionMode = true;
+        display = prefix + "(";
+    }
+    
+    private String expressionSymbol(String op) {
+        switch (op) {
+            case "x^y":
+                return "^";
+            case "%":
+                return " mod ";
+            case "n√x":
+                return "√";
+            default:
+                return op;
+        }
+    }
+    
+    private void handleExpressionInput(CalculatorCommand command) {
+        switch (command) {
+            case EQUALS:
+                evaluateExpression();
+                break;
+            case CLEAR:
+                expressionMode = false;
+                handleClear();
+                break;
+            case BACKSPACE:
+                String text = display;
+                if (text.length() > 1) {
+                    display = text.substring(0, text.length() - 1);
+                } else {
+                    expressionMode = false;
+                    display = "0";
+                }
+                break;
+            case MEMORY_RECALL:
+                appendToExpression(memory < 0 ? "(" + formatNumber(memory) + ")" : formatNumber(memory));
+                break;
+            case UNDO:
+                undo();
+                break;
+            case REDO:
+                redo();
+                break;
+            default:
+                // ±, %, MC, MS, M+ and M- have no token and no meaning inside an expression
+                if (command.expressionToken() != null) {
+                    appendToExpression(command.expressionToken());
+                }
+                break;
+        }
+    }
+    
+    private void appendToExpression(String text) {
+        display = display + text;
+    }
+    
+    private void evaluateExpression() {
+        String text = display;
+        saveState();
+        expressionMode = false;
+        operator = "";
+        isOperatorClicked = true;
+        try {
+            double result = compiler.compile(text).evaluate(engine);
+            history.accept(text + " = " + formatNumber(result));
+            displayResult(result);
+        } catch (ArithmeticException ex) {
+            display = ex.getMessage();
+        } catch (IllegalArgumentException ex) {
+            display = ExpressionCompiler.SYNTAX_ERROR;
+        }
+    }
+    
+    // A result computed away from the keypad, as by the plot panel's solve and
+    // integrate, entered in the display and history as if text had been evaluated
+    public void showResult(String text, double result) {
+        saveState();
+        expressionMode = false;
+        operator = "";
+        isOperatorClicked = true;
+        history.accept(text + " = " + formatNumber(result));
+        displayResult(result);
+    }
+    
+    public void showError(String message) {
+        saveState();
+        expressionMode = false;
+        operator = "";
+        isOperatorClicked = true;
+        display = message;
+    }
+    
+    private void handleNumber(String number) {
+        if (isOperatorClicked) {
+            display = number;
+            isOperatorClicked = false;
+        } else {
+            String currentText = display;
+            if (currentText.equals("0") || isErrorState()) {
+                display = number;
+            } else {
+                display = currentText + number;
+            }
+        }
+    }
+    
+    private void handleDecimal() {
+        String currentText = display;
+        if (isOperatorClicked || isErrorState()) {
+            display = "0.";
+            isOperatorClicked = false;
+        } else if (!currentText.contains(".")) {
+            display = currentText + ".";
+        }
+    }
+    
+    private void handleOperator(String op) {
+        if (!operator.isEmpty() && !isOperatorClicked) {
+            handleEquals();
+        }
+        
+        if (!isErrorState()) {
+            try {
+                firstNumber = Double.parseDouble(display);
+                firstExact = display;
+                operator = op;
+                isOperatorClicked = true;
+            } catch (NumberFormatException ex) {
+                display = "Error";
+            }
+        }
+    }
+    
+    private void handleEquals() {
+        if (operator.isEmpty() || isErrorState()) {
+            return;
+        }
+        
+        saveState();
+        try {
+            CalculatorEngine.BinaryOp op = CalculatorEngine.BinaryOp.fromSymbol(operator);
+            if (precisionMode && DecimalArithmetic.supports(op)) {
+                String first = exact(firstExact, firstNumber);
+                String second = decimal.normalize(display);
+                String result = decimal.apply(op, first, second);
+                history.accept(first + " " + operator + " " + second + " = " + result);
+                setAns(Double.parseDouble(result));
+                display = result;
+                operator = "";
+                isOperatorClicked = true;
+                return;
+            }
+            double secondNumber = Double.parseDouble(display);
+            String expression = formatNumber(firstNumber) + " " + operator + " " + formatNumber(secondNumber);
+            double result = engine.apply(op, firstNumber, secondNumber);
+            
+            history.accept(expression + " = " + formatNumber(result));
+            displayResult(result);
+            operator = "";
+            isOperatorClicked = true;
+        } catch (ArithmeticException ex) {
+            display = ex.getMessage();
+            operator = "";
+            isOperatorClicked = true;
+        } catch (NumberFormatException ex) {
+            display = "Error";
+            operator = "";
+            isOperatorClicked = true;
+        }
+    }
+    
+    private void handleClear() {
+        saveState();
+        display = "0";
+        firstNumber = 0;
+        firstExact = "";
+        operator = "";
+        isOperatorClicked = false;
+    }
+    
+    private void handleSignChange() {
+        String currentText = display;
+        if (!currentText.equals("0") && !isErrorState()) {
+            if (currentText.startsWith("-")) {
+                display = currentText.substring(1);
+            } else {
+                display = "-" + currentText;
+            }
+        }
+    }
+    
+    private void handlePercentage() {
+        try {
+            if (precisionMode) {
+                display = decimal.percent(display);
+                isOperatorClicked = true;
+                return;
+            }
+            double value = engine.apply(CalculatorEngine.Function.PERCENT, Double.parseDouble(display));
+            displayResult(value);
+            isOperatorClicked = true;
+        } catch (ArithmeticException ex) {
+            display = ex.getMessage();
+        } catch (NumberFormatException ex) {
+            display = "Error";
+        }
+    }
+    
+    private void handleBackspace() {
+        String currentText = display;
+        if (!currentText.equals("0") && !isErrorState()) {
+            if (currentText.length() > 1) {
+                display = currentText.substring(0, currentText.length() - 1);
+            } else {
+                display = "0";
+            }
+        }
+    }
+    
+    // Memory functions
+    private void handleMemoryClear() {
+        memory = 0;
+        memoryExact = "";
+    }
+    
+    private void handleMemoryRecall() {
+        display = precisionMode ? exact(memoryExact, memory) : formatNumber(memory);
+        isOperatorClicked = true;
+    }
+    
+    private void handleMemoryStore() {
+        try {
+            memory = Double.parseDouble(display);
+            memoryExact = display;
+        } catch (NumberFormatException ex) {
+            display = "Error";
+        }
+    }
+    
+    private void handleMemoryAdd() {
+        updateMemory(CalculatorEngine.BinaryOp.ADD, "M+ ");
+    }
+    
+    private void handleMemorySubtract() {
+        updateMemory(CalculatorEngine.BinaryOp.SUBTRACT, "M- ");
+    }
+    
+    // M+ and M-: exact decimal sums in precision mode, so long sessions do not drift
+    private void updateMemory(CalculatorEngine.BinaryOp op, String label) {
+        try {
+            double value = Double.parseDouble(display);
+            if (precisionMode) {
+                String operand = decimal.normalize(display);
+                memoryExact = decimal.apply(op, exact(memoryExact, memory), operand);
+                memory = Double.parseDouble(memoryExact);
+                history.accept(label + operand + " -> Memory = " + memoryExact);
+            } else {
+                memory = op == CalculatorEngine.BinaryOp.ADD ? memory + value : memory - value;
+                memoryExact = "";
+                history.accept(label + formatNumber(value) + " -> Memory = " + formatNumber(memory));
+            }
+        } catch (NumberFormatException ex) {
+            display = "Error";
+        }
+    }
+    
+    // The exact text of a value, falling back to the shortest decimal of its double
+    private String exact(String exactText, double value) {
+        if (exactText.isEmpty()) {
+            return decimal.normalize(numberFormatter.appendShortest(new StringBuilder(), value).toString());
+        }
+        return decimal.normalize(exactText);
+    }
+    // Basic scientific functions
+    private void handleSquareRoot() {
+        saveState();
+        try {
+            double value = Double.parseDouble(display);
+            double result = engine.apply(CalculatorEngine.Function.SQRT, value);
+            history.accept("√(" + formatNumber(value) + ") = " + formatNumber(result));
+            displayResult(result);
+            isOperatorClicked = true;
+        } catch (ArithmeticException ex) {
+            display = ex.getMessage();
+        } catch (NumberFormatException ex) {
+            display = "Error";
+        }
+    }
+    
+    private void handleSquare() {
+        saveState();
+        try {
+            double value = Double.parseDouble(display);
+            double result = engine.apply(CalculatorEngine.Function.SQUARE, value);
+            history.accept(formatNumber(value) + "^2 = " + formatNumber(result));
+            displayResult(result);
+            isOperatorClicked = true;
+        } catch (ArithmeticException ex) {
+            display = ex.getMessage();
+        } catch (NumberFormatException ex) {
+            display = "Error";
+        }
+    }
+    
+    private void handlePower() {
+        if (operator.isEmpty()) {
+            saveState();
+            try {
+                firstNumber = Double.parseDouble(display);
+                operator = "x^y";
+                isOperatorClicked = true;
+            } catch (NumberFormatException ex) {
+                display = "Error";
+            }
+        } else if (operator.equals("x^y")) {
+            try {
+                double secondNumber = Double.parseDouble(display);
+                double result = engine.apply(CalculatorEngine.BinaryOp.POWER, firstNumber, secondNumber);
+                history.accept(formatNumber(firstNumber) + " ^ " + formatNumber(secondNumber) + " = " + formatNumber(result));
+                displayResult(result);
+                operator = "";
+                isOperatorClicked = true;
+            } catch (ArithmeticException ex) {
+                display = ex.getMessage();
+                operator = "";
+                isOperatorClicked = true;
+            } catch (NumberFormatException ex) {
+                display = "Error";
+                operator = "";
+                isOperatorClicked = true;
+            }
+        }
+    }
+    
+    private void handleScientificFunction(CalculatorEngine.Function function) {
+        if (function == null || isErrorState()) {
+            return;
+        }
+        
+        saveState();
+        try {
+            double value = Double.parseDouble(display);
+            if (function == CalculatorEngine.Function.FACTORIAL && value > Factorials.MAX_DOUBLE) {
+                // Too large for a double: show the leading digits of the exact value
+                showBigFactorial(value, numberFormatter.formatBig(engine.factorial(value)));
+                return;
+            }
+            double result = engine.apply(function, value);
+            history.accept(describe(function, value) + " = " + formatNumber(result));
+            displayResult(result);
+            isOperatorClicked = true;
+        } catch (ArithmeticException ex) {
+            display = ex.getMessage();
+        } catch (NumberFormatException ex) {
+            display = "Error";
+        }
+    }
+    
+    // Shows a factorial too large for a double, given as its display text
+    private void showBigFactorial(double value, String text) {
+        history.accept(describe(CalculatorEngine.Function.FACTORIAL, value) + " = " + text);
+        display = text;
+        isOperatorClicked = true;
+    }
+    
+    // History text for a single-operand function applied to value
+    private String describe(CalculatorEngine.Function function, double value) {
+        switch (function) {
+            case SIN:
+            case COS:
+            case TAN:
+                return function.symbol() + "(" + formatNumber(value) + (engine.isAngleModeDegrees() ? "°" : " rad") + ")";
+            case POW10:
+                return "10^(" + formatNumber(value) + ")";
+            case EXP:
+                return "e^(" + formatNumber(value) + ")";
+            case RECIPROCAL:
+                return "1/(" + formatNumber(value) + ")";
+            case FACTORIAL:
+                return formatNumber(value) + "!";
+            case SQUARE:
+                return formatNumber(value) + "^2";
+            case CUBE:
+                return formatNumber(value) + "^3";
+            case SQRT:
+                return "√(" + formatNumber(value) + ")";
+            case PERCENT:
+                return formatNumber(value) + "%";
+            case PI:
+            case E:
+                return function.symbol();
+            case RAND:
+                return "Random";
+            default:
+                return function.symbol() + "(" + formatNumber(value) + ")";
+        }
+    }
+    
+    private void displayResult(double result) {
+        setAns(result);
+        // Ten significant digits avoid scientific notation for small numbers.
+        // Only the displayed result is timed; history text counts toward its command
+        if (metrics == null) {
+            display = numberFormatter.formatResult(result);
+            return;
+        }
+        long start = System.nanoTime();
+        display = numberFormatter.formatResult(result);
+        metrics.formatting(System.nanoTime() - start);
+    }
+    
+    // The ans register follows the last result shown
+    private void setAns(double result) {
+        if (registers == null) {
+            return;
+        }
+        if (ansSlot < 0) {
+            ansSlot = registers.set(Registers.ANS, result);
+        } else {
+            registers.set(ansSlot, result);
+        }
+    }
+    
+    private String formatNumber(double num) {
+        return numberFormatter.formatNumber(num);
+    }
+    
+    private boolean isErrorState() {
+        String text = display;
+        return text.equals("Error") || text.startsWith("Error:");
+    }
+    
+    // Modulo operation handler
+    private void handleModulo() {
+        saveState();
+        if (!operator.isEmpty() && !isOperatorClicked) {
+            handleEquals();
+        }
+        
+        if (!isErrorState()) {
+            try {
+                firstNumber = Double.parseDouble(display);
+                firstExact = display;
+                operator = "%";
+                isOperatorClicked = true;
+            } catch (NumberFormatException ex) {
+                display = "Error";
+            }
+        }
+    }
+    
+    // Nth root handler
+    private void handleNthRoot() {
+        saveState();
+        if (operator.isEmpty()) {
+            try {
+                double n = Double.parseDouble(display);
+                if (n == 0) {
+                    display = CalculatorEngine.ZEROTH_ROOT;
+                    return;
+                }
+                firstNumber = n;
+                operator = "n√x";
+                isOperatorClicked = true;
+                display = "Enter x:";
+            } catch (NumberFormatException ex) {
+                display = "Error";
+            }
+        } else if (operator.equals("n√x")) {
+            try {
+                double x = Double.parseDouble(display);
+                double result = engine.apply(CalculatorEngine.BinaryOp.NTH_ROOT, firstNumber, x);
+                history.accept(firstNumber + "√(" + formatNumber(x) + ") = " + formatNumber(result));
+                displayResult(result);
+                operator = "";
+                isOperatorClicked = true;
+            } catch (ArithmeticException ex) {
+                display = ex.getMessage();
+                operator = "";
+                isOperatorClicked = true;
+            } catch (NumberFormatException ex) {
+                display = "Error";
+                operator = "";
+                isOperatorClicked = true;
+            }
+        }
+    }
+    
+    // Save state for undo/redo
+    private void saveState() {
+        undoJournal.save(display, firstNumber, firstExact, operator, isOperatorClicked, memory, memoryExact, expressionMode);
+    }
+    
+    // Restore the state the undo journal points at
+    private void restoreState() {
+        display = undoJournal.display();
+        firstNumber = undoJournal.firstNumber();
+        firstExact = undoJournal.firstExact();
+        operator = undoJournal.operator();
+        isOperatorClicked = undoJournal.operatorClicked();
+        memory = undoJournal.memory();
+        memoryExact = undoJournal.memoryExact();
+        expressionMode = undoJournal.expressionMode();
+    }
+    
+    // Undo operation
+    private void undo() {
+        if (undoJournal.undo(display, firstNumber, firstExact, operator, isOperatorClicked, memory, memoryExact, expressionMode)) {
+            restoreState();
+        }
+    }
+    
+    // Redo operation
+    private void redo() {
+        if (undoJournal.redo(display, firstNumber, firstExact, operator, isOperatorClicked, memory, memoryExact, expressionMode)) {
+            restoreState();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package calculator;
+
+import java.awt.Color;
+import java.awt.Cursor;
+import java.awt.Font;
+import javax.swing.AbstractButton;
+import javax.swing.BorderFactory;
+import javax.swing.ButtonModel;
+import javax.swing.border.Border;
+
+// Fonts, colours, borders and cursors of the calculator window. Each is built
+// once and shared by every component that uses it; all of them are immutable,
+// so sharing is safe and saves allocating some sixty of each at startup.
+final class CalculatorStyle {
+    static final Font DISPLAY_FONT = new Font("Segoe UI", Font.BOLD, 42);
+    static final Font KEY_FONT = new Font("Segoe UI", Font.BOLD, 20);
+    static final Font TITLE_FONT = new Font("Segoe UI", Font.BOLD, 14);
+    static final Font LABEL_FONT = new Font("Segoe UI", Font.BOLD, 13);
+    static final Font SMALL_FONT = new Font("Segoe UI", Font.BOLD, 11);
+    static final Font SMALL_PLAIN_FONT = new Font("Segoe UI", Font.PLAIN, 11);
+    static final Font HISTORY_FONT = new Font("Consolas", Font.PLAIN, 12);
+    
+    static final Color BACKGROUND = new Color(240, 240, 245);
+    static final Color KEYPAD_BACKGROUND = new Color(35, 35, 40);
+    static final Color DISPLAY_BACKGROUND = new Color(45, 45, 50);
+    static final Color DISPLAY_EDGE = new Color(60, 60, 65);
+    static final Color ACCENT = new Color(100, 150, 255);
+    static final Color TITLE = new Color(60, 60, 70);
+    static final Color PANEL_EDGE = new Color(200, 200, 210);
+    static final Color MEMORY_BACKGROUND = new Color(230, 240, 255);
+    static final Color MEMORY_EDGE = new Color(180, 200, 255);
+    static final Color ANGLE = new Color(150, 100, 255);
+    static final Color DEGREES_BACKGROUND = new Color(240, 230, 255);
+    static final Color RADIANS_BACKGROUND = new Color(230, 240, 255);
+    static final Color ANGLE_EDGE = new Color(200, 180, 255);
+    static final Color EXACT_ON = new Color(60, 170, 120);
+    static final Color EXACT_OFF = new Color(140, 140, 160);
+    static final Color UNDO = new Color(120, 180, 220);
+    static final Color EXPORT = new Color(100, 200, 150);
+    static final Color MACRO = new Color(120, 130, 200);
+    static final Color MACRO_RECORDING = new Color(220, 60, 60);
+    static final Color BASIC_MODE = new Color(255, 150, 100);
+    static final Color SHOW_HISTORY = new Color(150, 200, 100);
+    static final Color HIDE_HISTORY = new Color(200, 100, 100);
+    static final Color CLEAR_HISTORY = new Color(255, 180, 180);
+    static final Color CLEAR_HISTORY_TEXT = new Color(150, 50, 50);
+    static final Color HISTORY_BACKGROUND = new Color(250, 250, 255);
+    static final Color PLOT = new Color(90, 170, 200);
+    static final Color PLOT_BACKGROUND = Color.WHITE;
+    static final Color PLOT_GRID = new Color(230, 230, 238);
+    static final Color PLOT_AXIS = new Color(150, 150, 165);
+    static final Color PLOT_LABEL = new Color(110, 110, 125);
+    static final Color PLOT_CURVE = new Color(40, 100, 220);
+    
+    // Keypad colours, by key group
+    static final Color CLEAR_KEY = new Color(255, 80, 80);
+    static final Color OPERATOR_KEY = new Color(255, 150, 50);
+    static final Color UTILITY_KEY = new Color(200, 200, 210);
+    static final Color UTILITY_KEY_TEXT = new Color(50, 50, 60);
+    static final Color MEMORY_KEY = new Color(255, 200, 120);
+    static final Color MEMORY_KEY_TEXT = new Color(120, 80, 40);
+    static final Color POWER_KEY = new Color(180, 140, 255);
+    static final Color DIGIT_KEY = new Color(245, 245, 250);
+    static final Color DIGIT_KEY_TEXT = new Color(30, 30, 35);
+    static final Color SCIENTIFIC_KEY = new Color(150, 180, 255);
+    static final Color SCIENTIFIC_KEY_TEXT = new Color(30, 30, 50);
+    
+    static final Border DISPLAY_BORDER = BorderFactory.createCompoundBorder(
+        BorderFactory.createLineBorder(DISPLAY_EDGE, 2),
+        BorderFactory.createEmptyBorder(15, 20, 15, 20));
+    static final Border MEMORY_BORDER = BorderFactory.createCompoundBorder(
+        BorderFactory.createLineBorder(MEMORY_EDGE, 1),
+        BorderFactory.createEmptyBorder(5, 12, 5, 12));
+    static final Border ANGLE_BORDER = BorderFactory.createCompoundBorder(
+        BorderFactory.createLineBorder(ANGLE_EDGE, 1),
+        BorderFactory.createEmptyBorder(5, 12, 5, 12));
+    static final Border TOGGLE_BORDER = raised(8, 16);
+    static final Border CONTROL_BORDER = raised(6, 12);
+    static final Border CLEAR_HISTORY_BORDER = raised(5, 12);
+    static final Border KEY_BORDER = raised(10, 0);
+    static final Border KEY_PRESSED_BORDER = lowered(10, 0);
+    static final Border SCIENTIFIC_KEY_BORDER = raised(8, 0);
+    static final Border SCIENTIFIC_KEY_PRESSED_BORDER = lowered(8, 0);
+    
+    static final Cursor HAND_CURSOR = Cursor.getPredefinedCursor(Cursor.HAND_CURSOR);
+    
+    private CalculatorStyle() {
+    }
+    
+    // Swaps the button's border while it is held down. The model also changes on
+    // rollover and arming; the border is only set when the pressed state flips,
+    // so those events cost no allocation, layout or repaint
+    static void showPresses(AbstractButton button, Border raised, Border pressed) {
+        button.setBorder(raised);
+        ButtonModel model = button.getModel();
+        model.addChangeListener(e -> {
+            Border border = model.isPressed() ? pressed : raised;
+            if (button.getBorder() != border) {
+                button.setBorder(border);
+            }
+        });
+    }
+    
+    // A titled panel frame: "Calculation History", "Scientific Functions"
+    static Border titled(String title, int padding) {
+        return BorderFactory.createCompoundBorder(
+            BorderFactory.createTitledBorder(BorderFactory.createLineBorder(PANEL_EDGE, 1), title, 0, 0, TITLE_FONT, TITLE),
+            BorderFactory.createEmptyBorder(padding, padding, padding, padding));
+    }
+    
+    private static Border raised(int vertical, int horizontal) {
+        return BorderFactory.createCompoundBorder(BorderFactory.createRaisedBevelBorder(),
+            BorderFactory.createEmptyBorder(vertical, horizontal, vertical, horizontal));
+    }
+    
+    private static Border lowered(int vertical, int horizontal) {
+        return BorderFactory.createCompoundBorder(BorderFactory.createLoweredBevelBorder(),
+            BorderFactory.createEmptyBorder(vertical, horizontal, vertical, horizontal));
+    }
+}
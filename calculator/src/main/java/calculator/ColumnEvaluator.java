@@ -0,0 +1,479 @@
+package calculator;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// Bulk mode: applies a single-operand function to a whole column of numbers
+// read from a CSV file or a raw little-endian double file, writing the
+// results in either format. The column streams through in chunks; each chunk
+// is split across a fork-join pool while the previous chunk is written and
+// the next one read, so only three chunks are ever in memory. The angle mode
+// is taken from the engine when a run starts. Errors inside a chunk follow
+// the batch contract of CalculatorEngine.applyAll: the value becomes NaN.
+public final class ColumnEvaluator {
+    static final int CHUNK = 1 << 20; // values per chunk
+    private static final int SPLIT = 1 << 14; // smallest fork-join task
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    
+    private final CalculatorEngine engine;
+    private final ForkJoinPool pool;
+    
+    public ColumnEvaluator(CalculatorEngine engine) {
+        this(engine, ForkJoinPool.commonPool());
+    }
+    
+    public ColumnEvaluator(CalculatorEngine engine, ForkJoinPool pool) {
+        this.engine = engine;
+        this.pool = pool;
+    }
+    
+    // Files whose name ends in .csv are CSV, anything else raw little-endian doubles.
+    // column picks the CSV field (from 0); returns the number of values written
+    public long evaluate(CalculatorEngine.Function f, Path input, int column, Path output) throws IOException {
+        CalculatorEngine snapshot = new CalculatorEngine();
+        snapshot.setAngleModeDegrees(engine.isAngleModeDegrees());
+        try (ColumnReader reader = isCsv(input) ? new CsvReader(input, column) : new BinaryReader(input);
+             ColumnWriter writer = isCsv(output) ? new CsvWriter(output) : new BinaryWriter(output)) {
+            double[][] in = {new double[CHUNK], new double[CHUNK]};
+            double[][] out = {new double[CHUNK], new double[CHUNK]};
+            int current = 0;
+            int n = reader.read(in[current]);
+            if (reader.header() != null) {
+                writer.header(f.symbol() + "(" + reader.header() + ")");
+            }
+            int previousN = 0;
+            long total = 0;
+            while (n > 0) {
+                ForkJoinTask<Void> task = pool.submit(new Apply(snapshot, f, in[current], out[current], 0, n));
+                if (previousN > 0) {
+                    writer.write(out[1 - current], previousN);
+                }
+                int next = reader.read(in[1 - current]);
+                task.join();
+                total += n;
+                previousN = n;
+                current = 1 - current;
+                n = next;
+            }
+            if (previousN > 0) {
+                writer.write(out[1 - current], previousN);
+            }
+            return total;
+        }
+    }
+    
+    // out[i] = f(in[i]) for i in [from, to), split across the pool
+    public void applyParallel(CalculatorEngine.Function f, double[] in, double[] out, int from, int to) {
+        pool.invoke(new Apply(engine, f, in, out, from, to));
+    }
+    
+    // java calculator.Calculator --bulk <function> <input> <output> [--column N] [--radians|--degrees]
+    static int run(String[] args, PrintStream err) {
+        if (args.length < 3) {
+            err.println("Usage: --bulk <function> <input> <output> [--column N] [--radians|--degrees]");
+            err.println("Functions: sin cos tan asin acos atan log ln e^x 10^x x^2 x^3 √ 1/x x! % (or their names, e.g. EXP)");
+            err.println("Files ending in .csv are CSV; any other file holds raw little-endian doubles");
+            return 2;
+        }
+        CalculatorEngine.Function f = parseFunction(args[0]);
+        if (f == null) {
+            err.println("Unknown function: " + args[0]);
+            return 2;
+        }
+        CalculatorEngine engine = new CalculatorEngine();
+        int column = 0;
+        for (int i = 3; i < args.length; i++) {
+            switch (args[i]) {
+                case "--column":
+                    if (i + 1 == args.length) {
+                        err.println("--column needs a field index");
+                        return 2;
+                    }
+                    try {
+                        column = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        column = -1;
+                    }
+                    if (column < 0) {
+                        err.println("Invalid column: " + args[i]);
+                        return 2;
+                    }
+                    break;
+                case "--radians":
+                    engine.setAngleModeDegrees(false);
+                    break;
+                case "--degrees":
+                    engine.setAngleModeDegrees(true);
+                    break;
+                default:
+                    err.println("Unknown option: " + args[i]);
+                    return 2;
+            }
+        }
+        try {
+            long start = System.nanoTime();
+            long count = new ColumnEvaluator(engine).evaluate(f, Path.of(args[1]), column, Path.of(args[2]));
+            double seconds = (System.nanoTime() - start) / 1e9;
+            err.printf(Locale.ROOT, "%d values in %.3f s (%.1f million/s)%n", count, seconds, count / seconds / 1e6);
+            return 0;
+        } catch (IOException e) {
+            err.println("Error: " + e.getMessage());
+            return 1;
+        }
+    }
+    
+    private static CalculatorEngine.Function parseFunction(String name) {
+        CalculatorEngine.Function f = CalculatorEngine.Function.fromSymbol(name);
+        if (f != null) {
+            return f;
+        }
+        for (CalculatorEngine.Function candidate : CalculatorEngine.Function.values()) {
+            if (candidate.name().equalsIgnoreCase(name)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+    
+    private static boolean isCsv(Path path) {
+        return path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+    }
+    
+    // Parses an ASCII number, or returns NaN through valid[0] = false; plain
+    // decimals of up to 15 digits with a small exponent are converted exactly
+    // (one correctly rounded multiply or divide), the rest by Double.parseDouble
+    static double parseNumber(byte[] bytes, int from, int to, boolean[] valid) {
+        while (from < to && (bytes[from] == ' ' || bytes[from] == '"')) {
+            from++;
+        }
+        while (to > from && (bytes[to - 1] == ' ' || bytes[to - 1] == '"')) {
+            to--;
+        }
+        valid[0] = true;
+        int i = from;
+        boolean negative = false;
+        if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean point = false;
+        boolean any = false;
+        for (; i < to; i++) {
+            byte c = bytes[i];
+            if (c >= '0' && c <= '9') {
+                any = true;
+                if (mantissa == 0 && c == '0') {
+                    if (point) {
+                        exponent--;
+                    }
+                    continue;
+                }
+                if (++digits > 15) {
+                    break;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (point) {
+                    exponent--;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (i < to && (bytes[i] == 'e' || bytes[i] == 'E') && any && digits <= 15) {
+            int j = i + 1;
+            boolean negativeExp = false;
+            if (j < to && (bytes[j] == '-' || bytes[j] == '+')) {
+                negativeExp = bytes[j] == '-';
+                j++;
+            }
+            int e = 0;
+            int start = j;
+            while (j < to && bytes[j] >= '0' && bytes[j] <= '9' && e < 10000) {
+                e = e * 10 + (bytes[j++] - '0');
+            }
+            if (j > start) {
+                exponent += negativeExp ? -e : e;
+                i = j;
+            }
+        }
+        if (i == to && any && digits <= 15 && exponent >= -22 && exponent <= 22) {
+            double value = exponent < 0 ? mantissa / POW10[-exponent] : mantissa * POW10[exponent];
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(new String(bytes, from, to - from, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            valid[0] = false;
+            return Double.NaN;
+        }
+    }
+    
+    private static final class Apply extends RecursiveAction {
+        private final CalculatorEngine engine;
+        private final CalculatorEngine.Function f;
+        private final double[] in;
+        private final double[] out;
+        private final int from;
+        private final int to;
+        
+        Apply(CalculatorEngine engine, CalculatorEngine.Function f, double[] in, double[] out, int from, int to) {
+            this.engine = engine;
+            this.f = f;
+            this.in = in;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT) {
+                engine.applyAll(f, in, out, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Apply(engine, f, in, out, from, mid), new Apply(engine, f, in, out, mid, to));
+        }
+    }
+    
+    private interface ColumnReader extends AutoCloseable {
+        // Fills dst from the start; returns the count, 0 at the end of the column
+        int read(double[] dst) throws IOException;
+        
+        // Column name from a CSV header line, known after the first read
+        String header();
+        
+        @Override
+        void close() throws IOException;
+    }
+    
+    private interface ColumnWriter extends AutoCloseable {
+        void header(String name) throws IOException;
+        
+        void write(double[] src, int n) throws IOException;
+        
+        @Override
+        void close() throws IOException;
+    }
+    
+    private static final class BinaryReader implements ColumnReader {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        
+        BinaryReader(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        }
+        
+        @Override
+        public int read(double[] dst) throws IOException {
+            buffer.clear().limit(Math.min(dst.length, CHUNK) * Double.BYTES);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep filling until the chunk is full or the file ends
+            }
+            buffer.flip();
+            if (buffer.remaining() % Double.BYTES != 0) {
+                throw new IOException("Input is not a whole number of 8-byte doubles");
+            }
+            int n = buffer.remaining() / Double.BYTES;
+            buffer.asDoubleBuffer().get(dst, 0, n);
+            return n;
+        }
+        
+        @Override
+        public String header() {
+            return null;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+    
+    private static final class BinaryWriter implements ColumnWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        
+        BinaryWriter(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        
+        @Override
+        public void header(String name) {
+            // Raw doubles carry no header
+        }
+        
+        @Override
+        public void write(double[] src, int n) throws IOException {
+            for (int from = 0; from < n; from += CHUNK) {
+                int count = Math.min(CHUNK, n - from);
+                buffer.clear();
+                buffer.asDoubleBuffer().put(src, from, count);
+                buffer.limit(count * Double.BYTES);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+    
+    // One value per line from the given comma-separated field; blank lines are
+    // skipped, a first line whose field is not a number is the header, and any
+    // later field that is not a number reads as NaN
+    private static final class CsvReader implements ColumnReader {
+        private final FileChannel channel;
+        private final int column;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        private final boolean[] valid = new boolean[1];
+        private boolean firstLine = true;
+        private boolean eof;
+        private String header;
+        
+        CsvReader(Path path, int column) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.column = column;
+            buffer.flip();
+        }
+        
+        @Override
+        public int read(double[] dst) throws IOException {
+            int n = 0;
+            byte[] bytes = buffer.array();
+            while (n < dst.length) {
+                int start = buffer.position();
+                int end = start;
+                int limit = buffer.limit();
+                while (end < limit && bytes[end] != '\n') {
+                    end++;
+                }
+                if (end == limit && !eof) {
+                    if (start == 0 && limit == buffer.capacity()) {
+                        throw new IOException("CSV line longer than " + buffer.capacity() + " bytes");
+                    }
+                    buffer.compact();
+                    eof = channel.read(buffer) < 0;
+                    buffer.flip();
+                    continue;
+                }
+                if (end == start && end == limit) {
+                    break;
+                }
+                buffer.position(Math.min(end + 1, limit));
+                int lineEnd = end > start && bytes[end - 1] == '\r' ? end - 1 : end;
+                if (lineEnd == start) {
+                    continue;
+                }
+                int fieldStart = start;
+                for (int field = 0; field < column && fieldStart <= lineEnd; field++) {
+                    while (fieldStart < lineEnd && bytes[fieldStart] != ',') {
+                        fieldStart++;
+                    }
+                    fieldStart++;
+                }
+                int fieldEnd = Math.min(fieldStart, lineEnd);
+                while (fieldEnd < lineEnd && bytes[fieldEnd] != ',') {
+                    fieldEnd++;
+                }
+                double value = fieldStart <= lineEnd ? parseNumber(bytes, fieldStart, fieldEnd, valid) : Double.NaN;
+                if (firstLine) {
+                    firstLine = false;
+                    if (fieldStart > lineEnd || !valid[0]) {
+                        header = fieldStart <= lineEnd
+                            ? new String(bytes, fieldStart, fieldEnd - fieldStart, StandardCharsets.UTF_8).trim() : "";
+                        continue;
+                    }
+                }
+                dst[n++] = value;
+            }
+            return n;
+        }
+        
+        @Override
+        public String header() {
+            return header;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+    
+    // One value per line in the shortest form that reads back as the same double
+    private static final class CsvWriter implements ColumnWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        private final NumberFormatter formatter = new NumberFormatter();
+        private final StringBuilder text = new StringBuilder(32);
+        
+        CsvWriter(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        
+        @Override
+        public void header(String name) throws IOException {
+            byte[] bytes = (name + "\n").getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > buffer.remaining()) {
+                flush();
+            }
+            buffer.put(bytes);
+        }
+        
+        @Override
+        public void write(double[] src, int n) throws IOException {
+            byte[] bytes = buffer.array();
+            for (int i = 0; i < n; i++) {
+                text.setLength(0);
+                formatter.appendShortest(text, src[i]).append('\n');
+                if (text.length() > buffer.remaining()) {
+                    flush();
+                }
+                int at = buffer.position();
+                for (int k = 0; k < text.length(); k++) {
+                    bytes[at + k] = (byte) text.charAt(k);
+                }
+                buffer.position(at + text.length());
+            }
+        }
+        
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package calculator;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+
+// Runs the calculator's steps on the event dispatch thread, in the order they
+// were submitted, and hands heavy work to a SwingWorker so the window keeps
+// painting. While a job runs, later steps queue behind it and are replayed
+// once its result has been applied; light steps on an idle runner run
+// straight away with no queueing or allocation. Must be used from the event
+// dispatch thread.
+final class CommandRunner {
+    // Jobs shorter than this never show the busy state, so it does not flicker
+    static final int BUSY_DELAY_MILLIS = 150;
+    
+    // Work for a background thread. It must not touch Swing or the session, and
+    // should poll cancelled; the step it returns runs on the event dispatch thread
+    interface Job {
+        Runnable run(BooleanSupplier cancelled) throws Exception;
+    }
+    
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+    private final Consumer<String> busy; // shows a label while a job runs, null when done
+    private final Consumer<Exception> failed;
+    private final Timer busyTimer;
+    private Worker running;
+    
+    CommandRunner(Consumer<String> busy, Consumer<Exception> failed) {
+        this.busy = busy;
+        this.failed = failed;
+        busyTimer = new Timer(BUSY_DELAY_MILLIS, e -> {
+            if (running != null) {
+                busy.accept(running.label);
+            }
+        });
+        busyTimer.setRepeats(false);
+    }
+    
+    boolean isIdle() {
+        return running == null && queue.isEmpty();
+    }
+    
+    // Runs step now unless a job is running, otherwise after everything
+    // submitted before it. With no job running the queue is empty, or is being
+    // replayed and the caller is the step that came first, so now is in order
+    void execute(Runnable step) {
+        if (running == null) {
+            step.run();
+        } else {
+            queue.add(step);
+        }
+    }
+    
+    // Starts job in the background, or queues it behind the running one
+    void submit(String label, Job job) {
+        if (running == null) {
+            start(label, job);
+        } else {
+            queue.add(() -> start(label, job));
+        }
+    }
+    
+    // Stops the running job and drops everything queued behind it; false when idle.
+    // The job's thread is not interrupted: an interrupt would close any FileChannel
+    // it is reading, such as the history log's, so jobs poll their flag instead
+    boolean cancel() {
+        Worker worker = running;
+        if (worker == null) {
+            return false;
+        }
+        // Cleared first: on this thread, cancel() calls done() straight away
+        running = null;
+        queue.clear();
+        worker.cancel(false);
+        finish();
+        return true;
+    }
+    
+    private void start(String label, Job job) {
+        running = new Worker(label, job);
+        busyTimer.restart();
+        running.execute();
+    }
+    
+    private void finish() {
+        busyTimer.stop();
+        busy.accept(null);
+    }
+    
+    // Applies the finished job's step, then replays the queue until it is empty
+    // or another job starts. A step that throws is reported and the replay goes
+    // on, so one failure cannot leave the rest of the queue stuck
+    private void completed(Worker worker) {
+        if (worker != running) {
+            return; // cancelled; its result is dropped
+        }
+        running = null;
+        finish(); // before the step, which may start another job
+        try {
+            Runnable step = worker.get();
+            if (step != null) {
+                step.run();
+            }
+        } catch (ExecutionException e) {
+            failed.accept(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+        } catch (InterruptedException e) {
+            // get() does not block once done() is called
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failed.accept(e);
+        }
+        while (running == null && !queue.isEmpty()) {
+            try {
+                queue.poll().run();
+            } catch (RuntimeException e) {
+                failed.accept(e);
+            }
+        }
+    }
+    
+    private final class Worker extends SwingWorker<Runnable, Void> {
+        final String label;
+        private final Job job;
+        
+        Worker(String label, Job job) {
+            this.label = label;
+            this.job = job;
+        }
+        
+        @Override
+        protected Runnable doInBackground() throws Exception {
+            return job.run(this::isCancelled);
+        }
+        
+        @Override
+        protected void done() {
+            completed(this);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package calculator;
+
+import java.util.BitSet;
+import java.util.function.DoubleUnaryOperator;
+
+// An infix expression parsed once by ExpressionCompiler into an evaluator
+// tree. Evaluating it again with a different x never re-parses the text.
+public final class CompiledExpression {
+    private final String text;
+    private final Node root;
+    private final boolean usesVariable;
+    private final BitSet registerSlots;
+    
+    CompiledExpression(String text, Node root, boolean usesVariable) {
+        this(text, root, usesVariable, new BitSet());
+    }
+    
+    CompiledExpression(String text, Node root, boolean usesVariable, BitSet registerSlots) {
+        this.text = text;
+        this.root = root;
+        this.usesVariable = usesVariable;
+        this.registerSlots = registerSlots;
+    }
+    
+    public String getText() {
+        return text;
+    }
+    
+    // True when the expression refers to x
+    public boolean usesVariable() {
+        return usesVariable;
+    }
+    
+    // True when the expression reads the register in slot
+    public boolean usesRegister(int slot) {
+        return registerSlots.get(slot);
+    }
+    
+    public double evaluate(CalculatorEngine engine) {
+        return evaluate(engine, 0);
+    }
+    
+    // Evaluates with the engine's angle mode. Errors surface as ArithmeticException
+    // carrying the same display text as the button handlers.
+    public double evaluate(CalculatorEngine engine, double x) {
+        double result = root.eval(engine, x);
+        if (Double.isNaN(result) || Double.isInfinite(result)) {
+            throw new ArithmeticException(CalculatorEngine.INVALID_RESULT);
+        }
+        return result;
+    }
+    
+    // The value at x in the given angle mode, or NaN where evaluate would throw.
+    // For sampling a curve at many points, as when plotting: nothing is thrown
+    // or allocated, the function cache is bypassed, and it is safe on any thread
+    public double sample(double x, boolean degrees) {
+        return root.sample(x, degrees);
+    }
+    
+    @Override
+    public String toString() {
+        return text;
+    }
+    
+    abstract static class Node {
+        abstract double eval(CalculatorEngine engine, double x);
+        
+        // eval under the batch contract of CalculatorEngine.applyAll: errors become NaN
+        abstract double sample(double x, boolean degrees);
+        
+        boolean isConstant() {
+            return false;
+        }
+    }
+    
+    static final class Constant extends Node {
+        final double value;
+        
+        Constant(double value) {
+            this.value = value;
+        }
+        
+        @Override
+        double eval(CalculatorEngine engine, double x) {
+            return value;
+        }
+        
+        @Override
+        double sample(double x, boolean degrees) {
+            return value;
+        }
+        
+        @Override
+        boolean isConstant() {
+            return true;
+        }
+    }
+    
+    static final class Variable extends Node {
+        @Override
+        double eval(CalculatorEngine engine, double x) {
+            return x;
+        }
+        
+        @Override
+        double sample(double x, boolean degrees) {
+            return x;
+        }
+    }
+    
+    // A named register, resolved to its slot when the expression was compiled
+    static final class Register extends Node {
+        final Registers registers;
+        final int slot;
+        
+        Register(Registers registers, int slot) {
+            this.registers = registers;
+            this.slot = slot;
+        }
+        
+        @Override
+        double eval(CalculatorEngine engine, double x) {
+            return registers.read(slot);
+        }
+        
+        @Override
+        double sample(double x, boolean degrees) {
+            return registers.read(slot);
+        }
+    }
+    
+    static final class Negate extends Node {
+        final Node operand;
+        
+        Negate(Node operand) {
+            this.operand = operand;
+        }
+        
+        @Override
+        double eval(CalculatorEngine engine, double x) {
+            return -operand.eval(engine, x);
+        }
+        
+        @Override
+        double sample(double x, boolean degrees) {
+            return -operand.sample(x, degrees);
+        }
+    }
+    
+    static final class Unary extends Node {
+        final CalculatorEngine.Function function;
+        final Node operand;
+        
+        Unary(CalculatorEngine.Function function, Node operand) {
+            this.function = function;
+            this.operand = operand;
+        }
+        
+        @Override
+        double eval(CalculatorEngine engine, double x) {
+            return engine.apply(function, operand.eval(engine, x));
+        }
+        
+        @Override
+        double sample(double x, boolean degrees) {
+            double value = operand.sample(x, degrees);
+            return CalculatorEngine.checkFunction(function, value, degrees) == null
+                ? CalculatorEngine.compute(function, value, degrees) : Double.NaN;
+        }
+    }
+    
+    static final class Binary extends Node {
+        final CalculatorEngine.BinaryOp op;
+        final Node left;
+        final Node right;
+        
+        Binary(CalculatorEngine.BinaryOp op, Node left, Node right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        double eval(CalculatorEngine engine, double x) {
+            return engine.apply(op, left.eval(engine, x), right.eval(engine, x));
+        }
+        
+        @Override
+        double sample(double x, boolean degrees) {
+            double a = left.sample(x, degrees);
+            double b = right.sample(x, degrees);
+            return CalculatorEngine.checkBinary(op, a, b) == null ? CalculatorEngine.compute(op, a, b) : Double.NaN;
+        }
+    }
+    
+    // solve(f, a, b) or integrate(f, a, b). The bounds take the outer x; inside
+    // f, x is the variable being solved for or integrated over
+    static final class Numerical extends Node {
+        final boolean integral;
+        final Node function;
+        final Node from;
+        final Node to;
+        
+        Numerical(boolean integral, Node function, Node from, Node to) {
+            this.integral = integral;
+            this.function = function;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        double eval(CalculatorEngine engine, double x) {
+            double a = from.eval(engine, x);
+            double b = to.eval(engine, x);
+            DoubleUnaryOperator f = t -> {
+                engine.spendEvaluation();
+                return function.eval(engine, t);
+            };
+            return (integral ? Numerics.integrate(f, a, b) : Numerics.solve(f, a, b)).value();
+        }
+        
+        @Override
+        double sample(double x, boolean degrees) {
+            double a = from.sample(x, degrees);
+            double b = to.sample(x, degrees);
+            DoubleUnaryOperator f = t -> function.sample(t, degrees);
+            try {
+                return (integral ? Numerics.integrate(f, a, b) : Numerics.solve(f, a, b)).value();
+            } catch (ArithmeticException ex) {
+                return Double.NaN;
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+// Decimal arithmetic for the precision mode: +, −, ×, ÷, Mod and % on the
+// decimal text the display shows, rounded to a MathContext, so 0.1 + 0.2 is
+// exactly 0.3 and memory sums do not drift. Operands of up to 18 digits are
+// parsed into a scaled long and stay in long arithmetic while the result is
+// exact and fits; an overflow, an inexact quotient or a result longer than
+// the context precision falls back to BigDecimal. Results are plain decimal
+// text without trailing fraction zeros, or scientific ("1.5E+40") when very
+// large or small. Errors are ArithmeticExceptions carrying the display
+// message, as in CalculatorEngine. Keeps scratch state, so an instance must
+// not be shared between threads.
+public final class DecimalArithmetic {
+    public static final MathContext DEFAULT_CONTEXT = MathContext.DECIMAL128;
+    public static final int MAX_PRECISION = 1000;
+    
+    private static final long[] POW10 = new long[19];
+    
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+    
+    private final MathContext context;
+    private final StringBuilder text = new StringBuilder(40);
+    // Last operand parsed by parse(): unscaled * 10^-scale
+    private long unscaled;
+    private int scale;
+    
+    public DecimalArithmetic() {
+        this(DEFAULT_CONTEXT);
+    }
+    
+    public DecimalArithmetic(MathContext context) {
+        if (context.getPrecision() < 1 || context.getPrecision() > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between 1 and " + MAX_PRECISION + ": " + context.getPrecision());
+        }
+        this.context = context;
+    }
+    
+    public MathContext context() {
+        return context;
+    }
+    
+    public static boolean supports(CalculatorEngine.BinaryOp op) {
+        switch (op) {
+            case ADD:
+            case SUBTRACT:
+            case MULTIPLY:
+            case DIVIDE:
+            case MODULO:
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    // a op b for the operators supports() accepts
+    public String apply(CalculatorEngine.BinaryOp op, String a, String b) {
+        if (!supports(op)) {
+            throw new IllegalArgumentException("Not a decimal operator: " + op);
+        }
+        if (parse(b)) {
+            long ub = unscaled;
+            int sb = scale;
+            if (ub == 0 && (op == CalculatorEngine.BinaryOp.DIVIDE || op == CalculatorEngine.BinaryOp.MODULO)) {
+                throw new ArithmeticException(CalculatorEngine.DIVISION_BY_ZERO);
+            }
+            if (parse(a)) {
+                String result = fast(op, unscaled, scale, ub, sb);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        return slow(op, new BigDecimal(a), new BigDecimal(b));
+    }
+    
+    // x / 100, the % key
+    public String percent(String x) {
+        if (parse(x)) {
+            String result = format(unscaled, scale + 2);
+            if (result != null) {
+                return result;
+            }
+        }
+        return format(new BigDecimal(x).movePointLeft(2).round(context));
+    }
+    
+    // x in the canonical form results use, e.g. "12." and "012.50" become "12" and "12.5"
+    public String normalize(String x) {
+        if (parse(x)) {
+            String result = format(unscaled, scale);
+            if (result != null) {
+                return result;
+            }
+        }
+        return format(new BigDecimal(x).round(context));
+    }
+    
+    private String fast(CalculatorEngine.BinaryOp op, long ua, int sa, long ub, int sb) {
+        try {
+            switch (op) {
+                case ADD:
+                case SUBTRACT:
+                case MODULO: {
+                    int s = Math.max(sa, sb);
+                    long x = align(ua, s - sa);
+                    long y = align(ub, s - sb);
+                    if (op == CalculatorEngine.BinaryOp.ADD) {
+                        return format(Math.addExact(x, y), s);
+                    }
+                    return format(op == CalculatorEngine.BinaryOp.SUBTRACT ? Math.subtractExact(x, y) : x % y, s);
+                }
+                case MULTIPLY:
+                    return format(Math.multiplyExact(ua, ub), sa + sb);
+                case DIVIDE: {
+                    // Exact quotients only: scale the dividend up until the divisor goes into it
+                    long x = ua;
+                    int s = sa - sb;
+                    for (int k = 0; k < POW10.length; k++) {
+                        if (x % ub == 0) {
+                            return format(x / ub, s);
+                        }
+                        x = Math.multiplyExact(x, 10);
+                        s++;
+                    }
+                    return null;
+                }
+                default:
+                    return null;
+            }
+        } catch (ArithmeticException overflow) {
+            return null;
+        }
+    }
+    
+    private String slow(CalculatorEngine.BinaryOp op, BigDecimal a, BigDecimal b) {
+        switch (op) {
+            case ADD:
+                return format(a.add(b, context));
+            case SUBTRACT:
+                return format(a.subtract(b, context));
+            case MULTIPLY:
+                return format(a.multiply(b, context));
+            case DIVIDE:
+                if (b.signum() == 0) {
+                    throw new ArithmeticException(CalculatorEngine.DIVISION_BY_ZERO);
+                }
+                return format(a.divide(b, context));
+            case MODULO:
+                if (b.signum() == 0) {
+                    throw new ArithmeticException(CalculatorEngine.DIVISION_BY_ZERO);
+                }
+                // Exact remainder first: with a context the integer quotient could exceed the precision
+                return format(a.remainder(b).round(context));
+            default:
+                throw new IllegalArgumentException("Not a decimal operator: " + op);
+        }
+    }
+    
+    private static long align(long value, int shift) {
+        if (shift >= POW10.length) {
+            throw new ArithmeticException("overflow");
+        }
+        return Math.multiplyExact(value, POW10[shift]);
+    }
+    
+    // Plain decimal digits with an optional sign and point; anything else (exponents, 19+ digits) is left to BigDecimal
+    private boolean parse(String s) {
+        int n = s.length();
+        int i = 0;
+        boolean negative = false;
+        if (n > 0 && (s.charAt(0) == '-' || s.charAt(0) == '+')) {
+            negative = s.charAt(0) == '-';
+            i = 1;
+        }
+        long u = 0;
+        int fraction = -1;
+        boolean digits = false;
+        for (; i < n; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (u > (Long.MAX_VALUE - 9) / 10) {
+                    return false;
+                }
+                u = u * 10 + (c - '0');
+                digits = true;
+                if (fraction >= 0) {
+                    fraction++;
+                }
+            } else if (c == '.' && fraction < 0) {
+                fraction = 0;
+            } else {
+                return false;
+            }
+        }
+        if (!digits) {
+            return false;
+        }
+        unscaled = negative ? -u : u;
+        scale = Math.max(fraction, 0);
+        return true;
+    }
+    
+    // unscaled * 10^-scale as text, or null when the slow path must round or lay it out
+    private String format(long u, int s) {
+        if (u == Long.MIN_VALUE) {
+            return null;
+        }
+        while (s > 0 && u % 10 == 0) {
+            u /= 10;
+            s--;
+        }
+        if (s < 0) {
+            if (-s >= POW10.length) {
+                return null;
+            }
+            try {
+                u = Math.multiplyExact(u, POW10[-s]);
+            } catch (ArithmeticException overflow) {
+                return null;
+            }
+            s = 0;
+        }
+        if (u == 0) {
+            return "0";
+        }
+        long magnitude = Math.abs(u);
+        int n = 1;
+        while (n < POW10.length && magnitude >= POW10[n]) {
+            n++;
+        }
+        if (n > context.getPrecision() || n - s - 1 < -7) {
+            return null;
+        }
+        if (s == 0) {
+            return Long.toString(u);
+        }
+        text.setLength(0);
+        if (u < 0) {
+            text.append('-');
+        }
+        if (n <= s) {
+            text.append("0.");
+            for (int i = n; i < s; i++) {
+                text.append('0');
+            }
+            return text.append(magnitude).toString();
+        }
+        int mark = text.length();
+        text.append(magnitude);
+        return text.insert(mark + n - s, '.').toString();
+    }
+    
+    private String format(BigDecimal value) {
+        if (value.signum() == 0) {
+            return "0";
+        }
+        value = value.stripTrailingZeros();
+        int adjusted = value.precision() - value.scale() - 1;
+        if (adjusted >= -7 && adjusted < context.getPrecision()) {
+            return value.toPlainString();
+        }
+        return value.toString();
+    }
+}
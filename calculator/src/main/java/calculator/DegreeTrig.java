@@ -0,0 +1,166 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+// sin, cos and tan of an angle in degrees. The angle is reduced modulo 360
+// exactly (one fma, or fmod for huge angles), so large angles lose nothing
+// and every multiple of 30° and 45° lands on a table entry: sin 180° is 0,
+// cos 60° is 0.5 and tan 90° is a pole rather than 1.6e16. Off the table the
+// angle is k + d with k a whole degree and |d| <= 0.5; sin and cos of k come
+// from a double-double table covering the whole circle, so no quadrant
+// logic is needed, and d goes through a short Taylor polynomial. sin and cos
+// are within half an ulp (correctly rounded in practice). tan divides them as
+// double-doubles with one fma correction of the quotient, which keeps it
+// within 0.501 ulp.
+// Tables are computed once in BigDecimal at 40 digits.
+final class DegreeTrig {
+    private static final MathContext WORK = new MathContext(40);
+    private static final BigDecimal PI = new BigDecimal("3.14159265358979323846264338327950288419716939937511");
+    // sin k° for k in [0, 450], so cos k° is SIN_HI[k + 90]
+    private static final double[] SIN_HI = new double[451];
+    private static final double[] SIN_LO = new double[451];
+    private static final double[] TAN = new double[181]; // correctly rounded tan k°, NaN at 90
+    private static final double RAD_HI; // π/180 as a double-double
+    private static final double RAD_LO;
+    
+    static {
+        BigDecimal rad = PI.divide(BigDecimal.valueOf(180), WORK);
+        RAD_HI = rad.doubleValue();
+        RAD_LO = rad.subtract(new BigDecimal(RAD_HI)).doubleValue();
+        BigDecimal[] sin = new BigDecimal[451];
+        for (int k = 0; k <= 90; k++) {
+            sin[k] = sinExact(rad.multiply(BigDecimal.valueOf(k)));
+        }
+        // Exact where the value is rational; the mirrors below keep them exact
+        sin[0] = BigDecimal.ZERO;
+        sin[30] = new BigDecimal("0.5");
+        sin[90] = BigDecimal.ONE;
+        for (int k = 91; k <= 450; k++) {
+            sin[k] = k <= 180 ? sin[180 - k] : k <= 360 ? sin[k - 180].negate() : sin[k - 360];
+        }
+        for (int k = 0; k <= 450; k++) {
+            SIN_HI[k] = sin[k].doubleValue();
+            SIN_LO[k] = sin[k].subtract(new BigDecimal(SIN_HI[k])).doubleValue();
+        }
+        for (int k = 0; k <= 180; k++) {
+            TAN[k] = k == 90 ? Double.NaN : sin[k + 90].signum() == 0 ? 0 : sin[k].divide(sin[k + 90], WORK).doubleValue();
+        }
+        TAN[45] = 1;
+        TAN[135] = -1;
+    }
+    
+    private DegreeTrig() {
+    }
+    
+    // Taylor series of sin(x) for 0 <= x <= π/2, to the working precision
+    private static BigDecimal sinExact(BigDecimal x) {
+        BigDecimal x2 = x.multiply(x, WORK);
+        BigDecimal term = x;
+        BigDecimal sum = x;
+        for (int n = 1; term.signum() != 0 && term.abs().compareTo(BigDecimal.ONE.movePointLeft(45)) > 0; n++) {
+            term = term.multiply(x2, WORK).divide(BigDecimal.valueOf((2L * n) * (2L * n + 1)), WORK).negate();
+            sum = sum.add(term, WORK);
+        }
+        return sum;
+    }
+    
+    // sin(k + d) = S + (C·sin d + S·(cos d − 1)), split so the big products are exact
+    static double sin(double degrees) {
+        double r = reduce(Math.abs(degrees), 360);
+        int k = (int) (r + 0.5);
+        double d = r - k;
+        double s = SIN_HI[k];
+        if (d != 0) {
+            double c = SIN_HI[k + 90];
+            double dh = d * RAD_HI;
+            double dl = Math.fma(d, RAD_HI, -dh) + d * RAD_LO;
+            double z = dh * dh;
+            double sinTail = dl + dh * z * (-1.0 / 6 + z * (1.0 / 120 + z * (-1.0 / 5040)));
+            double cosMinus1 = z * (-0.5 + z * (1.0 / 24 + z * (-1.0 / 720)));
+            double p = c * dh;
+            double hi = s + p;
+            // |s| >= |p| unless s is 0, so the rounding error of s + p is s - hi + p
+            s = hi + (s - hi + p + Math.fma(c, dh, -p) + SIN_LO[k] + s * cosMinus1 + c * sinTail + SIN_LO[k + 90] * dh);
+        }
+        // sin is odd, and +0.0 rather than -0.0 for the zeros
+        return degrees < 0 ? 0.0 - s : s + 0.0;
+    }
+    
+    // cos(k + d) = C + (C·(cos d − 1) − S·sin d)
+    static double cos(double degrees) {
+        double r = reduce(Math.abs(degrees), 360);
+        int k = (int) (r + 0.5);
+        double d = r - k;
+        double c = SIN_HI[k + 90];
+        if (d != 0) {
+            double s = SIN_HI[k];
+            double dh = d * RAD_HI;
+            double dl = Math.fma(d, RAD_HI, -dh) + d * RAD_LO;
+            double z = dh * dh;
+            double sinTail = dl + dh * z * (-1.0 / 6 + z * (1.0 / 120 + z * (-1.0 / 5040)));
+            double cosMinus1 = z * (-0.5 + z * (1.0 / 24 + z * (-1.0 / 720)));
+            double p = -s * dh;
+            double hi = c + p;
+            c = hi + (c - hi + p + Math.fma(-s, dh, -p) + SIN_LO[k + 90] + c * cosMinus1 - s * sinTail - SIN_LO[k] * dh);
+        }
+        return c + 0.0;
+    }
+    
+    // sin/cos of the angle mod 180, sharing the polynomial; NaN at the poles,
+    // 90° + k·180°, which isPole tells apart from NaN input
+    static double tan(double degrees) {
+        double r = reduce(Math.abs(degrees), 180);
+        int k = (int) (r + 0.5);
+        double d = r - k;
+        double t;
+        if (d == 0) {
+            t = TAN[k];
+        } else {
+            double s = SIN_HI[k];
+            double c = SIN_HI[k + 90];
+            double dh = d * RAD_HI;
+            double dl = Math.fma(d, RAD_HI, -dh) + d * RAD_LO;
+            double z = dh * dh;
+            double sinTail = dl + dh * z * (-1.0 / 6 + z * (1.0 / 120 + z * (-1.0 / 5040)));
+            double cosMinus1 = z * (-0.5 + z * (1.0 / 24 + z * (-1.0 / 720)));
+            // sin and cos summed as in sin() and cos(), then kept as double-doubles
+            double p = c * dh;
+            double hi = s + p;
+            double lo = s - hi + p + Math.fma(c, dh, -p) + SIN_LO[k] + s * cosMinus1 + c * sinTail + SIN_LO[k + 90] * dh;
+            double sinHi = hi + lo;
+            double sinLo = lo - (sinHi - hi);
+            p = -s * dh;
+            hi = c + p;
+            lo = c - hi + p + Math.fma(-s, dh, -p) + SIN_LO[k + 90] + c * cosMinus1 - s * sinTail - SIN_LO[k] * dh;
+            double cosHi = hi + lo;
+            double cosLo = lo - (cosHi - hi);
+            // One correction of the rounded quotient; the fma gives sinHi - t·cosHi exactly
+            t = sinHi / cosHi;
+            t += (Math.fma(-t, cosHi, sinHi) + sinLo - t * cosLo) / cosHi;
+        }
+        return degrees < 0 ? 0.0 - t : t + 0.0;
+    }
+    
+    static boolean isPole(double degrees) {
+        return reduce(Math.abs(degrees), 180) == 90;
+    }
+    
+    // x mod period for x >= 0, exactly. Below 2^52 the quotient is an integer
+    // and x - period·n has x's granularity and is small, so one fma gives it
+    // without rounding; the estimate of n may be one off either way. Above
+    // that, fmod (also exact, but an order of magnitude slower)
+    private static double reduce(double x, double period) {
+        if (x < period) {
+            return x;
+        }
+        if (x >= 0x1p52) {
+            return x % period;
+        }
+        double r = Math.fma(-period, Math.floor(x / period), x);
+        if (r < 0) {
+            return r + period;
+        }
+        return r >= period ? r - period : r;
+    }
+}
@@ -0,0 +1,76 @@
+package calculator;
+
+import javax.swing.JLabel;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+// Shows the session's display and memory in the window, at most once per
+// frame. Every command asks for a refresh, but during fast typing or replay
+// only the latest state is written: the first request after a quiet frame is
+// applied on the next event-queue pass, later ones wait for the frame timer.
+// Text that has not changed is not written again, so it fires no document
+// events and no repaint. Must be used from the event dispatch thread.
+final class DisplayRefresher {
+    static final int FRAME_MILLIS = 16;
+    private static final long FRAME_NANOS = FRAME_MILLIS * 1_000_000L;
+    
+    private final JTextField display;
+    private final JLabel memoryIndicator;
+    private final CalculatorSession session;
+    private final NumberFormatter numberFormatter = new NumberFormatter();
+    private final Runnable flush = this::flush;
+    private final Timer frameTimer;
+    private boolean pending;
+    private long lastFlush;
+    private String busyLabel; // shown instead of the session's display while a job runs
+    private String shownText;
+    private long shownMemoryBits = Double.doubleToRawLongBits(0);
+    
+    DisplayRefresher(JTextField display, JLabel memoryIndicator, CalculatorSession session) {
+        this.display = display;
+        this.memoryIndicator = memoryIndicator;
+        this.session = session;
+        shownText = display.getText();
+        lastFlush = System.nanoTime() - FRAME_NANOS;
+        frameTimer = new Timer(FRAME_MILLIS, e -> flush());
+        frameTimer.setRepeats(false);
+    }
+    
+    void request() {
+        if (pending) {
+            return;
+        }
+        pending = true;
+        long wait = lastFlush + FRAME_NANOS - System.nanoTime();
+        if (wait <= 0) {
+            SwingUtilities.invokeLater(flush);
+        } else {
+            frameTimer.setInitialDelay((int) (wait / 1_000_000) + 1);
+            frameTimer.restart();
+        }
+    }
+    
+    // label replaces the display until setBusy(null)
+    void setBusy(String label) {
+        busyLabel = label;
+        request();
+    }
+    
+    // Writes the latest state now, for callers that read the widgets back
+    void flush() {
+        frameTimer.stop();
+        pending = false;
+        lastFlush = System.nanoTime();
+        String text = busyLabel != null ? busyLabel : session.display();
+        if (!text.equals(shownText)) {
+            shownText = text;
+            display.setText(text);
+        }
+        long memoryBits = Double.doubleToRawLongBits(session.memory());
+        if (memoryBits != shownMemoryBits) {
+            shownMemoryBits = memoryBits;
+            memoryIndicator.setText("Memory: " + numberFormatter.formatNumber(session.memory()));
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package calculator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Loopback evaluation service. The protocol is plain lines over TCP: each
+// line is an expression as in headless mode ("2×(3+4)", "sin(30)", "7 mod 3")
+// and is answered by one line with the result or the display's error text.
+// "DEG" and "RAD" switch the connection's angle mode, "STATS" answers with
+// the server's counters. Clients may pipeline any number of lines; replies
+// are collected while more input is already buffered and written as one
+// batch when the client pauses. Each connection is served on a virtual
+// thread when the runtime has them (Java 21+), else on a pooled platform
+// thread. Latency is measured per batch, from reading its first line to
+// writing its replies.
+public final class EvaluationServer implements Closeable {
+    public static final int DEFAULT_PORT = 7031;
+    public static final String STATS = "STATS";
+    public static final int MAX_LINE_BYTES = 64 * 1024;
+    public static final long MAX_EVALUATIONS = 1_000_000; // by solve and integrate, per line
+    
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+    private final Thread acceptor;
+    private final long started = System.nanoTime();
+    private final LongAdder lines = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final FunctionCache cache = FunctionCache.configured(); // shared by all connections
+    
+    private EvaluationServer(ServerSocket serverSocket) {
+        this.serverSocket = serverSocket;
+        this.executor = connectionExecutor();
+        this.acceptor = new Thread(this::acceptLoop, "evaluation-server-acceptor");
+        acceptor.setDaemon(true);
+    }
+    
+    // Binds to the loopback address only; port 0 picks a free port
+    public static EvaluationServer start(int port) throws IOException {
+        EvaluationServer server = new EvaluationServer(new ServerSocket(port, 1024, InetAddress.getLoopbackAddress()));
+        server.acceptor.start();
+        return server;
+    }
+    
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+    
+    // Virtual thread per connection on Java 21+, looked up reflectively so
+    // the code still targets Java 17; cached daemon threads otherwise
+    static ExecutorService connectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "evaluation-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                open.add(socket);
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                // Closed while waiting, or a connection reset before it was accepted
+            }
+        }
+    }
+    
+    private void serve(Socket socket) {
+        connections.incrementAndGet();
+        CalculatorEngine engine = new CalculatorEngine();
+        engine.setCache(cache);
+        HeadlessCalculator.Worker worker = new HeadlessCalculator.Worker(engine, null);
+        HeadlessCalculator.Utf8Buffer buffer = new HeadlessCalculator.Utf8Buffer();
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            HeadlessCalculator.LineReader reader = new HeadlessCalculator.LineReader(in, MAX_LINE_BYTES);
+            long batchStart = 0;
+            int batchLines = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (batchLines == 0) {
+                    batchStart = System.nanoTime();
+                }
+                batchLines++;
+                if (reader.lineTooLong()) {
+                    // Skipped unread, and answered as any malformed line is
+                    buffer.append(ExpressionCompiler.SYNTAX_ERROR);
+                    buffer.newLine();
+                } else {
+                    switch (line) {
+                        case "DEG":
+                        case "RAD":
+                            engine.setAngleModeDegrees(line.equals("DEG"));
+                            buffer.append(engine.isAngleModeDegrees() ? "Deg" : "Rad");
+                            buffer.newLine();
+                            break;
+                        case STATS:
+                            buffer.append(stats());
+                            buffer.newLine();
+                            break;
+                        default:
+                            engine.setEvaluationBudget(MAX_EVALUATIONS);
+                            worker.evaluate(line, buffer);
+                            break;
+                    }
+                }
+                if (buffer.size() >= HeadlessCalculator.FLUSH_BYTES || !reader.hasLine() && in.available() == 0) {
+                    buffer.writeTo(out);
+                    latency.record(System.nanoTime() - batchStart);
+                    lines.add(batchLines);
+                    batches.increment();
+                    batchLines = 0;
+                }
+            }
+            buffer.writeTo(out);
+        } catch (IOException e) {
+            // Client went away, or the server is closing: nothing to answer to
+        } finally {
+            open.remove(socket);
+            connections.decrementAndGet();
+        }
+    }
+    
+    public long lines() {
+        return lines.sum();
+    }
+    
+    public LatencyHistogram latency() {
+        return latency;
+    }
+    
+    // One line: lines answered, batches written, open connections, lines a
+    // second since start, batch latency percentiles in microseconds and the
+    // function cache's hit rate
+    public String stats() {
+        long total = lines.sum();
+        double seconds = (System.nanoTime() - started) / 1e9;
+        String text = String.format(Locale.ROOT, "lines=%d batches=%d connections=%d rate=%.0f/s p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+            total, batches.sum(), connections.get(), total / seconds,
+            latency.percentile(0.5) / 1e3, latency.percentile(0.99) / 1e3, latency.percentile(0.999) / 1e3, latency.max() / 1e3);
+        if (cache != null) {
+            text += String.format(Locale.ROOT, " cache=%.1f%% hits=%d misses=%d evictions=%d",
+                cache.hitRate() * 100, cache.hits(), cache.misses(), cache.evictions());
+        }
+        return text;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : open) {
+            socket.close();
+        }
+        executor.shutdownNow();
+    }
+    
+    // java calculator.Calculator --serve [port] [--report seconds]
+    static int run(String[] args, PrintStream err) {
+        int port = DEFAULT_PORT;
+        int report = 10;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--report") && i + 1 < args.length) {
+                    report = Integer.parseInt(args[++i]);
+                } else {
+                    port = Integer.parseInt(args[i]);
+                }
+            }
+        } catch (NumberFormatException e) {
+            err.println("Usage: --serve [port] [--report seconds]");
+            return 2;
+        }
+        try (EvaluationServer server = start(port)) {
+            err.println("Serving on 127.0.0.1:" + server.port());
+            long reported = 0;
+            while (true) {
+                TimeUnit.SECONDS.sleep(Math.max(1, report));
+                if (server.lines() != reported) {
+                    reported = server.lines();
+                    err.println(server.stats());
+                }
+            }
+        } catch (IOException e) {
+            err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            return 0;
+        }
+    }
+}
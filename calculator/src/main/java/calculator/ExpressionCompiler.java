@@ -0,0 +1,430 @@
+package calculator;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Recursive-descent compiler for calculator expressions such as
+// "2×(3+4)", "sin(30)^2", "3√8", "5!", "ln(x) mod 2" or "integrate(x^2, 0, 3)".
+//
+// Precedence, lowest first: + − | × ÷ mod (and implicit multiplication)
+// | unary minus | ^ and n√x (right-associative) | postfix ! | primaries.
+// Compiled trees are kept in a bounded LRU cache keyed by expression text,
+// so evaluating the same formula again skips parsing entirely. A compiler
+// bound to Registers also accepts register names, resolved to their slots as
+// the tree is built; it is then used from the registers' thread.
+public class ExpressionCompiler {
+    public static final String SYNTAX_ERROR = "Error: Syntax error";
+    public static final int DEFAULT_CACHE_SIZE = 256;
+    public static final int MAX_NESTING = 200; // parentheses, signs and function calls, well inside the stack
+    
+    private final Map<String, CompiledExpression> cache;
+    private final Registers registers;
+    
+    public ExpressionCompiler() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+    
+    public ExpressionCompiler(int cacheSize) {
+        this(cacheSize, null);
+    }
+    
+    public ExpressionCompiler(Registers registers) {
+        this(DEFAULT_CACHE_SIZE, registers);
+    }
+    
+    public ExpressionCompiler(int cacheSize, Registers registers) {
+        this.registers = registers;
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + cacheSize);
+        }
+        cache = new LinkedHashMap<String, CompiledExpression>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+    
+    // Returns the compiled form of text, parsing it only on a cache miss.
+    // Throws IllegalArgumentException describing the first syntax error.
+    public CompiledExpression compile(String text) {
+        synchronized (cache) {
+            CompiledExpression cached = cache.get(text);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        CompiledExpression compiled = new Parser(text, registers).parse();
+        synchronized (cache) {
+            cache.put(text, compiled);
+        }
+        return compiled;
+    }
+    
+    // The registers names resolve to, or null if names other than x are errors
+    public Registers registers() {
+        return registers;
+    }
+    
+    public int cachedCount() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+    
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+    
+    private static final class Parser {
+        private final String text;
+        private final Registers registers;
+        private final BitSet registerSlots = new BitSet();
+        private int pos;
+        private int depth;
+        private boolean usesVariable;
+        
+        Parser(String text, Registers registers) {
+            this.text = text;
+            this.registers = registers;
+        }
+        
+        CompiledExpression parse() {
+            skipSpaces();
+            if (pos == text.length()) {
+                throw error("Empty expression");
+            }
+            CompiledExpression.Node root = parseExpression();
+            if (pos < text.length()) {
+                throw error("Unexpected '" + text.charAt(pos) + "'");
+            }
+            return new CompiledExpression(text, root, usesVariable, registerSlots);
+        }
+        
+        private CompiledExpression.Node parseExpression() {
+            CompiledExpression.Node left = parseTerm();
+            while (true) {
+                skipSpaces();
+                if (accept('+')) {
+                    left = binary(CalculatorEngine.BinaryOp.ADD, left, parseTerm());
+                } else if (accept('-') || accept('−')) {
+                    left = binary(CalculatorEngine.BinaryOp.SUBTRACT, left, parseTerm());
+                } else {
+                    return left;
+                }
+            }
+        }
+        
+        private CompiledExpression.Node parseTerm() {
+            CompiledExpression.Node left = parseUnary();
+            while (true) {
+                skipSpaces();
+                if (accept('*') || accept('×')) {
+                    left = binary(CalculatorEngine.BinaryOp.MULTIPLY, left, parseUnary());
+                } else if (accept('/') || accept('÷')) {
+                    left = binary(CalculatorEngine.BinaryOp.DIVIDE, left, parseUnary());
+                } else if (accept('%') || acceptWord("mod")) {
+                    left = binary(CalculatorEngine.BinaryOp.MODULO, left, parseUnary());
+                } else if (startsOperand()) {
+                    // Implicit multiplication: 2(3+4), 2pi, 3sin(30)
+                    left = binary(CalculatorEngine.BinaryOp.MULTIPLY, left, parseUnary());
+                } else {
+                    return left;
+                }
+            }
+        }
+        
+        private CompiledExpression.Node parseUnary() {
+            enter();
+            try {
+                return parseSigned();
+            } finally {
+                depth--;
+            }
+        }
+        
+        private CompiledExpression.Node parseSigned() {
+            skipSpaces();
+            if (accept('-') || accept('−')) {
+                CompiledExpression.Node operand = parseUnary();
+                if (operand.isConstant()) {
+                    return new CompiledExpression.Constant(-((CompiledExpression.Constant) operand).value);
+                }
+                return new CompiledExpression.Negate(operand);
+            }
+            if (accept('+')) {
+                return parseUnary();
+            }
+            return parsePower();
+        }
+        
+        private CompiledExpression.Node parsePower() {
+            CompiledExpression.Node base = parsePostfix();
+            skipSpaces();
+            if (accept('^')) {
+                return binary(CalculatorEngine.BinaryOp.POWER, base, parseUnary());
+            }
+            if (accept('√')) {
+                return binary(CalculatorEngine.BinaryOp.NTH_ROOT, base, parseUnary());
+            }
+            return base;
+        }
+        
+        private CompiledExpression.Node parsePostfix() {
+            CompiledExpression.Node operand = parsePrimary();
+            skipSpaces();
+            while (accept('!')) {
+                operand = unary(CalculatorEngine.Function.FACTORIAL, operand);
+                skipSpaces();
+            }
+            return operand;
+        }
+        
+        private CompiledExpression.Node parsePrimary() {
+            enter();
+            try {
+                return parseOperand();
+            } finally {
+                depth--;
+            }
+        }
+        
+        // Every nested construct passes through parseUnary or parsePrimary, so
+        // counting there bounds the recursion before it can overflow the stack
+        private void enter() {
+            if (++depth > MAX_NESTING) {
+                throw error("Nested too deeply");
+            }
+        }
+        
+        private CompiledExpression.Node parseOperand() {
+            skipSpaces();
+            if (pos == text.length()) {
+                throw error("Unexpected end of expression");
+            }
+            char c = text.charAt(pos);
+            if (isDigit(c) || c == '.') {
+                return parseNumber();
+            }
+            if (accept('(')) {
+                CompiledExpression.Node inner = parseExpression();
+                skipSpaces();
+                // Parentheses still open at the end of input are closed implicitly
+                if (!accept(')') && pos < text.length()) {
+                    throw error("Expected ')'");
+                }
+                return inner;
+            }
+            if (accept('√')) {
+                return unary(CalculatorEngine.Function.SQRT, parseUnary());
+            }
+            if (accept('π')) {
+                return new CompiledExpression.Constant(Math.PI);
+            }
+            if (Character.isLetter(c)) {
+                return parseName();
+            }
+            throw error("Unexpected '" + c + "'");
+        }
+        
+        private CompiledExpression.Node parseNumber() {
+            int start = pos;
+            while (pos < text.length() && (isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                pos++;
+            }
+            // Scientific notation, e.g. 1.5E-7 or 1e3; an e not followed by digits is the constant
+            if (pos < text.length() && (text.charAt(pos) == 'E' || text.charAt(pos) == 'e')) {
+                int mark = pos++;
+                if (pos < text.length() && (text.charAt(pos) == '-' || text.charAt(pos) == '+')) {
+                    pos++;
+                }
+                if (pos < text.length() && isDigit(text.charAt(pos))) {
+                    while (pos < text.length() && isDigit(text.charAt(pos))) {
+                        pos++;
+                    }
+                } else {
+                    pos = mark;
+                }
+            }
+            try {
+                return new CompiledExpression.Constant(Double.parseDouble(text.substring(start, pos)));
+            } catch (NumberFormatException ex) {
+                pos = start;
+                throw error("Malformed number");
+            }
+        }
+        
+        private CompiledExpression.Node parseName() {
+            int start = pos;
+            while (pos < text.length() && Character.isLetter(text.charAt(pos))) {
+                pos++;
+            }
+            String name = text.substring(start, pos).toLowerCase();
+            switch (name) {
+                case "x":
+                    usesVariable = true;
+                    return new CompiledExpression.Variable();
+                case "pi":
+                    return new CompiledExpression.Constant(Math.PI);
+                case "e":
+                    return new CompiledExpression.Constant(Math.E);
+                case "rand":
+                    skipSpaces();
+                    if (accept('(')) {
+                        skipSpaces();
+                        if (!accept(')')) {
+                            throw error("Expected ')'");
+                        }
+                    }
+                    return new CompiledExpression.Unary(CalculatorEngine.Function.RAND, new CompiledExpression.Constant(0));
+                case "sqrt":
+                    return unary(CalculatorEngine.Function.SQRT, parseArgument());
+                case "exp":
+                    return unary(CalculatorEngine.Function.EXP, parseArgument());
+                case "solve":
+                    return parseNumerical(false);
+                case "integrate":
+                    return parseNumerical(true);
+                default:
+                    CalculatorEngine.Function function = CalculatorEngine.Function.fromSymbol(name);
+                    if (function == null || !Character.isLetter(function.symbol().charAt(0))
+                            || function == CalculatorEngine.Function.PI || function == CalculatorEngine.Function.E) {
+                        // Register slots never change, so the compiled tree can be cached
+                        int slot = registers == null ? -1 : registers.slot(name);
+                        if (slot < 0) {
+                            pos = start;
+                            throw error("Unknown name '" + name + "'");
+                        }
+                        registerSlots.set(slot);
+                        return new CompiledExpression.Register(registers, slot);
+                    }
+                    return unary(function, parseArgument());
+            }
+        }
+        
+        // (f, a, b), where x in f is bound by solve or integrate, not by the outer expression
+        private CompiledExpression.Node parseNumerical(boolean integral) {
+            skipSpaces();
+            if (!accept('(')) {
+                throw error("Expected '('");
+            }
+            boolean outer = usesVariable;
+            CompiledExpression.Node function = parseExpression();
+            usesVariable = outer;
+            CompiledExpression.Node from = parseNextArgument();
+            CompiledExpression.Node to = parseNextArgument();
+            skipSpaces();
+            if (!accept(')') && pos < text.length()) {
+                throw error("Expected ')'");
+            }
+            return new CompiledExpression.Numerical(integral, function, from, to);
+        }
+        
+        private CompiledExpression.Node parseNextArgument() {
+            skipSpaces();
+            if (!accept(',')) {
+                throw error("Expected ','");
+            }
+            return parseExpression();
+        }
+        
+        // A function argument is either parenthesised, sin(30)^2 = (sin 30)^2,
+        // or a bare power-level operand, sin 30^2 = sin(30^2)
+        private CompiledExpression.Node parseArgument() {
+            skipSpaces();
+            if (pos < text.length() && text.charAt(pos) == '(') {
+                return parsePrimary();
+            }
+            return parsePower();
+        }
+        
+        private boolean startsOperand() {
+            if (pos == text.length()) {
+                return false;
+            }
+            char c = text.charAt(pos);
+            if (c == '(' || c == 'π' || isDigit(c) || c == '.') {
+                return true;
+            }
+            return Character.isLetter(c) && !text.regionMatches(true, pos, "mod", 0, 3);
+        }
+        
+        private CompiledExpression.Node unary(CalculatorEngine.Function function, CompiledExpression.Node operand) {
+            // Fold constant arguments unless the result depends on angle mode or is random
+            if (operand.isConstant() && foldable(function)) {
+                double value = ((CompiledExpression.Constant) operand).value;
+                if (CalculatorEngine.checkFunction(function, value, true) == null) {
+                    double result = CalculatorEngine.compute(function, value, true);
+                    if (!Double.isNaN(result) && !Double.isInfinite(result)) {
+                        return new CompiledExpression.Constant(result);
+                    }
+                }
+            }
+            return new CompiledExpression.Unary(function, operand);
+        }
+        
+        private CompiledExpression.Node binary(CalculatorEngine.BinaryOp op, CompiledExpression.Node left, CompiledExpression.Node right) {
+            if (left.isConstant() && right.isConstant()) {
+                double a = ((CompiledExpression.Constant) left).value;
+                double b = ((CompiledExpression.Constant) right).value;
+                if (CalculatorEngine.checkBinary(op, a, b) == null) {
+                    double result = CalculatorEngine.compute(op, a, b);
+                    if (!Double.isNaN(result) && !Double.isInfinite(result)) {
+                        return new CompiledExpression.Constant(result);
+                    }
+                }
+            }
+            return new CompiledExpression.Binary(op, left, right);
+        }
+        
+        private static boolean foldable(CalculatorEngine.Function function) {
+            switch (function) {
+                case SIN:
+                case COS:
+                case TAN:
+                case ASIN:
+                case ACOS:
+                case ATAN:
+                case RAND:
+                    return false;
+                default:
+                    return true;
+            }
+        }
+        
+        private boolean accept(char c) {
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+        
+        private boolean acceptWord(String word) {
+            int end = pos + word.length();
+            if (text.regionMatches(true, pos, word, 0, word.length())
+                    && (end == text.length() || !Character.isLetter(text.charAt(end)))) {
+                pos = end;
+                return true;
+            }
+            return false;
+        }
+        
+        private void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+        
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+        
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos + " in \"" + text + "\"");
+        }
+    }
+}
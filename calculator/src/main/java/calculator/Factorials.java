@@ -0,0 +1,145 @@
+package calculator;
+
+import java.math.BigInteger;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BooleanSupplier;
+
+// Factorials: exact BigInteger values, and correctly rounded doubles from a
+// table. The exact path writes n! = oddPart(n) * 2^(n - bitCount(n)) and
+// builds the odd part with Luschny's split-recursive scheme: the odd numbers
+// in (n >> (k+1), n >> k] are multiplied once each, by binary splitting, and
+// the level products R_k combined as prod R_k^(k+1). Big ranges are split
+// across the common fork-join pool, and every leaf polls the cancel flag.
+final class Factorials {
+    static final int MAX_DOUBLE = 170; // 171! overflows a double
+    static final int MAX_EXACT = 1_000_000;
+    private static final BooleanSupplier NEVER = () -> false;
+    private static final long[] LONGS = new long[21];
+    private static final double[] DOUBLES = new double[MAX_DOUBLE + 1];
+    private static final int LEAF_ODDS = 256;
+    private static final int PARALLEL_ODDS = 8192;
+    
+    static {
+        LONGS[0] = 1;
+        for (int i = 1; i < LONGS.length; i++) {
+            LONGS[i] = LONGS[i - 1] * i;
+        }
+        BigInteger f = BigInteger.ONE;
+        DOUBLES[0] = 1;
+        for (int i = 1; i <= MAX_DOUBLE; i++) {
+            f = f.multiply(BigInteger.valueOf(i));
+            DOUBLES[i] = f.doubleValue();
+        }
+    }
+    
+    private Factorials() {
+    }
+    
+    // n! rounded to the nearest double, or +Infinity beyond MAX_DOUBLE
+    static double toDouble(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Negative factorial: " + n);
+        }
+        return n <= MAX_DOUBLE ? DOUBLES[(int) n] : Double.POSITIVE_INFINITY;
+    }
+    
+    static BigInteger exact(int n) {
+        return exact(n, NEVER);
+    }
+    
+    // Throws CancellationException soon after cancelled starts returning true
+    static BigInteger exact(int n, BooleanSupplier cancelled) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Negative factorial: " + n);
+        }
+        if (n < LONGS.length) {
+            return BigInteger.valueOf(LONGS[n]);
+        }
+        int levels = 31 - Integer.numberOfLeadingZeros(n);
+        OddProduct[] parts = new OddProduct[levels + 1];
+        for (int k = 0; k <= levels; k++) {
+            int lo = ((n >> (k + 1)) + 1) | 1;
+            int hi = ((n >> k) - 1) | 1;
+            parts[k] = new OddProduct(lo, hi, cancelled);
+        }
+        if (n >= PARALLEL_ODDS) {
+            ForkJoinPool.commonPool().invoke(new RecursiveTask<Void>() {
+                @Override
+                protected Void compute() {
+                    ForkJoinTask.invokeAll(parts);
+                    return null;
+                }
+            });
+        } else {
+            for (OddProduct part : parts) {
+                part.invoke();
+            }
+        }
+        BigInteger p = BigInteger.ONE;
+        BigInteger r = BigInteger.ONE;
+        for (int k = levels; k >= 0; k--) {
+            p = p.multiply(parts[k].join());
+            r = r.multiply(p);
+            checkCancelled(cancelled);
+        }
+        return r.shiftLeft(n - Integer.bitCount(n));
+    }
+    
+    private static void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("Factorial cancelled");
+        }
+    }
+    
+    // Product of the odd numbers lo, lo + 2, ..., hi; one when the range is empty
+    private static final class OddProduct extends RecursiveTask<BigInteger> {
+        private final int lo;
+        private final int hi;
+        private final BooleanSupplier cancelled;
+        
+        OddProduct(int lo, int hi, BooleanSupplier cancelled) {
+            this.lo = lo;
+            this.hi = hi;
+            this.cancelled = cancelled;
+        }
+        
+        @Override
+        protected BigInteger compute() {
+            if (lo > hi) {
+                return BigInteger.ONE;
+            }
+            int odds = (hi - lo) / 2 + 1;
+            if (odds <= LEAF_ODDS) {
+                checkCancelled(cancelled);
+                return leaf();
+            }
+            int mid = lo + (odds / 2) * 2; // first odd of the upper half
+            OddProduct low = new OddProduct(lo, mid - 2, cancelled);
+            OddProduct high = new OddProduct(mid, hi, cancelled);
+            if (odds >= PARALLEL_ODDS) {
+                low.fork();
+                BigInteger upper = high.compute();
+                return low.join().multiply(upper);
+            }
+            return low.compute().multiply(high.compute());
+        }
+        
+        // Packs as many factors into a long as fit before touching BigInteger
+        private BigInteger leaf() {
+            BigInteger product = BigInteger.ONE;
+            long acc = 1;
+            for (long i = lo; i <= hi; i += 2) {
+                if (acc > Long.MAX_VALUE / i) {
+                    product = product.multiply(BigInteger.valueOf(acc));
+                    acc = i;
+                } else {
+                    acc *= i;
+                }
+            }
+            return product.multiply(BigInteger.valueOf(acc));
+        }
+    }
+}
@@ -0,0 +1,608 @@
+package calculator;
+
+import java.awt.BasicStroke;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+// A plot of an expression in x under the calculator's angle mode. The plane is
+// cut into TILE-pixel tiles on a grid fixed to the plot's coordinates, so a pan
+// only exposes new tiles, and zooming steps between fixed levels whose tiles
+// stay cached. Each column of tiles shares one strip: the curve sampled every
+// few pixels across the column, then bisected wherever it bends away from the
+// chord or leaves its domain. Strips are sampled and tiles drawn on a
+// fork-join pool; painting on the event dispatch thread only copies finished
+// tiles, and fills gaps with the last complete zoom level stretched until the
+// new tiles arrive. Drag to pan, wheel to zoom (shift: x only, ctrl: y only),
+// double-click to fit. Must be used from the event dispatch thread.
+final class FunctionPlot extends JComponent {
+    static final int TILE = 256;
+    private static final int MARGIN = 2; // pixels sampled past each side of a strip, so strokes meet
+    private static final int SEED_SPACING = 4; // pixels between the first samples
+    private static final int SEEDS_PER_TASK = 8; // seed intervals refined by one fork-join task
+    private static final int MAX_DEPTH = 6; // bisections of a seed interval, down to 1/16 pixel
+    private static final double TOLERANCE = 0.25; // pixels off the chord before bisecting
+    private static final double BREAK_PIXELS = 64; // a jump this big at full depth is a pole, not a line
+    private static final double CLIP_PIXELS = 1 << 20; // keeps far-off points within what Java2D draws well
+    private static final int LEVELS_PER_DOUBLING = 4;
+    private static final int MAX_LEVEL = 120; // scales from 2^-30 to 2^30 pixels per unit
+    private static final double MAX_VIEW = 1 << 30; // pixels from the origin, keeping tile numbers in 24 bits
+    private static final int MIN_GRID_PIXELS = 64;
+    private static final int FIT_SAMPLES = 512;
+    private static final int MAX_TILES = 192; // 48 MB of tiles
+    private static final int MAX_STRIPS = 512;
+    private static final int MAX_STRETCHED = 64; // fallback tiles drawn at most, far out of zoom
+    private static final int NONE = Integer.MIN_VALUE;
+    private static final Stroke CURVE_STROKE = new BasicStroke(2f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+    
+    private final ForkJoinPool pool;
+    private final NumberFormatter numberFormatter = new NumberFormatter();
+    private final Map<Long, Strip> strips = lru(MAX_STRIPS);
+    private final Map<Long, BufferedImage> tiles = lru(MAX_TILES);
+    private final Set<Long> pendingStrips = new HashSet<>();
+    private final Set<Long> pendingTiles = new HashSet<>();
+    private CompiledExpression expression;
+    private boolean degrees = true;
+    private String message = "Type an expression in x and press Enter";
+    private int generation; // bumped whenever cached strips and tiles go stale
+    private volatile long current; // generation and levels, so queued work for another view is skipped
+    private int xLevel;
+    private int yLevel;
+    private double viewU; // left edge in pixels of the current x level
+    private double viewV; // top edge in pixels of the current y level, growing downward
+    private int shownXLevel = NONE; // last levels painted with every tile present
+    private int shownYLevel = NONE;
+    private boolean complete;
+    private Point dragFrom;
+    private Dimension lastSize;
+    
+    FunctionPlot() {
+        this(ForkJoinPool.commonPool());
+    }
+    
+    FunctionPlot(ForkJoinPool pool) {
+        this.pool = pool;
+        setOpaque(true);
+        setPreferredSize(new Dimension(420, 320));
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragFrom = e.getPoint();
+            }
+            
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (dragFrom != null) {
+                    pan(dragFrom.x - e.getX(), dragFrom.y - e.getY());
+                    dragFrom = e.getPoint();
+                }
+            }
+            
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                dragFrom = null;
+            }
+            
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2 && expression != null) {
+                    fit();
+                    repaint();
+                }
+            }
+            
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                int steps = -e.getWheelRotation();
+                boolean xOnly = (e.getModifiersEx() & InputEvent.SHIFT_DOWN_MASK) != 0;
+                boolean yOnly = (e.getModifiersEx() & (InputEvent.CTRL_DOWN_MASK | InputEvent.META_DOWN_MASK)) != 0;
+                zoom(yOnly ? 0 : steps, xOnly ? 0 : steps, e.getPoint());
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+        // A resize keeps the middle of the plot where it was
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                Dimension size = getSize();
+                if (lastSize != null) {
+                    pan((lastSize.width - size.width) / 2.0, (lastSize.height - size.height) / 2.0);
+                }
+                lastSize = size;
+            }
+        });
+    }
+    
+    // Plots expression, fitted to the window; cached tiles of anything plotted before are dropped
+    void setExpression(CompiledExpression expression) {
+        this.expression = expression;
+        message = null;
+        discardTiles();
+        fit();
+        repaint();
+    }
+    
+    // Shown in place of a curve, e.g. the error for an expression that did not compile
+    void showMessage(String message) {
+        this.expression = null;
+        this.message = message;
+        discardTiles();
+        repaint();
+    }
+    
+    // Redraws a curve that reads the register in slot, whose value has just changed
+    void registerChanged(int slot) {
+        if (expression != null && expression.usesRegister(slot)) {
+            discardTiles();
+            repaint();
+        }
+    }
+    
+    void setAngleModeDegrees(boolean degrees) {
+        if (this.degrees == degrees) {
+            return;
+        }
+        this.degrees = degrees;
+        discardTiles();
+        if (expression != null) {
+            fit();
+        }
+        repaint();
+    }
+    
+    // The x values at the left and right edges, or null while no curve is shown
+    double[] visibleRange() {
+        if (expression == null) {
+            return null;
+        }
+        double sx = scale(xLevel);
+        int width = getWidth() > 0 ? getWidth() : getPreferredSize().width;
+        return new double[] {viewU / sx, (viewU + width) / sx};
+    }
+    
+    // True once the last paint found every visible tile ready
+    boolean isComplete() {
+        return complete;
+    }
+    
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        Graphics2D g = (Graphics2D) graphics;
+        int width = getWidth();
+        int height = getHeight();
+        g.setColor(CalculatorStyle.PLOT_BACKGROUND);
+        g.fillRect(0, 0, width, height);
+        if (expression == null) {
+            drawMessage(g, width, height);
+            complete = true;
+            return;
+        }
+        long firstColumn = (long) Math.floor(viewU / TILE);
+        long lastColumn = (long) Math.floor((viewU + width - 1) / TILE);
+        long firstRow = (long) Math.floor(viewV / TILE);
+        long lastRow = (long) Math.floor((viewV + height - 1) / TILE);
+        int left = (int) Math.floor(firstColumn * TILE - viewU);
+        int top = (int) Math.floor(firstRow * TILE - viewV);
+        BufferedImage[] ready = new BufferedImage[(int) ((lastColumn - firstColumn + 1) * (lastRow - firstRow + 1))];
+        boolean all = true;
+        int i = 0;
+        for (long column = firstColumn; column <= lastColumn; column++) {
+            for (long row = firstRow; row <= lastRow; row++) {
+                ready[i] = tiles.get(tileKey(xLevel, yLevel, column, row));
+                if (ready[i++] == null) {
+                    all = false;
+                    request(column, row);
+                }
+            }
+        }
+        if (!all && shownXLevel != NONE && (shownXLevel != xLevel || shownYLevel != yLevel)) {
+            drawStretched(g, width, height);
+        }
+        i = 0;
+        for (long column = firstColumn; column <= lastColumn; column++) {
+            for (long row = firstRow; row <= lastRow; row++) {
+                BufferedImage tile = ready[i++];
+                if (tile != null) {
+                    g.drawImage(tile, left + (int) (column - firstColumn) * TILE, top + (int) (row - firstRow) * TILE, null);
+                }
+            }
+        }
+        if (all) {
+            shownXLevel = xLevel;
+            shownYLevel = yLevel;
+        }
+        complete = all;
+        drawLabels(g, width, height);
+    }
+    
+    // Tiles of the last complete levels, scaled to the current ones
+    private void drawStretched(Graphics2D g, int width, int height) {
+        double sx = scale(shownXLevel) / scale(xLevel);
+        double sy = scale(shownYLevel) / scale(yLevel);
+        double u0 = viewU * sx;
+        double v0 = viewV * sy;
+        long firstColumn = (long) Math.floor(u0 / TILE);
+        long lastColumn = (long) Math.floor((u0 + width * sx) / TILE);
+        long firstRow = (long) Math.floor(v0 / TILE);
+        long lastRow = (long) Math.floor((v0 + height * sy) / TILE);
+        if ((lastColumn - firstColumn + 1) * (lastRow - firstRow + 1) > MAX_STRETCHED) {
+            return;
+        }
+        for (long column = firstColumn; column <= lastColumn; column++) {
+            int x0 = (int) Math.floor((column * TILE - u0) / sx);
+            int x1 = (int) Math.floor(((column + 1) * TILE - u0) / sx);
+            for (long row = firstRow; row <= lastRow; row++) {
+                BufferedImage tile = tiles.get(tileKey(shownXLevel, shownYLevel, column, row));
+                if (tile != null) {
+                    int y0 = (int) Math.floor((row * TILE - v0) / sy);
+                    int y1 = (int) Math.floor(((row + 1) * TILE - v0) / sy);
+                    g.drawImage(tile, x0, y0, x1, y1, 0, 0, TILE, TILE, null);
+                }
+            }
+        }
+    }
+    
+    // Numbers for the grid lines, along the axes or, when an axis is out of view, the edge nearest it
+    private void drawLabels(Graphics2D g, int width, int height) {
+        g.setFont(CalculatorStyle.SMALL_PLAIN_FONT);
+        g.setColor(CalculatorStyle.PLOT_LABEL);
+        int ascent = g.getFontMetrics().getAscent();
+        double sx = scale(xLevel);
+        double sy = scale(yLevel);
+        int axisY = clamp((int) Math.round(-viewV) + 2, 2, height - ascent - 2) + ascent;
+        int axisX = clamp((int) Math.round(-viewU) + 3, 3, width - 40);
+        double step = gridStep(sx);
+        for (long k = (long) Math.ceil(viewU / sx / step); k * step * sx - viewU < width; k++) {
+            if (k != 0) {
+                g.drawString(numberFormatter.formatNumber(k * step), (int) Math.round(k * step * sx - viewU) + 2, axisY);
+            }
+        }
+        step = gridStep(sy);
+        for (long k = (long) Math.floor(-viewV / sy / step); -k * step * sy - viewV < height; k--) {
+            if (k != 0) {
+                g.drawString(numberFormatter.formatNumber(k * step), axisX, (int) Math.round(-k * step * sy - viewV) - 2);
+            }
+        }
+    }
+    
+    private void drawMessage(Graphics2D g, int width, int height) {
+        g.setFont(CalculatorStyle.LABEL_FONT);
+        g.setColor(CalculatorStyle.PLOT_LABEL);
+        int textWidth = g.getFontMetrics().stringWidth(message);
+        g.drawString(message, Math.max(4, (width - textWidth) / 2), height / 2);
+    }
+    
+    // Draws the tile once its column's strip is ready, sampling the strip first if need be
+    private void request(long column, long row) {
+        long key = tileKey(xLevel, yLevel, column, row);
+        if (pendingTiles.contains(key)) {
+            return;
+        }
+        Strip strip = strips.get(stripKey(xLevel, yLevel, column));
+        if (strip == null) {
+            requestStrip(column);
+            return;
+        }
+        pendingTiles.add(key);
+        long view = current;
+        double sx = scale(xLevel);
+        double sy = scale(yLevel);
+        pool.execute(() -> {
+            BufferedImage tile = current == view ? renderTile(strip, column, row, sx, sy) : null;
+            SwingUtilities.invokeLater(() -> finished(view, pendingTiles, key, tile, tiles));
+        });
+    }
+    
+    private void requestStrip(long column) {
+        long key = stripKey(xLevel, yLevel, column);
+        if (!pendingStrips.add(key)) {
+            return;
+        }
+        long view = current;
+        CompiledExpression f = expression;
+        boolean inDegrees = degrees;
+        double sx = scale(xLevel);
+        double sy = scale(yLevel);
+        pool.execute(() -> {
+            Strip strip = current == view ? sampleStrip(f, inDegrees, sx, sy, column) : null;
+            SwingUtilities.invokeLater(() -> finished(view, pendingStrips, key, strip, strips));
+        });
+    }
+    
+    // Work skipped because the view moved on leaves nothing cached, so it is requested again when needed
+    private <T> void finished(long view, Set<Long> pending, long key, T result, Map<Long, T> cache) {
+        if ((int) (view >>> 32) != generation) {
+            return;
+        }
+        pending.remove(key);
+        if (result != null) {
+            cache.put(key, result);
+            repaint();
+        }
+    }
+    
+    private void discardTiles() {
+        generation++;
+        strips.clear();
+        tiles.clear();
+        pendingStrips.clear();
+        pendingTiles.clear();
+        shownXLevel = NONE;
+        shownYLevel = NONE;
+        updateCurrent();
+    }
+    
+    private void updateCurrent() {
+        current = (long) generation << 32 | (xLevel & 0xFFFFL) << 16 | yLevel & 0xFFFFL;
+    }
+    
+    private void pan(double du, double dv) {
+        viewU = Math.max(-MAX_VIEW, Math.min(MAX_VIEW, viewU + du));
+        viewV = Math.max(-MAX_VIEW, Math.min(MAX_VIEW, viewV + dv));
+        repaint();
+    }
+    
+    // Steps the scales by whole levels, keeping the point under the mouse in place
+    private void zoom(int xSteps, int ySteps, Point at) {
+        int newX = clamp(xLevel + xSteps, -MAX_LEVEL, MAX_LEVEL);
+        int newY = clamp(yLevel + ySteps, -MAX_LEVEL, MAX_LEVEL);
+        viewU = (viewU + at.x) * scale(newX) / scale(xLevel) - at.x;
+        viewV = (viewV + at.y) * scale(newY) / scale(yLevel) - at.y;
+        xLevel = newX;
+        yLevel = newY;
+        updateCurrent();
+        pan(0, 0);
+    }
+    
+    // Centers x = 0 over two turns of the angle mode, then fits y to the middle
+    // 80% of the values sampled there, so poles do not flatten the rest
+    private void fit() {
+        int width = getWidth() > 0 ? getWidth() : getPreferredSize().width;
+        int height = getHeight() > 0 ? getHeight() : getPreferredSize().height;
+        xLevel = levelFor(width / (degrees ? 720 : 4 * Math.PI));
+        double sx = scale(xLevel);
+        viewU = -width / 2.0;
+        double[] values = new double[FIT_SAMPLES];
+        int n = 0;
+        for (int i = 0; i < FIT_SAMPLES; i++) {
+            double y = expression.sample((viewU + (i + 0.5) * width / FIT_SAMPLES) / sx, degrees);
+            if (Double.isFinite(y)) {
+                values[n++] = y;
+            }
+        }
+        double low = -1;
+        double high = 1;
+        if (n > 0) {
+            Arrays.sort(values, 0, n);
+            low = values[n / 10];
+            high = values[n - 1 - n / 10];
+        }
+        double middle = (low + high) / 2;
+        double range = high > low ? (high - low) * 1.25 : 2 * Math.max(1, Math.abs(middle));
+        yLevel = levelFor(height / range);
+        viewV = -middle * scale(yLevel) - height / 2.0;
+        updateCurrent();
+        pan(0, 0);
+    }
+    
+    static double scale(int level) {
+        return Math.pow(2, (double) level / LEVELS_PER_DOUBLING);
+    }
+    
+    private static int levelFor(double pixelsPerUnit) {
+        double level = Math.floor(LEVELS_PER_DOUBLING * Math.log(pixelsPerUnit) / Math.log(2));
+        return Double.isFinite(level) ? clamp((int) level, -MAX_LEVEL, MAX_LEVEL) : 0;
+    }
+    
+    // 1, 2 or 5 times a power of ten, at least MIN_GRID_PIXELS apart
+    static double gridStep(double pixelsPerUnit) {
+        double step = Math.pow(10, Math.floor(Math.log10(MIN_GRID_PIXELS / pixelsPerUnit)));
+        if (step * pixelsPerUnit >= MIN_GRID_PIXELS) {
+            return step;
+        }
+        if (2 * step * pixelsPerUnit >= MIN_GRID_PIXELS) {
+            return 2 * step;
+        }
+        return 5 * step * pixelsPerUnit >= MIN_GRID_PIXELS ? 5 * step : 10 * step;
+    }
+    
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+    
+    // Levels in 8 bits each, tile numbers in 24; views are kept within MAX_VIEW so they fit
+    private static long tileKey(int xLevel, int yLevel, long column, long row) {
+        return (long) (xLevel & 0xFF) << 56 | (long) (yLevel & 0xFF) << 48 | (column & 0xFFFFFF) << 24 | row & 0xFFFFFF;
+    }
+    
+    private static long stripKey(int xLevel, int yLevel, long column) {
+        return tileKey(xLevel, yLevel, column, 0);
+    }
+    
+    private static <T> Map<Long, T> lru(int capacity) {
+        return new LinkedHashMap<Long, T>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, T> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+    
+    // The curve across one column of tiles at the given scales in pixels per
+    // unit: points in pixels from the column's left edge with their y values,
+    // a non-finite y breaking the line. Seed intervals are refined in parallel
+    static Strip sampleStrip(CompiledExpression f, boolean degrees, double sx, double sy, long column) {
+        double left = (double) column * TILE;
+        int seeds = (TILE + 2 * MARGIN) / SEED_SPACING;
+        double[] ys = new double[seeds + 1];
+        for (int i = 0; i <= seeds; i++) {
+            ys[i] = f.sample((left - MARGIN + i * SEED_SPACING) / sx, degrees);
+        }
+        return new Refine(f, degrees, sx, sy, left, ys, 0, seeds).invoke();
+    }
+    
+    // Draws the part of strip that falls in the tile, over the grid and axes
+    static BufferedImage renderTile(Strip strip, long column, long row, double sx, double sy) {
+        BufferedImage tile = new BufferedImage(TILE, TILE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = tile.createGraphics();
+        try {
+            g.setColor(CalculatorStyle.PLOT_BACKGROUND);
+            g.fillRect(0, 0, TILE, TILE);
+            double left = (double) column * TILE;
+            double top = (double) row * TILE;
+            double step = gridStep(sx);
+            for (long k = (long) Math.ceil(left / sx / step); k * step * sx < left + TILE; k++) {
+                g.setColor(k == 0 ? CalculatorStyle.PLOT_AXIS : CalculatorStyle.PLOT_GRID);
+                int x = (int) Math.round(k * step * sx - left);
+                g.drawLine(x, 0, x, TILE);
+            }
+            step = gridStep(sy);
+            for (long k = (long) Math.floor(-top / sy / step); -k * step * sy < top + TILE; k--) {
+                g.setColor(k == 0 ? CalculatorStyle.PLOT_AXIS : CalculatorStyle.PLOT_GRID);
+                int y = (int) Math.round(-k * step * sy - top);
+                g.drawLine(0, y, TILE, y);
+            }
+            // Segments wholly above or below the tile are left out of the path
+            Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, strip.size);
+            boolean drawing = false;
+            boolean any = false;
+            float previous = 0;
+            for (int i = 0; i < strip.size; i++) {
+                double y = strip.y[i];
+                if (!Double.isFinite(y)) {
+                    drawing = false;
+                    continue;
+                }
+                float v = (float) Math.max(-CLIP_PIXELS, Math.min(CLIP_PIXELS, -y * sy - top));
+                if (drawing && !(previous < -MARGIN && v < -MARGIN) && !(previous > TILE + MARGIN && v > TILE + MARGIN)) {
+                    path.lineTo(strip.u[i], v);
+                    any = true;
+                } else {
+                    path.moveTo(strip.u[i], v);
+                    drawing = true;
+                }
+                previous = v;
+            }
+            if (any) {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setStroke(CURVE_STROKE);
+                g.setColor(CalculatorStyle.PLOT_CURVE);
+                g.draw(path);
+            }
+        } finally {
+            g.dispose();
+        }
+        return tile;
+    }
+    
+    static final class Strip {
+        float[] u = new float[128];
+        double[] y = new double[128];
+        int size;
+        
+        void add(double u, double y) {
+            if (size == this.u.length) {
+                this.u = Arrays.copyOf(this.u, size * 2);
+                this.y = Arrays.copyOf(this.y, size * 2);
+            }
+            this.u[size] = (float) u;
+            this.y[size++] = y;
+        }
+        
+        void addAll(Strip other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.u[i], other.y[i]);
+            }
+        }
+    }
+    
+    // Refines seed intervals [from, to): halves are forked until few enough
+    // remain, then each interval is bisected where the curve needs it
+    private static final class Refine extends RecursiveTask<Strip> {
+        private final CompiledExpression f;
+        private final boolean degrees;
+        private final double sx;
+        private final double sy;
+        private final double left;
+        private final double[] seeds;
+        private final int from;
+        private final int to;
+        private Strip points;
+        
+        Refine(CompiledExpression f, boolean degrees, double sx, double sy, double left, double[] seeds, int from, int to) {
+            this.f = f;
+            this.degrees = degrees;
+            this.sx = sx;
+            this.sy = sy;
+            this.left = left;
+            this.seeds = seeds;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected Strip compute() {
+            if (to - from > SEEDS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                Refine first = new Refine(f, degrees, sx, sy, left, seeds, from, mid);
+                Refine second = new Refine(f, degrees, sx, sy, left, seeds, mid, to);
+                invokeAll(first, second);
+                Strip strip = first.join();
+                strip.addAll(second.join());
+                return strip;
+            }
+            points = new Strip();
+            for (int i = from; i < to; i++) {
+                double u = i * SEED_SPACING - MARGIN;
+                points.add(u, seeds[i]);
+                bisect(u, seeds[i], u + SEED_SPACING, seeds[i + 1], 0);
+            }
+            if (to == seeds.length - 1) {
+                points.add(to * SEED_SPACING - MARGIN, seeds[to]);
+            }
+            return points;
+        }
+        
+        // Adds the points strictly inside (ua, ub) that the curve needs there
+        private void bisect(double ua, double ya, double ub, double yb, int depth) {
+            double um = (ua + ub) / 2;
+            double ym = f.sample((left + um) / sx, degrees);
+            boolean finite = Double.isFinite(ya) && Double.isFinite(yb) && Double.isFinite(ym);
+            if (depth < MAX_DEPTH) {
+                // Off the chord, or an edge of the domain lies inside
+                boolean split = finite ? Math.abs(ym - (ya + yb) / 2) * sy > TOLERANCE
+                    : Double.isFinite(ya) || Double.isFinite(yb) || Double.isFinite(ym);
+                if (split) {
+                    bisect(ua, ya, um, ym, depth + 1);
+                    points.add(um, ym);
+                    bisect(um, ym, ub, yb, depth + 1);
+                }
+            } else if (finite && Math.abs(yb - ya) * sy > BREAK_PIXELS && Math.abs(ym - (ya + yb) / 2) * sy > TOLERANCE) {
+                // Still bending across a big jump at 1/16 pixel: a pole such as tan's, left unjoined
+                points.add(um, Double.NaN);
+            }
+        }
+    }
+}
@@ -0,0 +1,577 @@
+package calculator;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// Headless mode: evaluates lines from stdin or a file and writes one result
+// line per input line to stdout, so the calculator works in scripts and
+// pipelines. By default every line is an expression ("2×(3+4)", "sin(30)^2")
+// shown as the display would show it after "="; with --keys every line is a
+// sequence of button presses fed to one CalculatorSession ("12 + 3 =",
+// "9 √", "2 x^y 10 =") and the display is printed after each line. Errors
+// print the same text the display shows. Input and output are byte buffers
+// with no per-line objects beyond the line's String. With --parallel,
+// expression lines are evaluated in batches split across a fork-join pool
+// while the previous batch is written, keeping the input order.
+public final class HeadlessCalculator {
+    static final int BATCH = 8192; // lines per parallel batch
+    static final int FLUSH_BYTES = 32 * 1024;
+    static final String UNKNOWN_KEY = "Error: Unknown key";
+    
+    private final CalculatorEngine engine;
+    private final ForkJoinPool pool;
+    private CalculatorMetrics metrics;
+    
+    public HeadlessCalculator(CalculatorEngine engine) {
+        this(engine, ForkJoinPool.commonPool());
+    }
+    
+    public HeadlessCalculator(CalculatorEngine engine, ForkJoinPool pool) {
+        this.engine = engine;
+        this.pool = pool;
+    }
+    
+    // Times every expression line and counts its errors; null turns it off
+    public void setMetrics(CalculatorMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    // Evaluates every line of in as an expression; flushEachLine suits an
+    // interactive terminal. Returns the number of lines read
+    public long evaluate(InputStream in, OutputStream out, boolean flushEachLine) throws IOException {
+        LineReader reader = new LineReader(in);
+        Utf8Buffer buffer = new Utf8Buffer();
+        Worker worker = new Worker(engine, metrics);
+        long lines = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            worker.evaluate(line, buffer);
+            lines++;
+            if (flushEachLine || buffer.size() >= FLUSH_BYTES) {
+                buffer.writeTo(out);
+                out.flush();
+            }
+        }
+        buffer.writeTo(out);
+        out.flush();
+        return lines;
+    }
+    
+    // As evaluate, with batches of lines split across the pool. Each slice of
+    // a batch has its own compiler, formatter and output buffer, and the
+    // slices are written in order, so the output matches the sequential run
+    public long evaluateParallel(InputStream in, OutputStream out) throws IOException {
+        LineReader reader = new LineReader(in);
+        int slices = Math.max(1, pool.getParallelism());
+        Worker[] workers = new Worker[slices];
+        Utf8Buffer[][] buffers = new Utf8Buffer[2][slices];
+        for (int i = 0; i < slices; i++) {
+            workers[i] = new Worker(engine, metrics);
+            buffers[0][i] = new Utf8Buffer();
+            buffers[1][i] = new Utf8Buffer();
+        }
+        String[][] batches = {new String[BATCH], new String[BATCH]};
+        int current = 0;
+        int n = reader.readBatch(batches[current]);
+        boolean pending = false;
+        long total = 0;
+        while (n > 0) {
+            ForkJoinTask<Void> task = pool.submit(new Batch(workers, batches[current], buffers[current], n));
+            if (pending) {
+                write(buffers[1 - current], out);
+            }
+            int next = reader.readBatch(batches[1 - current]);
+            task.join();
+            total += n;
+            pending = true;
+            current = 1 - current;
+            n = next;
+        }
+        if (pending) {
+            write(buffers[1 - current], out);
+        }
+        out.flush();
+        return total;
+    }
+    
+    private static void write(Utf8Buffer[] buffers, OutputStream out) throws IOException {
+        for (Utf8Buffer buffer : buffers) {
+            buffer.writeTo(out);
+        }
+    }
+    
+    // Feeds every line of in to session as button presses and prints the display after each line
+    public long evaluateKeys(CalculatorSession session, InputStream in, OutputStream out, boolean flushEachLine) throws IOException {
+        LineReader reader = new LineReader(in);
+        Utf8Buffer buffer = new Utf8Buffer();
+        long lines = 0;
+        String line;
+        try {
+            while ((line = reader.readLine()) != null) {
+                buffer.append(press(session, line));
+                buffer.newLine();
+                lines++;
+                if (flushEachLine || buffer.size() >= FLUSH_BYTES) {
+                    buffer.writeTo(out);
+                    out.flush();
+                }
+            }
+        } finally {
+            // Lines already answered are printed even if reading fails
+            buffer.writeTo(out);
+            out.flush();
+        }
+        return lines;
+    }
+    
+    // Replays macro on a fresh session for every line of in, the line's numbers
+    // (separated by spaces or commas) replacing the recorded inputs, and prints
+    // the display after each replay. A blank line replays the recording as is.
+    public long evaluateMacro(Macro macro, InputStream in, OutputStream out, boolean flushEachLine) throws IOException {
+        LineReader reader = new LineReader(in);
+        Utf8Buffer buffer = new Utf8Buffer();
+        long lines = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            CalculatorSession session = new CalculatorSession(engine, new ExpressionCompiler(),
+                    CalculatorSession.configuredDecimal(), entry -> { });
+            session.setMetrics(metrics);
+            String trimmed = line.trim();
+            try {
+                macro.replay(session, trimmed.isEmpty() ? new String[0] : trimmed.split("[\\s,]+"));
+                buffer.append(session.display());
+            } catch (IllegalArgumentException e) {
+                buffer.append(e.getMessage());
+            }
+            buffer.newLine();
+            lines++;
+            if (flushEachLine || buffer.size() >= FLUSH_BYTES) {
+                buffer.writeTo(out);
+                out.flush();
+            }
+        }
+        buffer.writeTo(out);
+        out.flush();
+        return lines;
+    }
+    
+    // Whitespace-separated tokens, each a button label ("x^y", "M+", "sin", "C")
+    // or a run of typed keys ("12.5", "3+4=" with = for Enter). Returns the
+    // display, or an error naming the first token that is neither. A key the
+    // session fails on ends the line with the plain error, and the next line goes on
+    static String press(CalculatorSession session, String line) {
+        try {
+            return pressKeys(session, line);
+        } catch (RuntimeException e) {
+            session.showError(CalculatorEngine.ERROR);
+            return session.display();
+        }
+    }
+    
+    private static String pressKeys(CalculatorSession session, String line) {
+        int i = 0;
+        int length = line.length();
+        while (i < length) {
+            while (i < length && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && !Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (start == i) {
+                break;
+            }
+            String token = line.substring(start, i);
+            CalculatorCommand command = CalculatorCommand.fromLabel(token);
+            if (command != null) {
+                session.process(command);
+                continue;
+            }
+            for (int j = start; j < i; j++) {
+                if (keyCommand(line.charAt(j)) == null) {
+                    return UNKNOWN_KEY + ": " + token;
+                }
+            }
+            for (int j = start; j < i; j++) {
+                session.process(keyCommand(line.charAt(j)));
+            }
+        }
+        return session.display();
+    }
+    
+    private static CalculatorCommand keyCommand(char c) {
+        return c == '=' ? CalculatorCommand.EQUALS : CalculatorCommand.fromKeyChar(c);
+    }
+    
+    // java calculator.Calculator --headless [input] [--keys] [--parallel] [--radians|--degrees] [--cache] [--metrics] [--record file | --macro file]
+    static int run(String[] args, InputStream stdin, OutputStream stdout, PrintStream err) {
+        CalculatorEngine engine = new CalculatorEngine();
+        engine.setCache(FunctionCache.configured());
+        String input = null;
+        boolean keys = false;
+        boolean parallel = false;
+        CalculatorMetrics metrics = null;
+        String record = null;
+        String replay = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--record":
+                case "--macro":
+                    if (i + 1 == args.length) {
+                        err.println(arg + " needs a macro file");
+                        return 2;
+                    }
+                    if (arg.equals("--record")) {
+                        record = args[++i];
+                    } else {
+                        replay = args[++i];
+                    }
+                    break;
+                case "--keys":
+                    keys = true;
+                    break;
+                case "--parallel":
+                    parallel = true;
+                    break;
+                case "--radians":
+                    engine.setAngleModeDegrees(false);
+                    break;
+                case "--degrees":
+                    engine.setAngleModeDegrees(true);
+                    break;
+                case "--metrics":
+                    metrics = new CalculatorMetrics();
+                    break;
+                case "--cache":
+                    if (engine.getCache() == null) {
+                        engine.setCache(new FunctionCache());
+                    }
+                    break;
+                default:
+                    if (arg.startsWith("--") || input != null) {
+                        err.println("Usage: --headless [input] [--keys] [--parallel] [--radians|--degrees] [--cache] [--metrics] [--record file | --macro file]");
+                        err.println("Reads stdin when no input file is given (or it is -)");
+                        return 2;
+                    }
+                    input = arg;
+                    break;
+            }
+        }
+        if (keys && parallel) {
+            err.println("--parallel needs independent lines; --keys lines share one session");
+            return 2;
+        }
+        if (record != null && !keys) {
+            err.println("--record records key sequences; use it with --keys");
+            return 2;
+        }
+        if (replay != null && (keys || parallel)) {
+            err.println("--macro reads inputs, not keys or expressions");
+            return 2;
+        }
+        boolean fromStdin = input == null || input.equals("-");
+        boolean interactive = fromStdin && System.console() != null;
+        HeadlessCalculator calculator = new HeadlessCalculator(engine);
+        if (metrics != null) {
+            // Also on JMX, so a long-running REPL or pipe can be watched from jconsole
+            metrics.register();
+            calculator.setMetrics(metrics);
+        }
+        try (InputStream in = fromStdin ? stdin : Files.newInputStream(Path.of(input))) {
+            if (keys) {
+                CalculatorSession session = new CalculatorSession(engine, new ExpressionCompiler(),
+                        CalculatorSession.configuredDecimal(), entry -> { });
+                if (metrics != null) {
+                    session.setMetrics(metrics);
+                    metrics.gauge("undo.depth", session::undoDepth);
+                }
+                Macro.Recorder recorder = record == null ? null : new Macro.Recorder();
+                session.setRecorder(recorder);
+                calculator.evaluateKeys(session, in, stdout, interactive);
+                if (recorder != null) {
+                    recorder.toMacro().save(Path.of(record));
+                }
+            } else if (replay != null) {
+                calculator.evaluateMacro(Macro.load(Path.of(replay)), in, stdout, interactive);
+            } else if (parallel && !interactive) {
+                calculator.evaluateParallel(in, stdout);
+            } else {
+                calculator.evaluate(in, stdout, interactive);
+            }
+            if (metrics != null) {
+                err.print(metrics.dump());
+            }
+            return 0;
+        } catch (IOException e) {
+            err.println("Error: " + e.getMessage());
+            return 1;
+        }
+    }
+    
+    static int run(String[] args) {
+        return run(args, System.in, new FileOutputStream(FileDescriptor.out), System.err);
+    }
+    
+    // Per-thread evaluation state: compiler cache, formatter and scratch text
+    static final class Worker {
+        private final CalculatorEngine engine;
+        private final CalculatorMetrics metrics; // may be null
+        private final ExpressionCompiler compiler = new ExpressionCompiler();
+        private final NumberFormatter numberFormatter = new NumberFormatter();
+        private final StringBuilder text = new StringBuilder(64);
+        
+        Worker(CalculatorEngine engine, CalculatorMetrics metrics) {
+            this.engine = engine;
+            this.metrics = metrics;
+        }
+        
+        // Blank lines stay blank so output lines match input lines
+        void evaluate(String line, Utf8Buffer out) {
+            if (!line.isBlank()) {
+                long start = metrics == null ? 0 : System.nanoTime();
+                text.setLength(0);
+                try {
+                    double result = compiler.compile(line).evaluate(engine);
+                    if (metrics == null) {
+                        numberFormatter.appendResult(text, result);
+                    } else {
+                        long formatStart = System.nanoTime();
+                        numberFormatter.appendResult(text, result);
+                        metrics.formatting(System.nanoTime() - formatStart);
+                    }
+                } catch (ArithmeticException ex) {
+                    text.setLength(0);
+                    text.append(ex.getMessage());
+                    if (metrics != null) {
+                        metrics.error(ex.getMessage());
+                    }
+                } catch (IllegalArgumentException ex) {
+                    text.setLength(0);
+                    text.append(ExpressionCompiler.SYNTAX_ERROR);
+                    if (metrics != null) {
+                        metrics.error(ExpressionCompiler.SYNTAX_ERROR);
+                    }
+                }
+                if (metrics != null) {
+                    metrics.expression(System.nanoTime() - start);
+                }
+                out.append(text);
+            }
+            out.newLine();
+        }
+    }
+    
+    private static final class Batch extends RecursiveAction {
+        private final Worker[] workers;
+        private final String[] lines;
+        private final Utf8Buffer[] buffers;
+        private final int n;
+        
+        Batch(Worker[] workers, String[] lines, Utf8Buffer[] buffers, int n) {
+            this.workers = workers;
+            this.lines = lines;
+            this.buffers = buffers;
+            this.n = n;
+        }
+        
+        @Override
+        protected void compute() {
+            int slices = workers.length;
+            Slice[] tasks = new Slice[slices];
+            for (int i = 0; i < slices; i++) {
+                tasks[i] = new Slice(workers[i], lines, buffers[i], (int) ((long) n * i / slices), (int) ((long) n * (i + 1) / slices));
+            }
+            invokeAll(tasks);
+        }
+    }
+    
+    private static final class Slice extends RecursiveAction {
+        private final Worker worker;
+        private final String[] lines;
+        private final Utf8Buffer buffer;
+        private final int from;
+        private final int to;
+        
+        Slice(Worker worker, String[] lines, Utf8Buffer buffer, int from, int to) {
+            this.worker = worker;
+            this.lines = lines;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            for (int i = from; i < to; i++) {
+                worker.evaluate(lines[i], buffer);
+                lines[i] = null;
+            }
+        }
+    }
+    
+    // Lines split on \n with an optional \r stripped; a last line without
+    // a terminator still counts
+    static final class LineReader {
+        private final InputStream in;
+        private final int maxLineBytes;
+        private byte[] buffer = new byte[64 * 1024];
+        private int position;
+        private int limit;
+        private boolean eof;
+        private boolean tooLong;
+        
+        LineReader(InputStream in) {
+            this(in, Integer.MAX_VALUE);
+        }
+        
+        // A line longer than maxLineBytes is skipped up to its newline, unread,
+        // and comes back empty with lineTooLong() set, so the buffer stays bounded
+        LineReader(InputStream in, int maxLineBytes) {
+            this.in = in;
+            this.maxLineBytes = maxLineBytes;
+        }
+        
+        // True when the line readLine last returned was skipped for its length
+        boolean lineTooLong() {
+            return tooLong;
+        }
+        
+        // True when a whole line is already buffered, so readLine will not block
+        boolean hasLine() {
+            for (int i = position; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        String readLine() throws IOException {
+            tooLong = false;
+            int scan = position;
+            while (true) {
+                for (; scan < limit; scan++) {
+                    if (buffer[scan] == '\n') {
+                        String line = tooLong ? "" : decode(position, scan);
+                        position = scan + 1;
+                        return line;
+                    }
+                }
+                if (eof) {
+                    if (position == limit && !tooLong) {
+                        return null;
+                    }
+                    String line = tooLong ? "" : decode(position, limit);
+                    position = limit;
+                    return line;
+                }
+                if (limit - position > maxLineBytes) {
+                    tooLong = true;
+                    position = limit; // dropped; nothing of this line is kept
+                }
+                scan -= position;
+                fill();
+            }
+        }
+        
+        int readBatch(String[] lines) throws IOException {
+            int n = 0;
+            String line;
+            while (n < lines.length && (line = readLine()) != null) {
+                lines[n++] = line;
+            }
+            return n;
+        }
+        
+        private String decode(int from, int to) {
+            if (to > from && buffer[to - 1] == '\r') {
+                to--;
+            }
+            return new String(buffer, from, to - from, StandardCharsets.UTF_8);
+        }
+        
+        // Keeps the unfinished line, growing the buffer only for a line longer than it
+        private void fill() throws IOException {
+            int remaining = limit - position;
+            if (remaining == buffer.length) {
+                byte[] larger = new byte[buffer.length * 2];
+                System.arraycopy(buffer, position, larger, 0, remaining);
+                buffer = larger;
+            } else {
+                System.arraycopy(buffer, position, buffer, 0, remaining);
+            }
+            position = 0;
+            limit = remaining;
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+    }
+    
+    // Growable UTF-8 output buffer
+    static final class Utf8Buffer {
+        private byte[] bytes = new byte[FLUSH_BYTES + 1024];
+        private int size;
+        
+        int size() {
+            return size;
+        }
+        
+        void append(CharSequence text) {
+            int length = text.length();
+            ensure(length * 3);
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    bytes[size++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[size++] = (byte) (0xC0 | c >> 6);
+                    bytes[size++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, text.charAt(++i));
+                    bytes[size++] = (byte) (0xF0 | cp >> 18);
+                    bytes[size++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                    bytes[size++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                    bytes[size++] = (byte) (0x80 | cp & 0x3F);
+                } else {
+                    bytes[size++] = (byte) (0xE0 | c >> 12);
+                    bytes[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    bytes[size++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+        }
+        
+        void newLine() {
+            ensure(1);
+            bytes[size++] = '\n';
+        }
+        
+        void writeTo(OutputStream out) throws IOException {
+            out.write(bytes, 0, size);
+            size = 0;
+        }
+        
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                byte[] larger = new byte[Math.max(bytes.length * 2, size + extra)];
+                System.arraycopy(bytes, 0, larger, 0, size);
+                bytes = larger;
+            }
+        }
+    }
+}
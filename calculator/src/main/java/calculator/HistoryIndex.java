@@ -0,0 +1,557 @@
+package calculator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+
+// Search index over every entry of a history, keyed by entry number (the
+// entry's position in the history log). Two structures, both append-only so
+// that indexing a new entry is O(1) amortized:
+//
+// - Terms: every token of an entry (a number, a word such as sin, or a
+//   symbol such as √) is hashed to one of 2^18 posting lists, and so is the
+//   first three characters of every longer token, for prefix lookups while
+//   typing. Postings are ascending entry numbers stored as varint deltas, with
+//   the first entry of every block of 64 kept aside so that lists can be
+//   probed and walked backwards a block at a time.
+// - Results: each numeric result goes into one of 2^16 buckets taken from the
+//   top bits of its order-preserving bit pattern, so the buckets are sorted by
+//   value and a range query only looks inside the two buckets at its ends.
+//
+// Hashing lets lists hold a few unrelated tokens, so candidates are checked
+// against the entry text before they are returned, newest first. Candidates
+// are gathered under the lock a batch at a time and their text is read after
+// it is released, so a slow read from disk never holds up add(). All methods
+// are thread-safe.
+final class HistoryIndex {
+    static final int DEFAULT_LIMIT = 500;
+    
+    private static final int TERM_BITS = 18;
+    private static final int VALUE_BUCKETS = 1 << 16;
+    private static final int PREFIX = 3;
+    private static final int PREFIX_SEED = 0x5BD1E995;
+    private static final int BUILD_CHUNK = 4096;
+    private static final int CANDIDATE_BATCH = 256;
+    
+    private final PostingList[] terms = new PostingList[1 << TERM_BITS];
+    private final ValueBucket[] values = new ValueBucket[VALUE_BUCKETS];
+    private final List<String> pending = new ArrayList<>(); // added while rebuilding, from buildEnd on
+    private int generation;
+    private boolean building;
+    private int buildEnd;
+    
+    // Indexes the entry with the given number; numbers must increase from call to call
+    synchronized void add(int id, String entry) {
+        if (building) {
+            pending.add(entry);
+        } else {
+            index(id, entry);
+        }
+    }
+    
+    synchronized void clear() {
+        Arrays.fill(terms, null);
+        Arrays.fill(values, null);
+        pending.clear();
+        building = false;
+        generation++;
+    }
+    
+    // Indexes the log's current entries on a background thread, a chunk at a
+    // time; entries added meanwhile are indexed once it has caught up, and
+    // searches see whatever has been indexed so far. A clear() abandons it
+    synchronized void rebuild(HistoryLog log) {
+        clear();
+        int upTo = log.size();
+        if (upTo == 0) {
+            return;
+        }
+        building = true;
+        buildEnd = upTo;
+        int build = generation;
+        Thread thread = new Thread(() -> catchUp(log, upTo, build), "history-indexer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    // The newest entries matching query, at most limit of them; entries reads an
+    // entry by number, returning null for one that is no longer available. Stops
+    // early, with what it has found, once cancelled or if the index is cleared
+    List<String> search(Query query, int limit, IntFunction<String> entries, BooleanSupplier cancelled) {
+        List<String> found = new ArrayList<>();
+        int[] ids = new int[CANDIDATE_BATCH];
+        int build = generation();
+        int below = Integer.MAX_VALUE;
+        while (found.size() < limit) {
+            int n = candidates(query, build, below, ids);
+            for (int i = 0; i < n && found.size() < limit; i++) {
+                if (cancelled.getAsBoolean()) {
+                    return found;
+                }
+                String entry = entries.apply(ids[i]);
+                if (entry != null && query.matches(entry)) {
+                    found.add(entry);
+                }
+            }
+            if (n < ids.length) {
+                break;
+            }
+            below = ids[n - 1];
+        }
+        return found;
+    }
+    
+    private synchronized int generation() {
+        return generation;
+    }
+    
+    // Fills ids with the newest candidates numbered below the given one, newest
+    // first, and returns how many; fewer than ids.length means there are no more
+    private synchronized int candidates(Query query, int build, int below, int[] ids) {
+        if (generation != build) {
+            return 0;
+        }
+        Cursor[] cursors = new Cursor[query.tokens.length];
+        for (int i = 0; i < cursors.length; i++) {
+            PostingList list = terms[query.key(i)];
+            if (list == null) {
+                return 0;
+            }
+            cursors[i] = new Cursor(list);
+        }
+        Arrays.sort(cursors, (a, b) -> Integer.compare(a.list.count, b.list.count));
+        // Walk whichever is shorter, the range or the shortest list, newest first,
+        // and probe the lists before taking an entry
+        if (cursors.length == 0 || (query.ranged() && rangeSize(query) < cursors[0].list.count)) {
+            return valueCandidates(query, cursors, below, ids);
+        }
+        PostingList driver = cursors[0].list;
+        int[] block = new int[PostingList.BLOCK];
+        int n = 0;
+        for (int b = driver.blockOf(below - 1); b >= 0 && n < ids.length; b--) {
+            int count = driver.decode(b, block);
+            for (int i = count - 1; i >= 0 && n < ids.length; i--) {
+                if (block[i] < below && holds(block[i], cursors, 1)) {
+                    ids[n++] = block[i];
+                }
+            }
+        }
+        return n;
+    }
+    
+    private int valueCandidates(Query query, Cursor[] cursors, int below, int[] ids) {
+        // Merge the buckets in range by entry number, each from its newest entry below the given one
+        PriorityQueue<int[]> heads = new PriorityQueue<>((a, b) -> Integer.compare(
+                values[b[0]].ids[b[1]], values[a[0]].ids[a[1]]));
+        for (int b = valueBucket(query.low); b <= valueBucket(query.high); b++) {
+            if (values[b] != null) {
+                int at = Arrays.binarySearch(values[b].ids, 0, values[b].size, below);
+                at = at >= 0 ? at - 1 : -at - 2;
+                if (at >= 0) {
+                    heads.add(new int[] {b, at});
+                }
+            }
+        }
+        int n = 0;
+        while (!heads.isEmpty() && n < ids.length) {
+            int[] head = heads.poll();
+            ValueBucket bucket = values[head[0]];
+            double value = bucket.values[head[1]];
+            int id = bucket.ids[head[1]];
+            if (value >= query.low && value <= query.high && holds(id, cursors, 0)) {
+                ids[n++] = id;
+            }
+            if (--head[1] >= 0) {
+                heads.add(head);
+            }
+        }
+        return n;
+    }
+    
+    private int rangeSize(Query query) {
+        int size = 0;
+        for (int b = valueBucket(query.low); b <= valueBucket(query.high); b++) {
+            if (values[b] != null) {
+                size += values[b].size;
+            }
+        }
+        return size;
+    }
+    
+    // Whether every cursor from the given one holds id
+    private static boolean holds(int id, Cursor[] cursors, int from) {
+        for (int i = from; i < cursors.length; i++) {
+            if (!cursors[i].contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void catchUp(HistoryLog log, int upTo, int build) {
+        String[] chunk = new String[BUILD_CHUNK];
+        try {
+            for (int from = 0; from < upTo; from += BUILD_CHUNK) {
+                int n = Math.min(BUILD_CHUNK, upTo - from);
+                for (int i = 0; i < n; i++) {
+                    chunk[i] = log.get(from + i);
+                }
+                synchronized (this) {
+                    if (generation != build) {
+                        return;
+                    }
+                    for (int i = 0; i < n; i++) {
+                        index(from + i, chunk[i]);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Log closed or unreadable: what was indexed stays searchable
+        }
+        synchronized (this) {
+            if (generation == build) {
+                for (int i = 0; i < pending.size(); i++) {
+                    index(buildEnd + i, pending.get(i));
+                }
+                pending.clear();
+                building = false;
+            }
+        }
+    }
+    
+    private void index(int id, String entry) {
+        int length = entry.length();
+        int start = nextToken(entry, 0);
+        while (start < length) {
+            int end = tokenEnd(entry, start);
+            addPosting(hash(entry, start, end, 0), id);
+            if (end - start >= PREFIX) {
+                addPosting(hash(entry, start, start + PREFIX, PREFIX_SEED), id);
+            }
+            start = nextToken(entry, end);
+        }
+        double value = result(entry);
+        if (!Double.isNaN(value)) {
+            int b = valueBucket(value);
+            if (values[b] == null) {
+                values[b] = new ValueBucket();
+            }
+            values[b].add(id, value);
+        }
+    }
+    
+    private void addPosting(int key, int id) {
+        PostingList list = terms[key];
+        if (list == null) {
+            list = new PostingList();
+            terms[key] = list;
+        }
+        list.add(id);
+    }
+    
+    // Tokens are runs of digits and decimal points (with an exponent such as
+    // e+20), runs of letters, or single symbols; spaces, parentheses, commas and
+    // the equals sign only separate them
+    private static boolean separator(char c) {
+        return c == ' ' || c == '(' || c == ')' || c == ',' || c == '=' || Character.isWhitespace(c);
+    }
+    
+    private static boolean numeric(char c) {
+        return (c >= '0' && c <= '9') || c == '.';
+    }
+    
+    private static int nextToken(CharSequence text, int from) {
+        while (from < text.length() && separator(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+    
+    private static int tokenEnd(CharSequence text, int start) {
+        int length = text.length();
+        char first = text.charAt(start);
+        int end = start + 1;
+        if (numeric(first)) {
+            while (end < length) {
+                char c = text.charAt(end);
+                if (numeric(c)) {
+                    end++;
+                } else if ((c == 'e' || c == 'E') && end + 1 < length && (numeric(text.charAt(end + 1))
+                        || ((text.charAt(end + 1) == '+' || text.charAt(end + 1) == '-')
+                        && end + 2 < length && numeric(text.charAt(end + 2))))) {
+                    end += 2;
+                } else {
+                    break;
+                }
+            }
+        } else if (Character.isLetter(first)) {
+            while (end < length && Character.isLetter(text.charAt(end))) {
+                end++;
+            }
+        }
+        return end;
+    }
+    
+    private static int hash(CharSequence text, int start, int end, int seed) {
+        int h = seed;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + Character.toLowerCase(text.charAt(i));
+        }
+        return (h * 0x9E3779B9) >>> (32 - TERM_BITS);
+    }
+    
+    // The number after the last " = ", or NaN if the entry has none
+    static double result(String entry) {
+        int at = entry.lastIndexOf(" = ");
+        if (at < 0 || at + 3 == entry.length()) {
+            return Double.NaN;
+        }
+        char first = entry.charAt(at + 3);
+        if (!numeric(first) && first != '-' && first != 'I') {
+            return Double.NaN; // "Error", and anything else that is not a number, without an exception
+        }
+        try {
+            return Double.parseDouble(entry.substring(at + 3));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+    
+    // Buckets in value order: the top 16 bits of the double with the sign bit
+    // flipped for positive numbers and every bit flipped for negative ones
+    private static int valueBucket(double value) {
+        long bits = Double.doubleToLongBits(value == 0 ? 0.0 : value);
+        long key = bits < 0 ? ~bits : bits | Long.MIN_VALUE;
+        return (int) (key >>> 48);
+    }
+    
+    // A parsed search: every token must appear in an entry, the last one possibly
+    // as a prefix, and a range a..b, ..b or a.. bounds the result
+    static final class Query {
+        final String[] tokens;
+        final boolean lastIsPrefix;
+        final double low;
+        final double high;
+        
+        private Query(String[] tokens, boolean lastIsPrefix, double low, double high) {
+            this.tokens = tokens;
+            this.lastIsPrefix = lastIsPrefix;
+            this.low = low;
+            this.high = high;
+        }
+        
+        // Null for a blank query. Words typed on a keyboard stand in for the
+        // calculator's symbols: sqrt for √, * for × and / for ÷
+        static Query parse(String text) {
+            List<String> tokens = new ArrayList<>();
+            double low = Double.NEGATIVE_INFINITY;
+            double high = Double.POSITIVE_INFINITY;
+            boolean ranged = false;
+            for (String word : text.trim().split("\\s+")) {
+                int dots = word.indexOf("..");
+                if (dots >= 0) {
+                    try {
+                        if (dots > 0) {
+                            low = Double.parseDouble(word.substring(0, dots));
+                        }
+                        if (dots + 2 < word.length()) {
+                            high = Double.parseDouble(word.substring(dots + 2));
+                        }
+                        ranged = true;
+                        continue;
+                    } catch (NumberFormatException e) {
+                        // Not a range after all: search for it as text
+                    }
+                }
+                for (int start = nextToken(word, 0); start < word.length(); start = nextToken(word, tokenEnd(word, start))) {
+                    String token = word.substring(start, tokenEnd(word, start)).toLowerCase();
+                    tokens.add(alias(token));
+                }
+            }
+            if (tokens.isEmpty() && !ranged) {
+                return null;
+            }
+            boolean lastIsPrefix = !tokens.isEmpty() && !Character.isWhitespace(text.charAt(text.length() - 1))
+                    && tokens.get(tokens.size() - 1).length() >= PREFIX;
+            return new Query(tokens.toArray(new String[0]), lastIsPrefix, low, high);
+        }
+        
+        private static String alias(String token) {
+            switch (token) {
+                case "sqrt":
+                    return "√";
+                case "*":
+                    return "×";
+                case "/":
+                    return "÷";
+                default:
+                    return token;
+            }
+        }
+        
+        // The posting list that holds every entry with token i
+        int key(int i) {
+            String token = tokens[i];
+            return lastIsPrefix && i == tokens.length - 1
+                    ? hash(token, 0, PREFIX, PREFIX_SEED)
+                    : hash(token, 0, token.length(), 0);
+        }
+        
+        boolean ranged() {
+            return low != Double.NEGATIVE_INFINITY || high != Double.POSITIVE_INFINITY;
+        }
+        
+        boolean matches(String entry) {
+            if (ranged()) {
+                double value = result(entry);
+                if (!(value >= low && value <= high)) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < tokens.length; i++) {
+                if (!contains(entry, tokens[i], lastIsPrefix && i == tokens.length - 1)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private static boolean contains(String entry, String token, boolean prefix) {
+            int length = entry.length();
+            for (int start = nextToken(entry, 0); start < length; ) {
+                int end = tokenEnd(entry, start);
+                if ((prefix ? end - start >= token.length() : end - start == token.length())
+                        && entry.regionMatches(true, start, token, 0, token.length())) {
+                    return true;
+                }
+                start = nextToken(entry, end);
+            }
+            return false;
+        }
+    }
+    
+    // Ascending entry numbers as varint deltas, in blocks of BLOCK postings
+    // whose first entry is kept uncompressed in blockFirst
+    private static final class PostingList {
+        static final int BLOCK = 64;
+        
+        byte[] bytes = new byte[8];
+        int length;
+        int count;
+        int last = -1;
+        int[] blockFirst = new int[1];
+        int[] blockStart = new int[1]; // offset of the block's second posting in bytes
+        
+        void add(int id) {
+            if (id == last) {
+                return; // the same token twice in one entry
+            }
+            if (count % BLOCK == 0) {
+                int block = count / BLOCK;
+                if (block == blockFirst.length) {
+                    blockFirst = Arrays.copyOf(blockFirst, block * 2);
+                    blockStart = Arrays.copyOf(blockStart, block * 2);
+                }
+                blockFirst[block] = id;
+                blockStart[block] = length;
+            } else {
+                if (length + 5 > bytes.length) {
+                    bytes = Arrays.copyOf(bytes, Math.max(length + 5, bytes.length * 2));
+                }
+                int delta = id - last;
+                while (delta >= 0x80) {
+                    bytes[length++] = (byte) (delta | 0x80);
+                    delta >>>= 7;
+                }
+                bytes[length++] = (byte) delta;
+            }
+            last = id;
+            count++;
+        }
+        
+        int blocks() {
+            return (count + BLOCK - 1) / BLOCK;
+        }
+        
+        // Decodes a block into ids, ascending, and returns its size
+        int decode(int block, int[] ids) {
+            int n = Math.min(BLOCK, count - block * BLOCK);
+            int id = blockFirst[block];
+            ids[0] = id;
+            int at = blockStart[block];
+            for (int i = 1; i < n; i++) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[at++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                id += delta;
+                ids[i] = id;
+            }
+            return n;
+        }
+        
+        // The block that would hold id, or -1 if id is below the first posting
+        int blockOf(int id) {
+            int low = 0;
+            int high = blocks() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (blockFirst[mid] <= id) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high;
+        }
+    }
+    
+    // Membership probes into a posting list, keeping the last block decoded;
+    // probes for decreasing ids mostly land in the same block
+    private static final class Cursor {
+        final PostingList list;
+        private final int[] ids = new int[PostingList.BLOCK];
+        private int block = -1;
+        private int n;
+        
+        Cursor(PostingList list) {
+            this.list = list;
+        }
+        
+        boolean contains(int id) {
+            int b = list.blockOf(id);
+            if (b < 0) {
+                return false;
+            }
+            if (b != block) {
+                n = list.decode(b, ids);
+                block = b;
+            }
+            return Arrays.binarySearch(ids, 0, n, id) >= 0;
+        }
+    }
+    
+    private static final class ValueBucket {
+        int[] ids = new int[4];
+        double[] values = new double[4];
+        int size;
+        
+        void add(int id, double value) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            ids[size] = id;
+            values[size] = value;
+            size++;
+        }
+    }
+}
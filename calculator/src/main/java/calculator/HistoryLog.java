@@ -0,0 +1,303 @@
+package calculator;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Append-only on-disk history: a header followed by length-prefixed UTF-8
+// records. Appends collect in a buffer that a background thread writes and
+// forces to disk every flush interval, so a burst of calculations costs one
+// write and one fsync. Only record offsets stay in memory; entries are read
+// back a page at a time when asked for. All methods are thread-safe.
+final class HistoryLog implements Closeable {
+    static final long DEFAULT_FLUSH_MILLIS = 200;
+    
+    private static final int MAGIC = 0x4A43484C; // "JCHL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int PAGE_BYTES = 64 * 1024;
+    
+    private final FileChannel channel;
+    private final ByteBuffer pending = ByteBuffer.allocate(BUFFER_BYTES);
+    private final ByteBuffer page = ByteBuffer.allocate(PAGE_BYTES);
+    private final ScheduledExecutorService flusher;
+    private long[] offsets = new long[1024];
+    private int count;
+    private long written; // file length, excluding what is still pending
+    private boolean dirty; // written but not yet forced
+    private long pageStart = -1;
+    private boolean closed;
+    
+    private HistoryLog(FileChannel channel, long flushMillis) throws IOException {
+        this.channel = channel;
+        recover();
+        if (flushMillis > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "history-log-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+    
+    // Opens or creates the log; flushMillis <= 0 leaves flushing to flush() and close()
+    static HistoryLog open(Path path, long flushMillis) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new HistoryLog(channel, flushMillis);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    synchronized int size() {
+        return count;
+    }
+    
+    synchronized void append(String entry) throws IOException {
+        ensureOpen();
+        byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+        if (pending.remaining() < 4 + bytes.length) {
+            writePending();
+        }
+        addOffset(written + pending.position());
+        if (4 + bytes.length > pending.capacity()) {
+            ByteBuffer record = ByteBuffer.allocate(4 + bytes.length);
+            record.putInt(bytes.length).put(bytes).flip();
+            writeFully(record, written);
+            written += record.capacity();
+            dirty = true;
+        } else {
+            pending.putInt(bytes.length).put(bytes);
+        }
+    }
+    
+    // Entry by position, 0 being the oldest in the file
+    synchronized String get(int index) throws IOException {
+        ensureOpen();
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + count);
+        }
+        long offset = offsets[index];
+        if (offset >= written) {
+            int at = (int) (offset - written);
+            int length = pending.getInt(at);
+            return new String(pending.array(), at + 4, length, StandardCharsets.UTF_8);
+        }
+        if (pageStart < 0 || offset < pageStart || offset + 4 > pageStart + page.limit()) {
+            loadPage(offset);
+        }
+        int at = (int) (offset - pageStart);
+        int length = page.getInt(at);
+        if (at + 4 + length <= page.limit()) {
+            return new String(page.array(), at + 4, length, StandardCharsets.UTF_8);
+        }
+        if (length <= PAGE_BYTES - 4) {
+            loadPage(offset);
+            return new String(page.array(), 4, length, StandardCharsets.UTF_8);
+        }
+        ByteBuffer record = ByteBuffer.allocate(length);
+        readFully(record, offset + 4);
+        return new String(record.array(), 0, length, StandardCharsets.UTF_8);
+    }
+    
+    // Streams every entry to out as numbered lines, copying record bytes without decoding them
+    synchronized void writeTo(OutputStream out) throws IOException {
+        ensureOpen();
+        writePending();
+        byte[] separator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer chunk = ByteBuffer.allocate(BUFFER_BYTES);
+        chunk.flip();
+        long position = HEADER_BYTES;
+        for (int i = 0; i < count; i++) {
+            if (chunk.remaining() < 4) {
+                position = refill(chunk, position);
+            }
+            int length = chunk.getInt();
+            out.write(Integer.toString(i + 1).getBytes(StandardCharsets.US_ASCII));
+            out.write('.');
+            out.write(' ');
+            while (length > 0) {
+                if (!chunk.hasRemaining()) {
+                    position = refill(chunk, position);
+                }
+                int n = Math.min(length, chunk.remaining());
+                out.write(chunk.array(), chunk.position(), n);
+                chunk.position(chunk.position() + n);
+                length -= n;
+            }
+            out.write(separator);
+        }
+    }
+    
+    synchronized void clear() throws IOException {
+        ensureOpen();
+        pending.clear();
+        channel.truncate(HEADER_BYTES);
+        channel.force(false);
+        written = HEADER_BYTES;
+        count = 0;
+        dirty = false;
+        pageStart = -1;
+    }
+    
+    // Writes pending entries and forces them to disk
+    synchronized void flush() throws IOException {
+        ensureOpen();
+        writePending();
+        if (dirty) {
+            channel.force(false);
+            dirty = false;
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            try {
+                flush();
+            } finally {
+                closed = true;
+                channel.close();
+            }
+        }
+    }
+    
+    private void flushQuietly() {
+        try {
+            synchronized (this) {
+                if (!closed) {
+                    flush();
+                }
+            }
+        } catch (IOException e) {
+            // Retried on the next tick; close() reports a failure that persists
+        }
+    }
+    
+    // Validates the header and indexes every complete record, dropping a torn tail left by a crash
+    private void recover() throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        if (size < HEADER_BYTES) {
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.truncate(0);
+            writeFully(header, 0);
+            channel.force(false);
+            written = HEADER_BYTES;
+            return;
+        }
+        readFully(header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not a calculator history log (version " + VERSION + ")");
+        }
+        ByteBuffer chunk = ByteBuffer.allocate(BUFFER_BYTES);
+        chunk.flip();
+        long chunkStart = HEADER_BYTES; // file position of chunk index 0
+        long position = HEADER_BYTES;
+        while (size - position >= 4) {
+            if (position + 4 > chunkStart + chunk.limit()) {
+                chunk.clear();
+                chunk.limit((int) Math.min(chunk.capacity(), size - position));
+                readFully(chunk, position);
+                chunk.flip();
+                chunkStart = position;
+            }
+            int length = chunk.getInt((int) (position - chunkStart));
+            if (length < 0 || length > size - position - 4) {
+                break;
+            }
+            addOffset(position);
+            position += 4L + length;
+        }
+        if (position != size) {
+            channel.truncate(position);
+            channel.force(false);
+        }
+        written = position;
+    }
+    
+    private void writePending() throws IOException {
+        if (pending.position() == 0) {
+            return;
+        }
+        pending.flip();
+        writeFully(pending, written);
+        written += pending.limit();
+        pending.clear();
+        dirty = true;
+    }
+    
+    private void loadPage(long offset) throws IOException {
+        page.clear();
+        page.limit((int) Math.min(PAGE_BYTES, written - offset));
+        readFully(page, offset);
+        page.flip();
+        pageStart = offset;
+    }
+    
+    private long refill(ByteBuffer chunk, long position) throws IOException {
+        chunk.compact();
+        chunk.limit((int) Math.min(chunk.capacity(), chunk.position() + written - position));
+        int before = chunk.position();
+        readFully(chunk, position);
+        chunk.flip();
+        return position + (chunk.limit() - before);
+    }
+    
+    private void addOffset(long offset) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count++] = offset;
+    }
+    
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+    
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new EOFException("History log ended unexpectedly");
+            }
+            position += n;
+        }
+    }
+    
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("History log is closed");
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package calculator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+// Drives an EvaluationServer on localhost: each connection sends a pipelined
+// batch of expressions, waits for all the replies and repeats until the run
+// ends. Reports lines answered per second and the round-trip latency of a
+// batch as seen by the client. Without a port it starts a server in-process.
+public final class LoadGenerator {
+    public static final int MAX_PIPELINE = 1024; // keeps a batch within the socket buffers
+    private static final String[] FORMULAS = {"sin(30)^2+cos(60)", "2×(3+4)", "√2÷3", "5!-1", "ln(10)×log(1000)"};
+    private static final String[] OPERATORS = {"+", "−", "×", "÷", "^", " mod "};
+    
+    private final int port;
+    private final int connections;
+    private final int pipeline;
+    private final LongAdder lines = new LongAdder();
+    private final LatencyHistogram roundTrip = new LatencyHistogram();
+    
+    public LoadGenerator(int port, int connections, int pipeline) {
+        if (connections < 1 || pipeline < 1 || pipeline > MAX_PIPELINE) {
+            throw new IllegalArgumentException("Need at least one connection and a pipeline of 1 to " + MAX_PIPELINE);
+        }
+        this.port = port;
+        this.connections = connections;
+        this.pipeline = pipeline;
+    }
+    
+    // Runs every connection for the given time; returns lines answered
+    public long run(long millis) throws IOException {
+        long deadline = System.nanoTime() + millis * 1_000_000L;
+        ExecutorService executor = EvaluationServer.connectionExecutor();
+        try {
+            List<Future<?>> clients = new ArrayList<>();
+            for (int i = 0; i < connections; i++) {
+                long seed = i;
+                clients.add(executor.submit(() -> {
+                    client(seed, deadline);
+                    return null;
+                }));
+            }
+            for (Future<?> client : clients) {
+                client.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        return lines.sum();
+    }
+    
+    public LatencyHistogram roundTrip() {
+        return roundTrip;
+    }
+    
+    private void client(long seed, long deadline) throws IOException {
+        byte[] batch = batch(new SplittableRandom(seed));
+        byte[] reply = new byte[64 * 1024];
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+            while (System.nanoTime() < deadline) {
+                long start = System.nanoTime();
+                out.write(batch);
+                int pending = pipeline;
+                while (pending > 0) {
+                    int n = in.read(reply);
+                    if (n < 0) {
+                        throw new IOException("Server closed the connection");
+                    }
+                    for (int i = 0; i < n; i++) {
+                        if (reply[i] == '\n') {
+                            pending--;
+                        }
+                    }
+                }
+                roundTrip.record(System.nanoTime() - start);
+                lines.add(pipeline);
+            }
+        }
+    }
+    
+    // Half repeated formulas, half random binary operations, as in HeadlessBenchmark
+    private byte[] batch(SplittableRandom random) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pipeline; i++) {
+            if (i % 2 == 0) {
+                sb.append(FORMULAS[random.nextInt(FORMULAS.length)]);
+            } else {
+                sb.append(random.nextInt(1, 1000)).append(OPERATORS[random.nextInt(OPERATORS.length)])
+                    .append(random.nextInt(1, 10)).append('.').append(random.nextInt(100));
+            }
+            sb.append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    // java calculator.Calculator --load [port] [--connections N] [--pipeline N] [--seconds N]
+    static int run(String[] args, PrintStream err) {
+        int port = -1;
+        int connections = 16;
+        int pipeline = 100;
+        int seconds = 10;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                boolean hasValue = i + 1 < args.length;
+                if (args[i].equals("--connections") && hasValue) {
+                    connections = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--pipeline") && hasValue) {
+                    pipeline = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--seconds") && hasValue) {
+                    seconds = Integer.parseInt(args[++i]);
+                } else {
+                    port = Integer.parseInt(args[i]);
+                }
+            }
+        } catch (NumberFormatException e) {
+            return usage(err);
+        }
+        if (connections < 1 || pipeline < 1 || pipeline > MAX_PIPELINE || seconds < 1) {
+            return usage(err);
+        }
+        EvaluationServer server = null;
+        try {
+            if (port < 0) {
+                server = EvaluationServer.start(0);
+                port = server.port();
+            }
+            LoadGenerator generator = new LoadGenerator(port, connections, pipeline);
+            long start = System.nanoTime();
+            long total = generator.run(seconds * 1000L);
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            LatencyHistogram rt = generator.roundTrip();
+            err.printf(Locale.ROOT, "%d connections, pipeline %d: %d lines in %.1f s (%.0f lines/s)%n",
+                connections, pipeline, total, elapsed, total / elapsed);
+            err.printf(Locale.ROOT, "batch round trip: p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus%n",
+                rt.percentile(0.5) / 1e3, rt.percentile(0.99) / 1e3, rt.percentile(0.999) / 1e3, rt.max() / 1e3);
+            if (server != null) {
+                err.println("server: " + server.stats());
+            }
+            return 0;
+        } catch (IOException e) {
+            err.println("Error: " + e.getMessage());
+            return 1;
+        } finally {
+            if (server != null) {
+                try {
+                    server.close();
+                } catch (IOException e) {
+                    // Exiting anyway
+                }
+            }
+        }
+    }
+    
+    private static int usage(PrintStream err) {
+        err.println("Usage: --load [port] [--connections N] [--pipeline 1-" + MAX_PIPELINE + "] [--seconds N]");
+        err.println("Starts a server in-process when no port is given");
+        return 2;
+    }
+}
@@ -0,0 +1,225 @@
+package calculator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+// A recorded sequence of calculator commands that can be replayed on any
+// session. Each run of digit and decimal-point keys is an input: replay can
+// put new numbers in their place, in order, so "12.5 × 1.08 =" recorded once
+// serves any amount and rate. Replay works on the session directly and
+// takes each input run as one step, so a million recorded keys replay in
+// milliseconds. Immutable.
+//
+// On disk: "JMAC", a version, the labels of the commands used, then one byte
+// per step indexing that table. Labels rather than enum ordinals keep saved
+// macros valid when commands are added.
+public final class Macro {
+    public static final int MAX_STEPS = Integer.MAX_VALUE - 8;
+    private static final int MAGIC = 0x4A4D4143; // "JMAC"
+    private static final int VERSION = 1;
+    
+    private final CalculatorCommand[] steps;
+    // Compiled form: the steps with each input run replaced by null
+    private final CalculatorCommand[] ops;
+    private final String[] recordedInputs;
+    
+    public Macro(CalculatorCommand[] steps) {
+        this.steps = steps.clone();
+        CalculatorCommand[] compiled = new CalculatorCommand[steps.length];
+        String[] inputs = new String[16];
+        int opCount = 0;
+        int inputCount = 0;
+        for (int i = 0; i < steps.length; ) {
+            if (!isNumberKey(steps[i])) {
+                compiled[opCount++] = Objects.requireNonNull(steps[i++]);
+                continue;
+            }
+            int start = i;
+            while (i < steps.length && isNumberKey(steps[i])) {
+                i++;
+            }
+            char[] run = new char[i - start];
+            for (int j = start; j < i; j++) {
+                run[j - start] = steps[j].label().charAt(0);
+            }
+            if (inputCount == inputs.length) {
+                inputs = Arrays.copyOf(inputs, inputCount * 2);
+            }
+            inputs[inputCount++] = new String(run);
+            compiled[opCount++] = null;
+        }
+        ops = Arrays.copyOf(compiled, opCount);
+        recordedInputs = Arrays.copyOf(inputs, inputCount);
+    }
+    
+    static boolean isNumberKey(CalculatorCommand command) {
+        return command.ordinal() <= CalculatorCommand.DECIMAL.ordinal();
+    }
+    
+    public int length() {
+        return steps.length;
+    }
+    
+    // The numbers typed while recording, in the order replay takes its inputs
+    public List<String> recordedInputs() {
+        return List.of(recordedInputs);
+    }
+    
+    // Runs the macro on session. inputs replace the recorded numbers in order;
+    // recorded numbers beyond the last input are typed as recorded. An input is
+    // a plain decimal number such as 250, -3.5 or .75
+    public void replay(CalculatorSession session, String... inputs) {
+        for (String input : inputs) {
+            if (!isPlainNumber(input)) {
+                throw new IllegalArgumentException("Not a number: " + input);
+            }
+        }
+        int slot = 0;
+        for (CalculatorCommand op : ops) {
+            if (op != null) {
+                session.process(op);
+            } else {
+                String number = slot < inputs.length ? inputs[slot] : recordedInputs[slot];
+                slot++;
+                boolean negative = number.startsWith("-");
+                session.type(negative ? number.substring(1) : number);
+                if (negative) {
+                    session.process(CalculatorCommand.SIGN_CHANGE);
+                }
+            }
+        }
+    }
+    
+    static boolean isPlainNumber(String text) {
+        int start = text.startsWith("-") ? 1 : 0;
+        boolean digits = false;
+        boolean point = false;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '.' && !point) {
+                point = true;
+            } else if (c >= '0' && c <= '9') {
+                digits = true;
+            } else {
+                return false;
+            }
+        }
+        return digits;
+    }
+    
+    public void writeTo(OutputStream out) throws IOException {
+        CalculatorCommand[] all = CalculatorCommand.values();
+        byte[] index = new byte[all.length];
+        List<CalculatorCommand> used = new ArrayList<>();
+        boolean[] seen = new boolean[all.length];
+        for (CalculatorCommand step : steps) {
+            if (!seen[step.ordinal()]) {
+                seen[step.ordinal()] = true;
+                index[step.ordinal()] = (byte) used.size();
+                used.add(step);
+            }
+        }
+        byte[] codes = new byte[steps.length];
+        for (int i = 0; i < steps.length; i++) {
+            codes[i] = index[steps[i].ordinal()];
+        }
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeByte(used.size());
+        for (CalculatorCommand command : used) {
+            data.writeUTF(command.label());
+        }
+        data.writeInt(codes.length);
+        data.write(codes);
+        data.flush();
+    }
+    
+    public static Macro readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+            throw new IOException("Not a calculator macro (version " + VERSION + ")");
+        }
+        CalculatorCommand[] table = new CalculatorCommand[data.readUnsignedByte()];
+        for (int i = 0; i < table.length; i++) {
+            String label = data.readUTF();
+            table[i] = CalculatorCommand.fromLabel(label);
+            if (table[i] == null) {
+                throw new IOException("Unknown command in macro: " + label);
+            }
+        }
+        int length = data.readInt();
+        if (length < 0 || length > MAX_STEPS) {
+            throw new IOException("Corrupt macro length: " + length);
+        }
+        byte[] codes = data.readNBytes(length);
+        if (codes.length < length) {
+            throw new IOException("Macro ends after " + codes.length + " of " + length + " steps");
+        }
+        CalculatorCommand[] steps = new CalculatorCommand[length];
+        for (int i = 0; i < length; i++) {
+            int code = codes[i] & 0xFF;
+            if (code >= table.length) {
+                throw new IOException("Corrupt macro step " + i);
+            }
+            steps[i] = table[code];
+        }
+        return new Macro(steps);
+    }
+    
+    // Written to a temporary file first, so a failed save keeps the old macro
+    public void save(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                writeTo(out);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    public static Macro load(Path path) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            return readFrom(in);
+        }
+    }
+    
+    // Collects commands as they are processed; see CalculatorSession.setRecorder
+    public static final class Recorder {
+        private CalculatorCommand[] steps = new CalculatorCommand[256];
+        private int size;
+        
+        public void add(CalculatorCommand command) {
+            if (size == steps.length) {
+                if (size == MAX_STEPS) {
+                    throw new IllegalStateException("Macro longer than " + MAX_STEPS + " steps");
+                }
+                steps = Arrays.copyOf(steps, (int) Math.min(MAX_STEPS, size * 2L));
+            }
+            steps[size++] = command;
+        }
+        
+        public int size() {
+            return size;
+        }
+        
+        public Macro toMacro() {
+            return new Macro(Arrays.copyOf(steps, size));
+        }
+    }
+}
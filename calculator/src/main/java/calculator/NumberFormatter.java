@@ -0,0 +1,367 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+// Double-to-text conversion for the display and the history without
+// String.format or regular expressions. Digits come from the Schubfach
+// algorithm (R. Giulietti, "The Schubfach way to render doubles"), which
+// yields the shortest decimal that rounds back to the same double; the
+// significant-digits form rounds those digits half-up, as %.10g does.
+//
+// Every append method writes into the caller's StringBuilder and allocates
+// nothing. An instance keeps scratch state, so it must not be shared
+// between threads.
+public final class NumberFormatter {
+    public static final int DISPLAY_DIGITS = 10;
+    
+    private static final int P = 53;
+    private static final int Q_MIN = -1074;
+    private static final long C_MIN = 1L << (P - 1);
+    private static final long T_MASK = C_MIN - 1;
+    private static final int BQ_MASK = 0x7ff;
+    private static final long C_TINY = 3;
+    private static final int K_MIN = -324;
+    private static final int K_MAX = 292;
+    private static final long MASK_63 = (1L << 63) - 1;
+    private static final BigDecimal LOG10_2 = new BigDecimal("0.30102999566398119521373889472449302676818988146211");
+    
+    private static final long[] POW10 = new long[19];
+    // 126-bit approximations of 10^-k for k in [K_MIN, K_MAX], split into 63-bit halves
+    private static final long[] G = new long[(K_MAX - K_MIN + 1) << 1];
+    
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+        // g = floor(10^-k * 2^-r) + 1 where r is chosen so that 2^125 <= g < 2^126
+        BigInteger mask63 = BigInteger.ONE.shiftLeft(63).subtract(BigInteger.ONE);
+        for (int k = K_MIN; k <= K_MAX; k++) {
+            int r = flog2pow10(-k) - 125;
+            BigInteger g;
+            if (k <= 0) {
+                BigInteger p = BigInteger.TEN.pow(-k);
+                g = r >= 0 ? p.shiftRight(r) : p.shiftLeft(-r);
+            } else {
+                g = BigInteger.ONE.shiftLeft(-r).divide(BigInteger.TEN.pow(k));
+            }
+            g = g.add(BigInteger.ONE);
+            G[(k - K_MIN) << 1] = g.shiftRight(63).longValue();
+            G[(k - K_MIN) << 1 | 1] = g.and(mask63).longValue();
+        }
+    }
+    
+    // Result of the last decomposition: |v| = digits * 10^exponent, digits without trailing zeros
+    private long digits;
+    private int exponent;
+    private final char[] scratch = new char[20];
+    private final StringBuilder text = new StringBuilder(32);
+    
+    // CalculatorSession.formatNumber rules: integers verbatim, anything else to ten significant digits
+    public String formatNumber(double value) {
+        text.setLength(0);
+        return appendNumber(text, value).toString();
+    }
+    
+    // CalculatorSession.displayResult rules: integers verbatim, ten significant digits
+    // inside (1e-4, 1e10) and the shortest round-trip form outside it
+    public String formatResult(double value) {
+        text.setLength(0);
+        return appendResult(text, value).toString();
+    }
+    
+    public StringBuilder appendNumber(StringBuilder sb, double value) {
+        if (value == (long) value) {
+            return sb.append((long) value);
+        }
+        return appendSignificant(sb, value, DISPLAY_DIGITS);
+    }
+    
+    public StringBuilder appendResult(StringBuilder sb, double value) {
+        if (value == (long) value) {
+            return sb.append((long) value);
+        }
+        if (Math.abs(value) < 1e10 && Math.abs(value) > 1e-4 || value == 0) {
+            return appendSignificant(sb, value, DISPLAY_DIGITS);
+        }
+        return appendShortest(sb, value);
+    }
+    
+    // Integers beyond the double range (large factorials): the integer itself
+    // when it fits a long, else the leading digits in appendShortest's layout
+    public String formatBig(BigInteger value) {
+        text.setLength(0);
+        return appendBig(text, value, DISPLAY_DIGITS).toString();
+    }
+    
+    // Leading digits come from log10 of the top 63 bits plus the binary
+    // exponent times log10(2), the latter in BigDecimal so that the fraction
+    // keeps full double precision whatever the size of the exponent
+    public StringBuilder appendBig(StringBuilder sb, BigInteger value, int precision) {
+        if (precision < 1 || precision > 17) {
+            throw new IllegalArgumentException("Precision out of range: " + precision);
+        }
+        if (value.bitLength() < 63) {
+            return sb.append(value.longValue());
+        }
+        if (value.signum() < 0) {
+            sb.append('-');
+            value = value.negate();
+        }
+        int shift = value.bitLength() - 63;
+        long top = value.shiftRight(shift).longValue();
+        BigDecimal scaled = LOG10_2.multiply(BigDecimal.valueOf(shift));
+        BigDecimal whole = new BigDecimal(scaled.toBigInteger());
+        double fraction = scaled.subtract(whole).doubleValue() + Math.log10(top);
+        long sciExp = whole.longValueExact() + (long) Math.floor(fraction);
+        fraction -= Math.floor(fraction);
+        digits = Math.round(Math.pow(10, fraction + precision - 1));
+        if (digits >= POW10[precision]) {
+            digits /= 10;
+            sciExp++;
+        }
+        int n = precision;
+        while (n > 2 && digits % 10 == 0) {
+            digits /= 10;
+            n--;
+        }
+        writeDigits(digits, n);
+        sb.append(scratch[0]).append('.').append(scratch, 1, n - 1);
+        return sb.append('E').append(sciExp);
+    }
+    
+    // Shortest round-trip digits laid out like Double.toString: plain decimal
+    // within [1e-3, 1e7), computerized scientific notation ("1.5E-7") outside
+    public StringBuilder appendShortest(StringBuilder sb, double value) {
+        if (appendSpecial(sb, value)) {
+            return value == 0 ? sb.append(".0") : sb;
+        }
+        decompose(value);
+        int n = digitCount(digits);
+        int sciExp = n - 1 + exponent;
+        if (sciExp >= -3 && sciExp < 7) {
+            appendPlain(sb, n, true);
+            return sb;
+        }
+        writeDigits(digits, n);
+        sb.append(scratch[0]).append('.');
+        if (n > 1) {
+            sb.append(scratch, 1, n - 1);
+        } else {
+            sb.append('0');
+        }
+        return sb.append('E').append(sciExp);
+    }
+    
+    // The value rounded half-up to the given number of significant digits, laid
+    // out like %g: plain decimal within [1e-4, 10^precision) with trailing
+    // fraction zeros removed, otherwise scientific with a zero-padded mantissa
+    public StringBuilder appendSignificant(StringBuilder sb, double value, int precision) {
+        if (precision < 1 || precision > 18) {
+            throw new IllegalArgumentException("Precision out of range: " + precision);
+        }
+        if (appendSpecial(sb, value)) {
+            return sb;
+        }
+        decompose(value);
+        int n = digitCount(digits);
+        if (n > precision) {
+            long unit = POW10[n - precision];
+            long rest = digits % unit;
+            digits /= unit;
+            exponent += n - precision;
+            if (rest * 2 >= unit) {
+                digits++;
+                if (digits == POW10[precision]) {
+                    digits /= 10;
+                    exponent++;
+                }
+            }
+            n = precision;
+        }
+        int sciExp = n - 1 + exponent;
+        if (sciExp < -4 || sciExp >= precision) {
+            writeDigits(digits, n);
+            sb.append(scratch[0]);
+            if (precision > 1) {
+                sb.append('.').append(scratch, 1, n - 1);
+                for (int i = n; i < precision; i++) {
+                    sb.append('0');
+                }
+            }
+            sb.append('e').append(sciExp < 0 ? '-' : '+');
+            int absExp = Math.abs(sciExp);
+            if (absExp < 10) {
+                sb.append('0');
+            }
+            return sb.append(absExp);
+        }
+        while (exponent < 0 && digits % 10 == 0) {
+            digits /= 10;
+            exponent++;
+            n--;
+        }
+        appendPlain(sb, n, false);
+        return sb;
+    }
+    
+    // Writes NaN, infinities and the sign; returns true when nothing else is needed
+    private boolean appendSpecial(StringBuilder sb, double value) {
+        if (Double.isNaN(value)) {
+            sb.append("NaN");
+            return true;
+        }
+        if (value < 0 || value == 0 && 1 / value < 0) {
+            sb.append('-');
+        }
+        if (Double.isInfinite(value)) {
+            sb.append("Infinity");
+            return true;
+        }
+        if (value == 0) {
+            sb.append('0');
+            return true;
+        }
+        return false;
+    }
+    
+    // digits * 10^exponent in positional notation; forceFraction appends ".0" to integers
+    private void appendPlain(StringBuilder sb, int n, boolean forceFraction) {
+        writeDigits(digits, n);
+        int intDigits = n + exponent;
+        if (intDigits <= 0) {
+            sb.append("0.");
+            for (int i = intDigits; i < 0; i++) {
+                sb.append('0');
+            }
+            sb.append(scratch, 0, n);
+        } else if (intDigits >= n) {
+            sb.append(scratch, 0, n);
+            for (int i = n; i < intDigits; i++) {
+                sb.append('0');
+            }
+            if (forceFraction) {
+                sb.append(".0");
+            }
+        } else {
+            sb.append(scratch, 0, intDigits).append('.').append(scratch, intDigits, n - intDigits);
+        }
+    }
+    
+    private void writeDigits(long value, int n) {
+        for (int i = n - 1; i >= 0; i--) {
+            scratch[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+    
+    private static int digitCount(long value) {
+        int n = 1;
+        while (n < POW10.length && value >= POW10[n]) {
+            n++;
+        }
+        return n;
+    }
+    
+    // Schubfach: sets digits and exponent to the shortest decimal rounding to |v|
+    private void decompose(double v) {
+        long bits = Double.doubleToRawLongBits(v);
+        long t = bits & T_MASK;
+        int bq = (int) (bits >>> (P - 1)) & BQ_MASK;
+        if (bq != 0) {
+            int mq = -Q_MIN + 1 - bq;
+            long c = C_MIN | t;
+            // Integers below 2^53 need no search
+            if (0 < mq && mq < P) {
+                long f = c >> mq;
+                if (f << mq == c) {
+                    setDecimal(f, 0);
+                    return;
+                }
+            }
+            toDecimal(-mq, c, 0);
+        } else if (t < C_TINY) {
+            toDecimal(Q_MIN, 10 * t, -1);
+        } else {
+            toDecimal(Q_MIN, t, 0);
+        }
+    }
+    
+    private void toDecimal(int q, long c, int dk) {
+        int out = (int) c & 0x1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != C_MIN || q == Q_MIN) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        int h = q + flog2pow10(-k) + 2;
+        
+        long g1 = G[(k - K_MIN) << 1];
+        long g0 = G[(k - K_MIN) << 1 | 1];
+        
+        long vb = rop(g1, g0, cb << h);
+        long vbl = rop(g1, g0, cbl << h);
+        long vbr = rop(g1, g0, cbr << h);
+        
+        long s = vb >> 2;
+        if (s >= 100) {
+            // Prefer a decimal one digit shorter when one rounds to v
+            long sp10 = 10 * Math.multiplyHigh(s, 115_292_150_460_684_698L << 4);
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) {
+                setDecimal(upin ? sp10 : tp10, k);
+                return;
+            }
+        }
+        
+        long t = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (t << 2) + out <= vbr;
+        if (uin != win) {
+            setDecimal(uin ? s : t, k + dk);
+            return;
+        }
+        long cmp = vb - (s + t << 1);
+        setDecimal(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk);
+    }
+    
+    private void setDecimal(long f, int e) {
+        while (f % 10 == 0) {
+            f /= 10;
+            e++;
+        }
+        digits = f;
+        exponent = e;
+    }
+    
+    // Round-to-odd multiplication of the 126-bit g by cp, keeping the top bits
+    private static long rop(long g1, long g0, long cp) {
+        long x1 = Math.multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = Math.multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+    
+    private static int flog10pow2(int e) {
+        return (int) (e * 661_971_961_083L >> 41);
+    }
+    
+    private static int flog10threeQuartersPow2(int e) {
+        return (int) (e * 661_971_961_083L + -274_743_187_321L >> 41);
+    }
+    
+    private static int flog2pow10(int e) {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+}
@@ -0,0 +1,378 @@
+package calculator;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.DoubleUnaryOperator;
+
+// Root finding and integration of a function of x, behind solve(f, a, b) and
+// integrate(f, a, b). solve is Brent's method: it keeps a bracket with a sign
+// change and takes inverse quadratic or secant steps inside it, falling back
+// to bisection whenever they would not shrink the bracket fast enough.
+// integrate is globally adaptive Gauss-Kronrod quadrature, the 15-point
+// Kronrod rule with its embedded 7-point Gauss rule and the QUADPACK error
+// estimate. Each round bisects every subinterval whose error is above its share
+// of the tolerance, spread over a fork-join pool, until the summed error
+// estimate meets the tolerance or the evaluation budget is spent. f reports
+// errors as ArithmeticException carrying display text, as the engine does;
+// they surface unchanged from whichever thread hit them.
+public final class Numerics {
+    public static final String NO_SIGN_CHANGE = "Error: No sign change in interval";
+    public static final String NO_ROOT = "Error: No root in interval";
+    public static final String NOT_CONVERGED = "Error: Did not converge";
+    public static final int SOLVE_BUDGET = 1000; // evaluations of f
+    public static final long INTEGRATE_BUDGET = 200_000;
+    public static final double RELATIVE_TOLERANCE = 1e-10;
+    public static final double ABSOLUTE_TOLERANCE = 1e-12;
+    private static final double EPSILON = Math.ulp(1.0);
+    private static final int RULE_POINTS = 15;
+    private static final int INTERVALS_PER_TASK = 4; // bisections one fork-join task computes
+    
+    // Kronrod nodes, from the end of [-1, 1] to the middle; the odd ones are the Gauss nodes
+    private static final double[] KRONROD_NODES = {
+        0.991455371120812639206854697526329, 0.949107912342758524526189684047851,
+        0.864864423359769072789712788640926, 0.741531185599394439863864773280788,
+        0.586087235467691130294144845693013, 0.405845151377397166906606412076961,
+        0.207784955007898467600689403773245, 0.000000000000000000000000000000000
+    };
+    private static final double[] KRONROD_WEIGHTS = {
+        0.022935322010529224963732008058970, 0.063092092629978553290700663189204,
+        0.104790010322250183839876322541518, 0.140653259715525918745189590510238,
+        0.169004726639267902826583426598550, 0.190350578064785409913256402421014,
+        0.204432940075298892414161999234649, 0.209482141084727828012999174891714
+    };
+    private static final double[] GAUSS_WEIGHTS = {
+        0.129484966168869693270611432679082, 0.279705391489276667901467771423780,
+        0.381830050505118944950369775488975, 0.417959183673469387755102040816327
+    };
+    
+    // A solve or integrate result: the value, a bound on its error, the
+    // evaluations of f it took, and whether the error met the tolerance
+    public static final class Estimate {
+        public final double value;
+        public final double error;
+        public final long evaluations;
+        public final boolean converged;
+        
+        Estimate(double value, double error, long evaluations, boolean converged) {
+            this.value = value;
+            this.error = error;
+            this.evaluations = evaluations;
+            this.converged = converged;
+        }
+        
+        // The value, or NOT_CONVERGED if the budget ran out first
+        public double value() {
+            if (!converged) {
+                throw new ArithmeticException(NOT_CONVERGED);
+            }
+            return value;
+        }
+    }
+    
+    private Numerics() {
+    }
+    
+    public static Estimate solve(DoubleUnaryOperator f, double a, double b) {
+        return solve(f, a, b, SOLVE_BUDGET);
+    }
+    
+    // A root of f between a and b, which must give f values of opposite signs.
+    // Converges to the last few ulps of the bracket; a sign change that is a
+    // pole, as tan has at 90°, is reported as NO_ROOT rather than returned
+    public static Estimate solve(DoubleUnaryOperator f, double a, double b, int budget) {
+        if (!Double.isFinite(a) || !Double.isFinite(b)) {
+            throw new ArithmeticException(CalculatorEngine.INVALID_INPUT);
+        }
+        double fa = value(f, a);
+        double fb = value(f, b);
+        if (fa == 0) {
+            return new Estimate(a, 0, 2, true);
+        }
+        if (fb == 0) {
+            return new Estimate(b, 0, 2, true);
+        }
+        if ((fa > 0) == (fb > 0)) {
+            throw new ArithmeticException(NO_SIGN_CHANGE);
+        }
+        double largest = Math.max(Math.abs(fa), Math.abs(fb));
+        double scale = EPSILON * Math.max(Math.abs(a), Math.abs(b)); // floor on the bracket for a root at 0
+        double c = a;
+        double fc = fa;
+        double d = b - a;
+        double e = d;
+        for (int evaluations = 2; ; evaluations++) {
+            if ((fb > 0) == (fc > 0)) {
+                c = a;
+                fc = fa;
+                d = b - a;
+                e = d;
+            }
+            if (Math.abs(fc) < Math.abs(fb)) {
+                a = b;
+                b = c;
+                c = a;
+                fa = fb;
+                fb = fc;
+                fc = fa;
+            }
+            double tolerance = 2 * EPSILON * Math.abs(b) + 0.5 * scale;
+            double half = 0.5 * (c - b);
+            if (Math.abs(half) <= tolerance || fb == 0) {
+                // A pole closes its bracket too, but with |f| growing instead of vanishing
+                if (Math.abs(fb) > largest) {
+                    throw new ArithmeticException(NO_ROOT);
+                }
+                return new Estimate(b, Math.abs(half), evaluations, true);
+            }
+            if (evaluations >= budget) {
+                return new Estimate(b, Math.abs(half), evaluations, false);
+            }
+            if (Math.abs(e) >= tolerance && Math.abs(fa) > Math.abs(fb)) {
+                // Inverse quadratic interpolation, or the secant step when only two points differ
+                double s = fb / fa;
+                double p;
+                double q;
+                if (a == c) {
+                    p = 2 * half * s;
+                    q = 1 - s;
+                } else {
+                    double r = fb / fc;
+                    q = fa / fc;
+                    p = s * (2 * half * q * (q - r) - (b - a) * (r - 1));
+                    q = (q - 1) * (r - 1) * (s - 1);
+                }
+                if (p > 0) {
+                    q = -q;
+                } else {
+                    p = -p;
+                }
+                if (2 * p < Math.min(3 * half * q - Math.abs(tolerance * q), Math.abs(e * q))) {
+                    e = d;
+                    d = p / q;
+                } else {
+                    d = half;
+                    e = d;
+                }
+            } else {
+                d = half;
+                e = d;
+            }
+            a = b;
+            fa = fb;
+            b += Math.abs(d) > tolerance ? d : Math.copySign(tolerance, half);
+            fb = value(f, b);
+        }
+    }
+    
+    public static Estimate integrate(DoubleUnaryOperator f, double a, double b) {
+        return integrate(f, a, b, INTEGRATE_BUDGET, ForkJoinPool.commonPool());
+    }
+    
+    // The integral of f from a to b, to RELATIVE_TOLERANCE of its value or
+    // ABSOLUTE_TOLERANCE, whichever is larger, within budget evaluations of f
+    public static Estimate integrate(DoubleUnaryOperator f, double a, double b, long budget, ForkJoinPool pool) {
+        if (!Double.isFinite(a) || !Double.isFinite(b)) {
+            throw new ArithmeticException(CalculatorEngine.INVALID_INPUT);
+        }
+        if (a == b) {
+            return new Estimate(0, 0, 0, true);
+        }
+        Subintervals parts = new Subintervals(f);
+        parts.add(Math.min(a, b), Math.max(a, b));
+        parts.rule(0);
+        parts.rethrow();
+        long evaluations = RULE_POINTS;
+        while (true) {
+            double value = 0;
+            double error = 0;
+            for (int i = 0; i < parts.size; i++) {
+                value += parts.value[i];
+                error += parts.error[i];
+            }
+            double tolerance = Math.max(ABSOLUTE_TOLERANCE, RELATIVE_TOLERANCE * Math.abs(value));
+            int splits = error <= tolerance ? 0 : parts.chooseSplits(tolerance, (budget - evaluations) / (2 * RULE_POINTS));
+            if (splits == 0) {
+                if (Double.isNaN(value)) {
+                    throw new ArithmeticException(CalculatorEngine.INVALID_RESULT);
+                }
+                return new Estimate(a < b ? value : -value, error, evaluations, error <= tolerance);
+            }
+            int first = parts.size;
+            parts.bisectChosen(splits);
+            if (splits < 2 * INTERVALS_PER_TASK) {
+                new Bisect(parts, first, splits).compute();
+            } else {
+                pool.invoke(new Bisect(parts, first, splits));
+            }
+            parts.rethrow();
+            evaluations += 2L * RULE_POINTS * splits;
+        }
+    }
+    
+    private static double value(DoubleUnaryOperator f, double x) {
+        double y = f.applyAsDouble(x);
+        if (Double.isNaN(y) || Double.isInfinite(y)) {
+            throw new ArithmeticException(CalculatorEngine.INVALID_RESULT);
+        }
+        return y;
+    }
+    
+    // The subintervals of an integration with each one's Gauss-Kronrod value
+    // and error estimate, in parallel arrays. A bisection overwrites the chosen
+    // interval with its left half and appends the right half, so the halves of
+    // one round touch distinct slots and can be computed on any thread
+    private static final class Subintervals {
+        private final DoubleUnaryOperator f;
+        private volatile ArithmeticException failure; // the first error from f, on any thread
+        double[] low = new double[16];
+        double[] high = new double[16];
+        double[] value = new double[16];
+        double[] error = new double[16];
+        int[] chosen = new int[16];
+        int size;
+        
+        Subintervals(DoubleUnaryOperator f) {
+            this.f = f;
+        }
+        
+        void add(double from, double to) {
+            if (size == low.length) {
+                int capacity = size * 2;
+                low = Arrays.copyOf(low, capacity);
+                high = Arrays.copyOf(high, capacity);
+                value = Arrays.copyOf(value, capacity);
+                error = Arrays.copyOf(error, capacity);
+            }
+            low[size] = from;
+            high[size++] = to;
+        }
+        
+        // Picks up to limit intervals whose error is above an equal share of the
+        // tolerance, largest first; intervals too narrow to halve are left alone
+        int chooseSplits(double tolerance, long limit) {
+            double share = tolerance / size;
+            int count = 0;
+            if (chosen.length < size) {
+                chosen = new int[Math.max(size, chosen.length * 2)];
+            }
+            for (int i = 0; i < size; i++) {
+                double middle = 0.5 * (low[i] + high[i]);
+                if (error[i] > share && middle > low[i] && middle < high[i]) {
+                    chosen[count++] = i;
+                }
+            }
+            if (count > limit) {
+                Integer[] order = new Integer[count];
+                for (int k = 0; k < count; k++) {
+                    order[k] = chosen[k];
+                }
+                Arrays.sort(order, (x, y) -> Double.compare(error[y], error[x]));
+                count = (int) limit;
+                for (int k = 0; k < count; k++) {
+                    chosen[k] = order[k];
+                }
+            }
+            return count;
+        }
+        
+        // Narrows each of the first count chosen intervals to its left half and appends its right half
+        void bisectChosen(int count) {
+            for (int k = 0; k < count; k++) {
+                int i = chosen[k];
+                double middle = 0.5 * (low[i] + high[i]);
+                add(middle, high[i]);
+                high[i] = middle;
+            }
+        }
+        
+        void rule(int i) {
+            try {
+                kronrod(i);
+            } catch (ArithmeticException ex) {
+                if (failure == null) {
+                    failure = ex;
+                }
+            }
+        }
+        
+        void rethrow() {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+        
+        // The 15-point Kronrod value of interval i and the QUADPACK estimate of its error
+        private void kronrod(int i) {
+            double center = 0.5 * (low[i] + high[i]);
+            double halfLength = 0.5 * (high[i] - low[i]);
+            double[] left = new double[7];
+            double[] right = new double[7];
+            double fc = value(f, center);
+            double gauss = fc * GAUSS_WEIGHTS[3];
+            double kronrod = fc * KRONROD_WEIGHTS[7];
+            double absolute = Math.abs(kronrod);
+            for (int j = 0; j < 7; j++) {
+                double offset = halfLength * KRONROD_NODES[j];
+                double f1 = value(f, center - offset);
+                double f2 = value(f, center + offset);
+                left[j] = f1;
+                right[j] = f2;
+                kronrod += KRONROD_WEIGHTS[j] * (f1 + f2);
+                absolute += KRONROD_WEIGHTS[j] * (Math.abs(f1) + Math.abs(f2));
+                if (j % 2 == 1) {
+                    gauss += GAUSS_WEIGHTS[j / 2] * (f1 + f2);
+                }
+            }
+            double mean = 0.5 * kronrod;
+            double deviation = KRONROD_WEIGHTS[7] * Math.abs(fc - mean);
+            for (int j = 0; j < 7; j++) {
+                deviation += KRONROD_WEIGHTS[j] * (Math.abs(left[j] - mean) + Math.abs(right[j] - mean));
+            }
+            absolute *= halfLength;
+            deviation *= halfLength;
+            double estimate = Math.abs((kronrod - gauss) * halfLength);
+            if (deviation != 0 && estimate != 0) {
+                estimate = deviation * Math.min(1, Math.pow(200 * estimate / deviation, 1.5));
+            }
+            if (absolute > Double.MIN_NORMAL / (50 * EPSILON)) {
+                estimate = Math.max(50 * EPSILON * absolute, estimate);
+            }
+            value[i] = kronrod * halfLength;
+            error[i] = estimate;
+        }
+    }
+    
+    // Applies the rule to both halves of the chosen intervals [from, from + count)
+    // in the order bisectChosen appended them
+    private static final class Bisect extends RecursiveAction {
+        private final Subintervals parts;
+        private final int first; // slot of the first appended right half
+        private final int from;
+        private final int to;
+        
+        Bisect(Subintervals parts, int first, int count) {
+            this(parts, first, 0, count);
+        }
+        
+        private Bisect(Subintervals parts, int first, int from, int to) {
+            this.parts = parts;
+            this.first = first;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from > INTERVALS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Bisect(parts, first, from, middle), new Bisect(parts, first, middle, to));
+                return;
+            }
+            for (int k = from; k < to; k++) {
+                parts.rule(parts.chosen[k]);
+                parts.rule(first + k);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package calculator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+// Named registers such as a, rate or ans, beside the single memory register.
+// A name is given a slot the first time it is stored and keeps it for good,
+// so an ExpressionCompiler bound to these registers resolves names to slots
+// once, at compile time, and evaluating reads the value array by index.
+// Names are ASCII letters, case-insensitive, and may not shadow a function
+// or constant. Stores come from the session's thread; each value is
+// published on its own as raw bits, and the array is only copied when it
+// grows, so compiled expressions can read registers from any thread, as plot
+// sampling and integration do. Listeners hear only of stores that change a
+// value, since ans is stored after every result.
+public final class Registers {
+    public static final String ANS = "ans";
+    public static final int MAX_NAME_LENGTH = 16;
+    public static final int MAX_REGISTERS = 1024;
+    private static final String[] RESERVED = {"x", "pi", "e", "rand", "sqrt", "exp", "solve", "integrate"};
+    
+    private final Map<String, Integer> slots = new HashMap<>();
+    private String[] names = new String[8];
+    private volatile AtomicLongArray values = new AtomicLongArray(8); // replaced only to grow
+    private int size;
+    private final List<IntConsumer> listeners = new ArrayList<>();
+    
+    public int size() {
+        return size;
+    }
+    
+    // Slot of name, or -1 if it has never been stored
+    public int slot(String name) {
+        Integer slot = slots.get(name.toLowerCase(Locale.ROOT));
+        return slot == null ? -1 : slot;
+    }
+    
+    public String name(int slot) {
+        checkSlot(slot);
+        return names[slot];
+    }
+    
+    public double value(int slot) {
+        checkSlot(slot);
+        return read(slot);
+    }
+    
+    // Value of a slot known to exist, as compiled expressions read it
+    double read(int slot) {
+        return Double.longBitsToDouble(values.get(slot));
+    }
+    
+    // Stores value under name, giving a new name the next slot, and returns the slot.
+    // Throws IllegalArgumentException for a name that is not allowed
+    public int set(String name, double value) {
+        String key = name.toLowerCase(Locale.ROOT);
+        Integer slot = slots.get(key);
+        boolean added = slot == null;
+        if (added) {
+            String problem = checkName(key);
+            if (problem != null) {
+                throw new IllegalArgumentException(problem);
+            }
+            if (size == MAX_REGISTERS) {
+                throw new IllegalArgumentException("No more than " + MAX_REGISTERS + " registers");
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                AtomicLongArray grown = new AtomicLongArray(size * 2);
+                for (int i = 0; i < size; i++) {
+                    grown.set(i, values.get(i));
+                }
+                values = grown;
+            }
+            slot = size++;
+            names[slot] = key;
+            slots.put(key, slot);
+        }
+        store(slot, value, added);
+        return slot;
+    }
+    
+    public void set(int slot, double value) {
+        checkSlot(slot);
+        store(slot, value, false);
+    }
+    
+    private void store(int slot, double value, boolean added) {
+        long bits = Double.doubleToRawLongBits(value);
+        if (values.getAndSet(slot, bits) == bits && !added) {
+            return;
+        }
+        for (IntConsumer listener : listeners) {
+            listener.accept(slot);
+        }
+    }
+    
+    // Told the slot of every store that changes a value, a slot at or past the
+    // size it last saw being a new register
+    public void addListener(IntConsumer listener) {
+        listeners.add(listener);
+    }
+    
+    // Why name cannot be a register, or null if it can
+    public static String checkName(String name) {
+        if (name.isEmpty() || name.length() > MAX_NAME_LENGTH) {
+            return "Register names are 1 to " + MAX_NAME_LENGTH + " letters";
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = Character.toLowerCase(name.charAt(i));
+            if (c < 'a' || c > 'z') {
+                return "Register names are letters only: " + name;
+            }
+        }
+        String key = name.toLowerCase(Locale.ROOT);
+        CalculatorEngine.Function function = CalculatorEngine.Function.fromSymbol(key);
+        if (Arrays.asList(RESERVED).contains(key) || key.startsWith("mod") || function != null) {
+            return "'" + name + "' is already a function or constant";
+        }
+        return null;
+    }
+    
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int slot = 0; slot < size; slot++) {
+            SessionSnapshot.writeText(out, names[slot]);
+            out.writeDouble(read(slot));
+        }
+    }
+    
+    // Registers as writeTo wrote them, in the same slots
+    static Registers readFrom(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > MAX_REGISTERS) {
+            throw new IOException("Corrupt registers: " + count);
+        }
+        Registers registers = new Registers();
+        for (int i = 0; i < count; i++) {
+            String name = SessionSnapshot.readText(in);
+            double value = in.readDouble();
+            if (registers.slots.containsKey(name) || checkName(name) != null) {
+                throw new IOException("Corrupt registers: " + name);
+            }
+            registers.set(name, value);
+        }
+        return registers;
+    }
+    
+    // Stores every register of other here. Names already here keep their slots,
+    // so expressions compiled against these registers stay valid
+    void restore(Registers other) {
+        for (int slot = 0; slot < other.size; slot++) {
+            set(other.names[slot], other.read(slot));
+        }
+    }
+    
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Register " + slot + " out of bounds for " + size);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package calculator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// The calculator session as a small versioned binary file: a header, the
+// window's modes, then the session's input state, memory, undo journal and
+// named registers.
+// History is not copied; it already lives in its own append-only log. A save
+// writes a temporary file through a FileChannel, forces it and renames it over
+// the previous snapshot, so a crash leaves one snapshot or the other intact.
+// Reading parses everything up front, off the event dispatch thread; applying
+// the result is then a handful of field assignments.
+final class SessionSnapshot {
+    private static final int MAGIC = 0x4A435353; // "JCSS"
+    private static final int VERSION = 2;
+    private static final int MAX_BYTES = 256 * 1024 * 1024;
+    private static final byte SCIENTIFIC_MODE = 1;
+    private static final byte ANGLE_MODE_DEGREES = 2;
+    private static final byte HISTORY_VISIBLE = 4;
+    
+    final boolean scientificMode;
+    final boolean angleModeDegrees;
+    final boolean historyVisible;
+    private final Runnable restoreSession;
+    
+    private SessionSnapshot(int modes, Runnable restoreSession) {
+        this.scientificMode = (modes & SCIENTIFIC_MODE) != 0;
+        this.angleModeDegrees = (modes & ANGLE_MODE_DEGREES) != 0;
+        this.historyVisible = (modes & HISTORY_VISIBLE) != 0;
+        this.restoreSession = restoreSession;
+    }
+    
+    // Puts the saved state into the session given to read; on the session's thread
+    void restoreSession() {
+        restoreSession.run();
+    }
+    
+    // Encodes the session and the window's modes; on the session's thread, as it reads the session
+    static ByteBuffer capture(CalculatorSession session, boolean scientificMode, boolean angleModeDegrees,
+                              boolean historyVisible) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeByte((scientificMode ? SCIENTIFIC_MODE : 0) | (angleModeDegrees ? ANGLE_MODE_DEGREES : 0)
+                | (historyVisible ? HISTORY_VISIBLE : 0));
+        session.writeState(out);
+        out.flush();
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+    
+    // Replaces the snapshot at path with a captured one; safe on any thread
+    static void write(Path path, ByteBuffer snapshot) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = snapshot.duplicate();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    // The snapshot at path, or null if there is none yet. Touches nothing but the
+    // file, so it can run on any thread; session is only written by restoreSession
+    static SessionSnapshot read(Path path, CalculatorSession session) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MAX_BYTES) {
+                throw new IOException("Session snapshot too large: " + size + " bytes");
+            }
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Session snapshot ended unexpectedly");
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+        if (buffer.capacity() < 8 || in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a calculator session snapshot (version " + VERSION + ")");
+        }
+        int modes = in.readByte();
+        return new SessionSnapshot(modes, session.readState(in));
+    }
+    
+    // Length-prefixed UTF-8, as the history log stores entries
+    static void writeText(DataOutput out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    static String readText(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_BYTES) {
+            throw new IOException("Corrupt session snapshot: text of " + length + " bytes");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
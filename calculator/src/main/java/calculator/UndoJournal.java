@@ -0,0 +1,325 @@
+package calculator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Bounded undo/redo journal of calculator input states. States live in
+// parallel primitive arrays used as a ring, one slot per step, with the
+// state's text (the display and the exact decimal forms of the first operand
+// and memory) packed into a shared char arena; no object is allocated per
+// step. Slots [0, cursor) are undo steps, the slot at cursor is the state
+// last restored, and the slots after it are redo steps. Pushing, trimming
+// the oldest step and moving the cursor are all O(1).
+class UndoJournal {
+    static final int DEFAULT_LIMIT = 100_000;
+    private static final int INITIAL_SLOTS = 64;
+    private static final int MIN_ARENA = 1024;
+    private static final CalculatorEngine.BinaryOp[] OPERATORS = CalculatorEngine.BinaryOp.values();
+    private static final byte OPERATOR_CLICKED = 1;
+    private static final byte EXPRESSION_MODE = 2;
+    // Text fields per slot, at textStarts[slot * TEXTS + field]
+    private static final int TEXTS = 3;
+    private static final int DISPLAY = 0;
+    private static final int FIRST_EXACT = 1;
+    private static final int MEMORY_EXACT = 2;
+    // Snapshot record per step: first number, memory, operator, flags and the text lengths
+    private static final int STEP_BYTES = 8 + 8 + 1 + 1 + 4 * TEXTS;
+    
+    private final int limit;
+    private double[] firstNumbers;
+    private double[] memories;
+    private byte[] operators; // BinaryOp ordinal + 1, or 0 for none
+    private byte[] flags;
+    private int[] textStarts;
+    private int[] textLengths;
+    private char[] arena = new char[MIN_ARENA];
+    private int arenaTop;
+    private int head; // slot of the oldest step
+    private int count;
+    private int cursor;
+    
+    UndoJournal() {
+        this(DEFAULT_LIMIT);
+    }
+    
+    UndoJournal(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Undo limit must be positive: " + limit);
+        }
+        this.limit = limit;
+        allocate(Math.min(limit + 1, INITIAL_SLOTS));
+    }
+    
+    // Records the state before an operation; a new operation invalidates redo
+    void save(String display, double firstNumber, String firstExact, String operator, boolean operatorClicked,
+              double memory, String memoryExact, boolean expressionMode) {
+        if (cursor == limit) {
+            head = slot(1);
+            cursor--;
+        }
+        count = cursor;
+        write(cursor, display, firstNumber, firstExact, operator, operatorClicked, memory, memoryExact, expressionMode);
+        cursor++;
+        count = cursor;
+    }
+    
+    // Steps back, remembering the given current state for redo; the restored
+    // state is then read through the accessors. False if there is nothing to undo
+    boolean undo(String display, double firstNumber, String firstExact, String operator, boolean operatorClicked,
+                 double memory, String memoryExact, boolean expressionMode) {
+        if (cursor == 0) {
+            return false;
+        }
+        write(cursor, display, firstNumber, firstExact, operator, operatorClicked, memory, memoryExact, expressionMode);
+        if (cursor == count) {
+            count++;
+        }
+        cursor--;
+        return true;
+    }
+    
+    // Steps forward, the mirror image of undo. False if there is nothing to redo
+    boolean redo(String display, double firstNumber, String firstExact, String operator, boolean operatorClicked,
+                 double memory, String memoryExact, boolean expressionMode) {
+        if (cursor + 1 >= count) {
+            return false;
+        }
+        write(cursor, display, firstNumber, firstExact, operator, operatorClicked, memory, memoryExact, expressionMode);
+        cursor++;
+        return true;
+    }
+    
+    // State at the cursor, valid after undo or redo returned true
+    String display() {
+        return text(DISPLAY);
+    }
+    
+    double firstNumber() {
+        return firstNumbers[slot(cursor)];
+    }
+    
+    String firstExact() {
+        return text(FIRST_EXACT);
+    }
+    
+    String operator() {
+        int op = operators[slot(cursor)];
+        return op == 0 ? "" : OPERATORS[op - 1].symbol();
+    }
+    
+    boolean operatorClicked() {
+        return (flags[slot(cursor)] & OPERATOR_CLICKED) != 0;
+    }
+    
+    double memory() {
+        return memories[slot(cursor)];
+    }
+    
+    String memoryExact() {
+        return text(MEMORY_EXACT);
+    }
+    
+    boolean expressionMode() {
+        return (flags[slot(cursor)] & EXPRESSION_MODE) != 0;
+    }
+    
+    int undoDepth() {
+        return cursor;
+    }
+    
+    int redoDepth() {
+        return count > cursor ? count - cursor - 1 : 0;
+    }
+    
+    int limit() {
+        return limit;
+    }
+    
+    // Writes every step oldest first, the state at the cursor and the redo steps
+    // included: a fixed-size record per step, then the text of all steps as one
+    // UTF-8 block, so the journal is encoded with a few bulk copies
+    void writeTo(DataOutput out) throws IOException {
+        int chars = 0;
+        for (int i = 0; i < count; i++) {
+            int at = slot(i) * TEXTS;
+            chars += textLengths[at + DISPLAY] + textLengths[at + FIRST_EXACT] + textLengths[at + MEMORY_EXACT];
+        }
+        ByteBuffer steps = ByteBuffer.allocate(count * STEP_BYTES);
+        char[] text = new char[chars];
+        int top = 0;
+        for (int i = 0; i < count; i++) {
+            int slot = slot(i);
+            steps.putDouble(firstNumbers[slot]).putDouble(memories[slot]).put(operators[slot]).put(flags[slot]);
+            for (int field = slot * TEXTS; field < slot * TEXTS + TEXTS; field++) {
+                steps.putInt(textLengths[field]);
+                System.arraycopy(arena, textStarts[field], text, top, textLengths[field]);
+                top += textLengths[field];
+            }
+        }
+        out.writeInt(count);
+        out.writeInt(cursor);
+        out.write(steps.array());
+        SessionSnapshot.writeText(out, new String(text));
+    }
+    
+    // A journal holding the steps writeTo wrote, with the same undo and redo depth;
+    // the text block becomes its arena as it is
+    static UndoJournal readFrom(DataInput in, int limit) throws IOException {
+        int steps = in.readInt();
+        int at = in.readInt();
+        if (steps < 0 || steps > limit + 1L || at < 0 || at > steps) {
+            throw new IOException("Corrupt undo journal: " + steps + " steps, cursor at " + at);
+        }
+        byte[] records = new byte[steps * STEP_BYTES];
+        in.readFully(records);
+        char[] text = SessionSnapshot.readText(in).toCharArray();
+        UndoJournal journal = new UndoJournal(limit);
+        journal.allocate(Math.min(limit + 1, Math.max(INITIAL_SLOTS, steps)));
+        ByteBuffer record = ByteBuffer.wrap(records);
+        int top = 0;
+        for (int slot = 0; slot < steps; slot++) {
+            journal.firstNumbers[slot] = record.getDouble();
+            journal.memories[slot] = record.getDouble();
+            byte op = record.get();
+            if (op < 0 || op > OPERATORS.length) {
+                throw new IOException("Corrupt undo journal: operator " + op);
+            }
+            journal.operators[slot] = op;
+            journal.flags[slot] = record.get();
+            for (int field = slot * TEXTS; field < slot * TEXTS + TEXTS; field++) {
+                int length = record.getInt();
+                if (length < 0 || length > text.length - top) {
+                    throw new IOException("Corrupt undo journal: text runs past its block");
+                }
+                journal.textStarts[field] = top;
+                journal.textLengths[field] = length;
+                top += length;
+            }
+        }
+        if (top != text.length) {
+            throw new IOException("Corrupt undo journal: " + (text.length - top) + " characters left over");
+        }
+        journal.arena = text.length < MIN_ARENA ? Arrays.copyOf(text, MIN_ARENA) : text;
+        journal.arenaTop = top;
+        journal.count = steps;
+        journal.cursor = at;
+        return journal;
+    }
+    
+    private String text(int field) {
+        int at = slot(cursor) * TEXTS + field;
+        int length = textLengths[at];
+        return length == 0 ? "" : new String(arena, textStarts[at], length);
+    }
+    
+    private void write(int index, String display, double firstNumber, String firstExact, String operator,
+                       boolean operatorClicked, double memory, String memoryExact, boolean expressionMode) {
+        if (index == firstNumbers.length) {
+            grow();
+        }
+        int slot = slot(index);
+        firstNumbers[slot] = firstNumber;
+        memories[slot] = memory;
+        operators[slot] = encode(operator);
+        flags[slot] = (byte) ((operatorClicked ? OPERATOR_CLICKED : 0) | (expressionMode ? EXPRESSION_MODE : 0));
+        int at = slot * TEXTS;
+        // The slot's old text, if any, becomes garbage reclaimed by the next compaction
+        textLengths[at + DISPLAY] = 0;
+        textLengths[at + FIRST_EXACT] = 0;
+        textLengths[at + MEMORY_EXACT] = 0;
+        int needed = display.length() + firstExact.length() + memoryExact.length();
+        if (arena.length - arenaTop < needed) {
+            compact(needed);
+        }
+        append(at + DISPLAY, display);
+        append(at + FIRST_EXACT, firstExact);
+        append(at + MEMORY_EXACT, memoryExact);
+    }
+    
+    private void append(int at, String value) {
+        int length = value.length();
+        value.getChars(0, length, arena, arenaTop);
+        textStarts[at] = arenaTop;
+        textLengths[at] = length;
+        arenaTop += length;
+    }
+    
+    // Copies the text of live steps into a fresh arena with at least as much free space as live text
+    private void compact(int needed) {
+        int live = needed;
+        for (int i = 0; i < count; i++) {
+            int at = slot(i) * TEXTS;
+            for (int field = 0; field < TEXTS; field++) {
+                live += textLengths[at + field];
+            }
+        }
+        char[] fresh = new char[Math.max(MIN_ARENA, live * 2)];
+        int top = 0;
+        for (int i = 0; i < count; i++) {
+            int at = slot(i) * TEXTS;
+            for (int field = at; field < at + TEXTS; field++) {
+                System.arraycopy(arena, textStarts[field], fresh, top, textLengths[field]);
+                textStarts[field] = top;
+                top += textLengths[field];
+            }
+        }
+        arena = fresh;
+        arenaTop = top;
+    }
+    
+    private static byte encode(String operator) {
+        if (operator.isEmpty()) {
+            return 0;
+        }
+        for (CalculatorEngine.BinaryOp op : OPERATORS) {
+            if (op.symbol().equals(operator)) {
+                return (byte) (op.ordinal() + 1);
+            }
+        }
+        throw new IllegalArgumentException("Unknown operator: " + operator);
+    }
+    
+    private int slot(int index) {
+        int slot = head + index;
+        return slot >= firstNumbers.length ? slot - firstNumbers.length : slot;
+    }
+    
+    private void allocate(int slots) {
+        firstNumbers = new double[slots];
+        memories = new double[slots];
+        operators = new byte[slots];
+        flags = new byte[slots];
+        textStarts = new int[slots * TEXTS];
+        textLengths = new int[slots * TEXTS];
+    }
+    
+    // Unrolls the ring into arrays twice the size, up to the limit plus the restored slot
+    private void grow() {
+        double[] oldFirst = firstNumbers;
+        double[] oldMemories = memories;
+        byte[] oldOperators = operators;
+        byte[] oldFlags = flags;
+        int[] oldStarts = textStarts;
+        int[] oldLengths = textLengths;
+        int oldHead = head;
+        int n = oldFirst.length;
+        allocate((int) Math.min((long) n * 2, limit + 1L));
+        int tail = n - oldHead;
+        System.arraycopy(oldFirst, oldHead, firstNumbers, 0, tail);
+        System.arraycopy(oldFirst, 0, firstNumbers, tail, oldHead);
+        System.arraycopy(oldMemories, oldHead, memories, 0, tail);
+        System.arraycopy(oldMemories, 0, memories, tail, oldHead);
+        System.arraycopy(oldOperators, oldHead, operators, 0, tail);
+        System.arraycopy(oldOperators, 0, operators, tail, oldHead);
+        System.arraycopy(oldFlags, oldHead, flags, 0, tail);
+        System.arraycopy(oldFlags, 0, flags, tail, oldHead);
+        System.arraycopy(oldStarts, oldHead * TEXTS, textStarts, 0, tail * TEXTS);
+        System.arraycopy(oldStarts, 0, textStarts, tail * TEXTS, oldHead * TEXTS);
+        System.arraycopy(oldLengths, oldHead * TEXTS, textLengths, 0, tail * TEXTS);
+        System.arraycopy(oldLengths, 0, textLengths, tail * TEXTS, oldHead * TEXTS);
+        head = 0;
+    }
+}